@@ -0,0 +1,38 @@
+package com.skyhigh.core.benchmark;
+
+import com.skyhigh.core.service.BaggageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BaggageService.calculateExcessBaggageFee below and above the free allowance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaggageFeeBenchmark {
+
+    @Param({"20.0", "32.5"})
+    public double weight;
+
+    private final BaggageService baggageService = new BaggageService();
+
+    @Benchmark
+    public BigDecimal calculateExcessBaggageFee() {
+        return baggageService.calculateExcessBaggageFee(weight);
+    }
+}
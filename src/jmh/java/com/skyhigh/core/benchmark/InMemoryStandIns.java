@@ -0,0 +1,264 @@
+package com.skyhigh.core.benchmark;
+
+import com.skyhigh.core.model.Booking;
+import com.skyhigh.core.model.Passenger;
+import com.skyhigh.core.model.Seat;
+import com.skyhigh.core.repository.BookingRepository;
+import com.skyhigh.core.repository.PassengerRepository;
+import com.skyhigh.core.repository.SeatRepository;
+import com.skyhigh.core.service.PassengerDirectory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-memory stand-ins for PostgreSQL and Redis, so the benchmarks measure the
+ * application's own hot-path cost (validation, key building, entity and
+ * cache bookkeeping, logging) without network or disk.
+ *
+ * Repositories and Redis operation interfaces are dynamic proxies that
+ * implement only the methods the benchmarked code calls; anything else throws
+ * UnsupportedOperationException so a new call on the hot path is noticed.
+ * Row locks are not modelled.
+ */
+final class InMemoryStandIns {
+
+    private InMemoryStandIns() {
+    }
+
+    /** Seats of one flight keyed by seat number. */
+    static final class SeatTable {
+        final Long flightId;
+        final Map<String, Seat> seats = new ConcurrentHashMap<>();
+
+        SeatTable(Long flightId, List<Seat> rows) {
+            this.flightId = flightId;
+            rows.forEach(seat -> seats.put(seat.getSeatNumber(), seat));
+        }
+
+        SeatRepository repository() {
+            return stub(SeatRepository.class, Map.of(
+                    "findByFlightId", args -> new ArrayList<>(seats.values()),
+                    "findByFlightIdAndSeatNumber", args -> Optional.ofNullable(seats.get((String) args[1])),
+                    "findByFlightIdAndSeatNumberWithLock", args -> Optional.ofNullable(seats.get((String) args[1])),
+                    "save", args -> args[0],
+                    "compareAndSetStatus", args -> compareAndSet((Long) args[0], (Long) args[1],
+                            (Seat.SeatStatus) args[2], (Seat.SeatStatus) args[3])));
+        }
+
+        private int compareAndSet(Long id, Long version, Seat.SeatStatus expected, Seat.SeatStatus next) {
+            for (Seat seat : seats.values()) {
+                if (seat.getId().equals(id)) {
+                    synchronized (seat) {
+                        if (!seat.getVersion().equals(version) || seat.getStatus() != expected) {
+                            return 0;
+                        }
+                        seat.setStatus(next);
+                        seat.setVersion(version + 1);
+                        return 1;
+                    }
+                }
+            }
+            return 0;
+        }
+    }
+
+    static BookingRepository bookingRepository(AtomicLong inserted) {
+        return stub(BookingRepository.class, Map.of("save", args -> {
+            inserted.incrementAndGet();
+            return (Booking) args[0];
+        }));
+    }
+
+    static PassengerRepository passengerRepository() {
+        return stub(PassengerRepository.class, Map.of(
+                "getReferenceById", args -> Passenger.builder().id((Long) args[0]).build()));
+    }
+
+    /** PassengerDirectory over a passengers table that answers the upsert from a map. */
+    static PassengerDirectory passengerDirectory() {
+        Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+        AtomicLong ids = new AtomicLong();
+        JdbcTemplate passengers = new JdbcTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T execute(ConnectionCallback<T> action) {
+                return (T) "PostgreSQL";
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+                return (T) idsByEmail.computeIfAbsent((String) args[0], email -> ids.incrementAndGet());
+            }
+        };
+        return new PassengerDirectory(passengers, 100_000, 600_000);
+    }
+
+    /**
+     * Runs the callback with transaction synchronization active and fires the
+     * afterCommit hooks, like a successful commit would.
+     */
+    static TransactionOperations committingTransactions() {
+        return new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                TransactionSynchronizationManager.initSynchronization();
+                try {
+                    T result = action.doInTransaction(new SimpleTransactionStatus());
+                    TransactionSynchronizationManager.getSynchronizations()
+                            .forEach(TransactionSynchronization::afterCommit);
+                    return result;
+                } finally {
+                    TransactionSynchronizationManager.clearSynchronization();
+                }
+            }
+        };
+    }
+
+    /**
+     * String values and sorted sets only. Pub/sub publishes and Lua scripts are
+     * accepted and ignored; pipelines run ZPOPMIN only.
+     */
+    static final class Redis extends StringRedisTemplate {
+        final Map<String, String> values = new ConcurrentHashMap<>();
+        final Map<String, SortedSet> zsets = new ConcurrentHashMap<>();
+        private final ValueOperations<String, String> valueOps = stub(ValueOperations.class, Map.of(
+                "get", args -> values.get((String) args[0]),
+                "setIfAbsent", args -> values.putIfAbsent((String) args[0], (String) args[1]) == null));
+        private final ZSetOperations<String, String> zsetOps = stub(ZSetOperations.class, Map.of(
+                "add", args -> zset(args[0]).add((String) args[1], (Double) args[2], false),
+                "addIfAbsent", args -> zset(args[0]).add((String) args[1], (Double) args[2], true),
+                "rank", args -> zset(args[0]).rank((String) args[1]),
+                "popMin", args -> zset(args[0]).popMin((Long) args[1])));
+
+        @Override
+        public ValueOperations<String, String> opsForValue() {
+            return valueOps;
+        }
+
+        @Override
+        public ZSetOperations<String, String> opsForZSet() {
+            return zsetOps;
+        }
+
+        @Override
+        public Boolean delete(String key) {
+            return values.remove(key) != null | zsets.remove(key) != null;
+        }
+
+        @Override
+        public Long convertAndSend(String channel, Object message) {
+            return 0L;
+        }
+
+        @Override
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            return null;
+        }
+
+        @Override
+        public List<Object> executePipelined(RedisCallback<?> action) {
+            List<Object> results = new ArrayList<>();
+            RedisZSetCommands zSetCommands = stub(RedisZSetCommands.class, Map.of(
+                    "zPopMin", args -> {
+                        results.add(zset(new String((byte[]) args[0], StandardCharsets.UTF_8)).popMin((Long) args[1]));
+                        return null;
+                    }));
+            action.doInRedis(stub(RedisConnection.class, Map.of("zSetCommands", args -> zSetCommands)));
+            return results;
+        }
+
+        private SortedSet zset(Object key) {
+            return zsets.computeIfAbsent((String) key, k -> new SortedSet());
+        }
+    }
+
+    /** ZSET semantics: ordered by score, then member. */
+    static final class SortedSet {
+        private record Entry(double score, String member) {
+        }
+
+        private static final Comparator<Entry> ORDER =
+                Comparator.comparingDouble(Entry::score).thenComparing(Entry::member);
+
+        private final TreeSet<Entry> entries = new TreeSet<>(ORDER);
+        private final Map<String, Double> scores = new HashMap<>();
+
+        synchronized boolean add(String member, double score, boolean onlyIfAbsent) {
+            Double existing = scores.get(member);
+            if (existing != null) {
+                if (onlyIfAbsent) {
+                    return false;
+                }
+                entries.remove(new Entry(existing, member));
+            }
+            scores.put(member, score);
+            entries.add(new Entry(score, member));
+            return existing == null;
+        }
+
+        synchronized Long rank(String member) {
+            Double score = scores.get(member);
+            return score == null ? null : (long) entries.headSet(new Entry(score, member)).size();
+        }
+
+        synchronized Set<ZSetOperations.TypedTuple<String>> popMin(long count) {
+            Set<ZSetOperations.TypedTuple<String>> popped = new LinkedHashSet<>();
+            for (long i = 0; i < count && !entries.isEmpty(); i++) {
+                Entry first = entries.pollFirst();
+                scores.remove(first.member());
+                popped.add(new DefaultTypedTuple<>(first.member(), first.score()));
+            }
+            return popped;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<?> type, Map<String, Function<Object[], Object>> handlers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            Function<Object[], Object> handler = handlers.get(method.getName());
+            if (handler != null) {
+                return handler.apply(args);
+            }
+            return switch (method.getName()) {
+                case "toString" -> type.getSimpleName() + " stand-in";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(
+                        type.getSimpleName() + "." + method.getName() + " is not stubbed");
+            };
+        });
+    }
+}
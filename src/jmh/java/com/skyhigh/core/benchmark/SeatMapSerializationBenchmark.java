@@ -0,0 +1,83 @@
+package com.skyhigh.core.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skyhigh.core.config.JacksonConfig;
+import com.skyhigh.core.model.Flight;
+import com.skyhigh.core.model.Seat;
+import com.skyhigh.core.service.FlightSeatMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seat-map JSON through the JacksonConfig ObjectMapper: the streamed
+ * FlightSeatMap rendering (fresh and cached) against serializing the Seat
+ * entity list directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeatMapSerializationBenchmark {
+
+    @Param({"180", "400"})
+    public int seatCount;
+
+    private ObjectMapper objectMapper;
+    private List<Seat> seats;
+    private FlightSeatMap seatMap;
+    private boolean toggle;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new JacksonConfig().objectMapper();
+        Flight flight = Flight.builder().id(1L).flightNumber("SH-JMH").build();
+        seats = new ArrayList<>(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            seats.add(Seat.builder()
+                    .id((long) i + 1)
+                    .flight(flight)
+                    .seatNumber((i / 6 + 1) + String.valueOf((char) ('A' + i % 6)))
+                    .seatClass(i < 24 ? Seat.SeatClass.BUSINESS : Seat.SeatClass.ECONOMY)
+                    .status(i % 3 == 0 ? Seat.SeatStatus.CONFIRMED : Seat.SeatStatus.AVAILABLE)
+                    .version(0L)
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        }
+        seatMap = FlightSeatMap.of(1L, seats);
+    }
+
+    @Benchmark
+    public byte[] renderAfterChange() {
+        // A status change invalidates the cached body, forcing a full re-render
+        toggle = !toggle;
+        seatMap.updateStatus("1B", toggle ? Seat.SeatStatus.HELD : Seat.SeatStatus.AVAILABLE);
+        return seatMap.render(objectMapper).body();
+    }
+
+    @Benchmark
+    public byte[] renderCached() {
+        return seatMap.render(objectMapper).body();
+    }
+
+    @Benchmark
+    public byte[] serializeEntities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(seats);
+    }
+}
@@ -0,0 +1,135 @@
+package com.skyhigh.core.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skyhigh.core.config.JacksonConfig;
+import com.skyhigh.core.model.Booking;
+import com.skyhigh.core.model.Flight;
+import com.skyhigh.core.model.Seat;
+import com.skyhigh.core.repository.SeatRepository;
+import com.skyhigh.core.service.AbuseDetector;
+import com.skyhigh.core.service.HoldExpiryWheel;
+import com.skyhigh.core.service.RequestTracer;
+import com.skyhigh.core.service.SeatInventoryService;
+import com.skyhigh.core.service.SeatLockStripes;
+import com.skyhigh.core.service.SeatMapCache;
+import com.skyhigh.core.service.SeatMetrics;
+import com.skyhigh.core.service.SeatService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SeatService.holdSeat / confirmBooking on the legacy (non-Lua) path, in both
+ * row-lock and optimistic modes, against in-memory stand-ins.
+ *
+ * Each invocation also puts the seat back to its starting state, so the
+ * numbers include a couple of map writes of reset cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeatServiceBenchmark {
+
+    private static final Long FLIGHT_ID = 1L;
+    private static final String USER_ID = "bench-user";
+    private static final int SEATS = 180;
+
+    @Param({"false", "true"})
+    public boolean optimistic;
+
+    private SeatService seatService;
+    private InMemoryStandIns.SeatTable table;
+    private InMemoryStandIns.Redis redis;
+    private String[] seatNumbers;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Flight flight = Flight.builder().id(FLIGHT_ID).flightNumber("SH-JMH").build();
+        List<Seat> seats = new ArrayList<>(SEATS);
+        seatNumbers = new String[SEATS];
+        for (int i = 0; i < SEATS; i++) {
+            seatNumbers[i] = (i / 6 + 1) + String.valueOf((char) ('A' + i % 6));
+            seats.add(Seat.builder()
+                    .id((long) i + 1)
+                    .flight(flight)
+                    .seatNumber(seatNumbers[i])
+                    .seatClass(Seat.SeatClass.ECONOMY)
+                    .version(0L)
+                    .build());
+        }
+        table = new InMemoryStandIns.SeatTable(FLIGHT_ID, seats);
+        redis = new InMemoryStandIns.Redis();
+
+        ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+        SeatRepository seatRepository = table.repository();
+        SeatMapCache seatMapCache = new SeatMapCache(seatRepository, objectMapper, redis);
+        seatMapCache.getSnapshot(FLIGHT_ID);
+
+        seatService = new SeatService(seatRepository,
+                InMemoryStandIns.bookingRepository(new AtomicLong()),
+                InMemoryStandIns.passengerRepository(),
+                InMemoryStandIns.passengerDirectory(),
+                redis,
+                seatMapCache,
+                new SeatInventoryService(redis, seatRepository),
+                null, // write-behind is only used by the atomic (Lua) hold path
+                InMemoryStandIns.committingTransactions(),
+                new SeatLockStripes(16),
+                // Disabled: track()/cancel() return immediately, as with expiry left to the sweep
+                new HoldExpiryWheel(redis, null, null, null, null, false, 100, 64, 30_000),
+                // Disabled: checks and counts return immediately
+                new AbuseDetector(redis, false, 600_000, 600_000, 30, 100, 10, 500, 10_000, 100_000),
+                new SeatMetrics(new SimpleMeterRegistry()),
+                new RequestTracer(false, 0, 1));
+        ReflectionTestUtils.setField(seatService, "optimisticLocking", optimistic);
+        ReflectionTestUtils.setField(seatService, "optimisticMaxAttempts", 3);
+    }
+
+    @Benchmark
+    public String holdSeat() {
+        String seatNumber = nextSeat();
+        String reference = seatService.holdSeat(FLIGHT_ID, seatNumber, USER_ID);
+        reset(seatNumber);
+        return reference;
+    }
+
+    @Benchmark
+    public Booking confirmBooking() {
+        String seatNumber = nextSeat();
+        table.seats.get(seatNumber).setStatus(Seat.SeatStatus.HELD);
+        redis.values.put(SeatService.buildHoldKey(FLIGHT_ID, seatNumber), USER_ID);
+        Booking booking = seatService.confirmBooking(FLIGHT_ID, seatNumber, USER_ID, "jmh@skyhigh.com");
+        reset(seatNumber);
+        return booking;
+    }
+
+    private String nextSeat() {
+        String seatNumber = seatNumbers[next];
+        next = (next + 1) % SEATS;
+        return seatNumber;
+    }
+
+    private void reset(String seatNumber) {
+        table.seats.get(seatNumber).setStatus(Seat.SeatStatus.AVAILABLE);
+        redis.values.remove(SeatService.buildHoldKey(FLIGHT_ID, seatNumber));
+    }
+}
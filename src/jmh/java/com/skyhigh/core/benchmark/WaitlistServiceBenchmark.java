@@ -0,0 +1,56 @@
+package com.skyhigh.core.benchmark;
+
+import com.skyhigh.core.service.WaitlistService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WaitlistService join / pop against an in-memory sorted set. The waitlist is
+ * kept at a steady depth: every join is paired with a pop. One shard: the
+ * merge across shards costs a Redis round trip, which the stand-in does not
+ * model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaitlistServiceBenchmark {
+
+    private static final Long FLIGHT_ID = 1L;
+    private static final int DEPTH = 1_000;
+
+    private WaitlistService waitlistService;
+    private long nextUser;
+
+    @Setup
+    public void setUp() {
+        waitlistService = new WaitlistService(new InMemoryStandIns.Redis(), 1, 1_000, 3_600_000);
+        for (int i = 0; i < DEPTH; i++) {
+            waitlistService.joinWaitlist(FLIGHT_ID, "user-" + nextUser++);
+        }
+    }
+
+    @Benchmark
+    public String joinThenPop() {
+        waitlistService.joinWaitlistIfAbsent(FLIGHT_ID, "user-" + nextUser++);
+        return waitlistService.popNextUser(FLIGHT_ID);
+    }
+
+    @Benchmark
+    public boolean joinAlreadyWaiting() {
+        // Duplicate join: the ZADD NX no-op branch the controller hits on retries
+        return waitlistService.joinWaitlistIfAbsent(FLIGHT_ID, "user-" + (nextUser - 1));
+    }
+}
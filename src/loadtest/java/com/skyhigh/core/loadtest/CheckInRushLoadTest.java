@@ -0,0 +1,163 @@
+package com.skyhigh.core.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skyhigh.core.SkyHighCoreApplication;
+import com.skyhigh.core.model.Flight;
+import com.skyhigh.core.model.Seat;
+import com.skyhigh.core.repository.FlightRepository;
+import com.skyhigh.core.repository.SeatRepository;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load generator for check-in rushes.
+ *
+ * Each virtual user runs on its own virtual thread and loops: pick a scenario
+ * by weight, run it, think, repeat — so offered load follows the system's
+ * response time the way real passengers do. By default the application is
+ * booted in-process on a random port against an embedded Redis server and an
+ * in-memory H2 database (profile {@code loadtest}), with a freshly seeded
+ * flight; set {@code -Dloadtest.base-url} and {@code -Dloadtest.flight-id}
+ * to drive a running instance instead.
+ *
+ * Run with {@code mvn -Ploadtest -DskipTests test-compile exec:exec@loadtest};
+ * see LoadTestConfig for the settings.
+ */
+public final class CheckInRushLoadTest {
+
+    private CheckInRushLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        RedisServer redis = null;
+        ConfigurableApplicationContext context = null;
+        boolean met;
+        try {
+            String baseUrl = config.baseUrl();
+            long flightId = config.flightId();
+            if (config.embedded()) {
+                int redisPort = freePort();
+                redis = new RedisServer(redisPort);
+                redis.start();
+                context = SpringApplication.run(SkyHighCoreApplication.class,
+                        "--spring.profiles.active=loadtest",
+                        "--server.port=0",
+                        "--spring.data.redis.port=" + redisPort,
+                        "--server.tomcat.threads.max=" + Math.max(200, config.users()));
+                baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+                flightId = seedFlight(context, config.rows());
+            } else if (flightId <= 0) {
+                throw new IllegalArgumentException("loadtest.flight-id is required with loadtest.base-url");
+            }
+            met = run(config, baseUrl, flightId);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (redis != null) {
+                redis.stop();
+            }
+        }
+        System.exit(met || !config.failOnBreach() ? 0 : 1);
+    }
+
+    private static boolean run(LoadTestConfig config, String baseUrl, long flightId) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        LatencyReport report = new LatencyReport();
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(users)
+                    .build();
+            List<String> seats = RushClient.fetchSeatNumbers(http, objectMapper, baseUrl, flightId);
+            RushClient client = new RushClient(http, objectMapper, report, baseUrl, flightId, seats,
+                    config.hotSeats());
+            LoadTestConfig.Scenario[] schedule = schedule(config.mix());
+
+            long stopAt = System.nanoTime() + config.warmup().toNanos() + config.duration().toNanos();
+            for (int i = 0; i < config.users(); i++) {
+                RushClient.Passenger passenger = new RushClient.Passenger(i);
+                users.submit(() -> {
+                    while (System.nanoTime() < stopAt) {
+                        client.run(schedule[ThreadLocalRandom.current().nextInt(schedule.length)], passenger);
+                        if (!config.thinkTime().isZero()) {
+                            Thread.sleep(config.thinkTime());
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            System.out.printf("Driving %s (flight %d, %d seats) with %d virtual users...%n",
+                    baseUrl, flightId, seats.size(), config.users());
+            TimeUnit.NANOSECONDS.sleep(config.warmup().toNanos());
+            report.startRecording();
+            long measuredFrom = System.nanoTime();
+            TimeUnit.NANOSECONDS.sleep(config.duration().toNanos());
+            report.stopRecording();
+            double elapsedSeconds = (System.nanoTime() - measuredFrom) / 1e9;
+
+            // Users finish their current request; close() waits for them
+            users.shutdown();
+            return report.print(System.out, config, elapsedSeconds);
+        }
+    }
+
+    /** Expands the weights into a lookup table: one uniform draw picks a scenario. */
+    private static LoadTestConfig.Scenario[] schedule(Map<LoadTestConfig.Scenario, Integer> mix) {
+        List<LoadTestConfig.Scenario> slots = new ArrayList<>();
+        mix.forEach((scenario, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                slots.add(scenario);
+            }
+        });
+        return slots.toArray(LoadTestConfig.Scenario[]::new);
+    }
+
+    /** A wide-body flight: the first four rows are business class. */
+    private static long seedFlight(ConfigurableApplicationContext context, int rows) {
+        FlightRepository flightRepository = context.getBean(FlightRepository.class);
+        SeatRepository seatRepository = context.getBean(SeatRepository.class);
+        Flight flight = flightRepository.save(Flight.builder()
+                .flightNumber("SH-RUSH")
+                .departureTime(LocalDateTime.now().plusHours(3))
+                .arrivalTime(LocalDateTime.now().plusHours(6))
+                .aircraftType("Airbus A321")
+                .build());
+        List<Seat> seats = new ArrayList<>(rows * 6);
+        for (int row = 1; row <= rows; row++) {
+            for (char column = 'A'; column <= 'F'; column++) {
+                seats.add(Seat.builder()
+                        .flight(flight)
+                        .seatNumber(row + String.valueOf(column))
+                        .seatClass(row <= 4 ? Seat.SeatClass.BUSINESS : Seat.SeatClass.ECONOMY)
+                        .build());
+            }
+        }
+        seatRepository.saveAll(seats);
+        return flight.getId();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.skyhigh.core.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms and status-code counts, evaluated against
+ * the PRD performance targets.
+ *
+ * Latencies are recorded in microseconds into HdrHistogram Recorders, which
+ * are safe to record into from any number of threads without locking. The
+ * load is closed-loop, so latencies are service times as seen by a client
+ * that waits for each response (no coordinated-omission correction).
+ */
+final class LatencyReport {
+
+    enum Endpoint {
+        SEAT_MAP("GET  /flights/{id}/seats"),
+        HOLD("POST /seats/hold"),
+        CONFIRM("POST /bookings/confirm"),
+        PAYMENT_INTENT("POST /payments/intents"),
+        PAYMENT_EXECUTE("POST /payments/.../execute"),
+        WAITLIST_JOIN("POST /waitlist/join");
+
+        final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    /** PRD section 4.1 targets. */
+    private record Target(String id, String description, Endpoint endpoint, long p95Millis) {
+    }
+
+    private static final Target[] TARGETS = {
+            new Target("NFR-P-01", "Seat map load time (P95)", Endpoint.SEAT_MAP, 1_000),
+            new Target("NFR-P-02", "Seat hold latency (P95)", Endpoint.HOLD, 300),
+            new Target("NFR-P-03", "Booking confirmation latency (P95)", Endpoint.CONFIRM, 500),
+    };
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Map<Integer, LongAdder>> statuses = new EnumMap<>(Endpoint.class);
+    private final LongAdder transportErrors = new LongAdder();
+    private volatile boolean recording;
+
+    LatencyReport() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            statuses.put(endpoint, new ConcurrentHashMap<>());
+        }
+    }
+
+    /** Discards everything recorded so far (end of warm-up) and starts counting. */
+    void startRecording() {
+        recorders.values().forEach(Recorder::reset);
+        statuses.values().forEach(Map::clear);
+        transportErrors.reset();
+        recording = true;
+    }
+
+    void stopRecording() {
+        recording = false;
+    }
+
+    void record(Endpoint endpoint, int status, long elapsedNanos) {
+        if (!recording) {
+            return;
+        }
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_TRACKABLE_MICROS);
+        recorders.get(endpoint).recordValue(micros);
+        statuses.get(endpoint).computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    void recordTransportError() {
+        if (recording) {
+            transportErrors.increment();
+        }
+    }
+
+    /**
+     * Prints the report.
+     *
+     * @return true if every NFR target with samples was met
+     */
+    boolean print(PrintStream out, LoadTestConfig config, double elapsedSeconds) {
+        Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+        recorders.forEach((endpoint, recorder) -> histograms.put(endpoint, recorder.getIntervalHistogram()));
+
+        out.printf("%nCheck-in rush: %d virtual users, %.0fs measured (%ds warm-up), think time %dms%n",
+                config.users(), elapsedSeconds, config.warmup().toSeconds(), config.thinkTime().toMillis());
+        out.printf("%-26s %9s %9s %9s %9s %9s %9s  %s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "status codes");
+        long holdAndConfirm = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram h = histograms.get(endpoint);
+            long count = h.getTotalCount();
+            if (endpoint == Endpoint.HOLD || endpoint == Endpoint.CONFIRM) {
+                holdAndConfirm += count;
+            }
+            out.printf("%-26s %9d %9.1f %9.1f %9.1f %9.1f %9.1f  %s%n",
+                    endpoint.label, count, count / elapsedSeconds,
+                    millis(h, 50), millis(h, 95), millis(h, 99), h.getMaxValue() / 1000.0,
+                    new TreeMap<>(statuses.get(endpoint)));
+        }
+        if (transportErrors.sum() > 0) {
+            out.printf("transport errors (timeouts, refused connections): %d%n", transportErrors.sum());
+        }
+        out.printf("hold + confirm throughput: %.1f req/s (NFR-P-04 target >= 500 on a 4-core instance)%n%n",
+                holdAndConfirm / elapsedSeconds);
+
+        boolean met = true;
+        for (Target target : TARGETS) {
+            Histogram h = histograms.get(target.endpoint());
+            if (h.getTotalCount() == 0) {
+                out.printf("%s %-36s no samples%n", target.id(), target.description());
+                continue;
+            }
+            double p95 = millis(h, 95);
+            boolean pass = p95 < target.p95Millis();
+            met &= pass;
+            out.printf("%s %-36s %8.1f ms  (< %d ms)  %s%n",
+                    target.id(), target.description(), p95, target.p95Millis(), pass ? "PASS" : "FAIL");
+        }
+        return met;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
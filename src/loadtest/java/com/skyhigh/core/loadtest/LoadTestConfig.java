@@ -0,0 +1,83 @@
+package com.skyhigh.core.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load test settings, read from system properties so they can be passed on the
+ * command line ({@code -Dloadtest.users=500}).
+ *
+ * @param baseUrl      target base URL; blank boots the application in-process
+ * @param flightId     flight to drive when targeting an external instance
+ * @param users        concurrent virtual users (one virtual thread each)
+ * @param duration     measured run time
+ * @param warmup       run time before recording starts
+ * @param thinkTime    pause between two actions of one user
+ * @param rows         rows of the seeded flight (6 seats per row)
+ * @param hotSeats     seats every hold-storm user fights over
+ * @param mix          relative weight of each scenario
+ * @param failOnBreach exit non-zero if an NFR target is missed
+ */
+record LoadTestConfig(String baseUrl,
+                      long flightId,
+                      int users,
+                      Duration duration,
+                      Duration warmup,
+                      Duration thinkTime,
+                      int rows,
+                      int hotSeats,
+                      Map<Scenario, Integer> mix,
+                      boolean failOnBreach) {
+
+    /** What one iteration of a virtual user does. */
+    enum Scenario {
+        /** GET the seat map, revalidating with the last ETag. */
+        SEAT_MAP,
+        /** Hold one of a few hot seats — most attempts lose with 409. */
+        HOLD_STORM,
+        /** Hold a random seat, then confirm it with checked baggage (402 → pay → retry). */
+        CONFIRM,
+        /** Join the flight's waitlist. */
+        WAITLIST
+    }
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                System.getProperty("loadtest.base-url", ""),
+                Long.getLong("loadtest.flight-id", 0L),
+                Integer.getInteger("loadtest.users", 200),
+                Duration.ofSeconds(Long.getLong("loadtest.duration", 30L)),
+                Duration.ofSeconds(Long.getLong("loadtest.warmup", 5L)),
+                Duration.ofMillis(Long.getLong("loadtest.think-ms", 20L)),
+                Integer.getInteger("loadtest.rows", 60),
+                Integer.getInteger("loadtest.hot-seats", 4),
+                parseMix(System.getProperty("loadtest.mix", "seat_map:50,hold_storm:20,confirm:20,waitlist:10")),
+                Boolean.parseBoolean(System.getProperty("loadtest.fail-on-breach", "true")));
+    }
+
+    /**
+     * @throws IllegalArgumentException if an entry is not {@code scenario:weight}
+     */
+    static Map<Scenario, Integer> parseMix(String value) {
+        Map<Scenario, Integer> mix = new EnumMap<>(Scenario.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed loadtest.mix entry: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                mix.put(Scenario.valueOf(parts[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no scenario with a positive weight");
+        }
+        return mix;
+    }
+
+    boolean embedded() {
+        return baseUrl.isBlank();
+    }
+}
@@ -0,0 +1,212 @@
+package com.skyhigh.core.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skyhigh.core.loadtest.LatencyReport.Endpoint;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * What a passenger's app does against {@code /api/v1}, one scenario per call.
+ * Every request is timed into the LatencyReport.
+ *
+ * Each virtual user sends its own X-Forwarded-For address, as passengers
+ * behind a load balancer would, so the per-client rate limit applies per
+ * user rather than to the whole test.
+ */
+final class RushClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient http;
+    private final ObjectMapper objectMapper;
+    private final LatencyReport report;
+    private final String api;
+    private final long flightId;
+    private final List<String> hotSeats;
+    private final List<String> otherSeats;
+
+    RushClient(HttpClient http, ObjectMapper objectMapper, LatencyReport report, String baseUrl,
+               long flightId, List<String> seatNumbers, int hotSeatCount) {
+        this.http = http;
+        this.objectMapper = objectMapper;
+        this.report = report;
+        this.api = baseUrl + "/api/v1";
+        this.flightId = flightId;
+        int hot = Math.min(hotSeatCount, seatNumbers.size());
+        this.hotSeats = List.copyOf(seatNumbers.subList(0, hot));
+        this.otherSeats = hot < seatNumbers.size() ? List.copyOf(seatNumbers.subList(hot, seatNumbers.size())) : hotSeats;
+    }
+
+    /** Per-virtual-user state. */
+    static final class Passenger {
+        final String clientIp;
+        final String userPrefix;
+        String seatMapEtag;
+        long iteration;
+
+        Passenger(int index) {
+            this.clientIp = "10." + (index >> 16 & 0xFF) + "." + (index >> 8 & 0xFF) + "." + (index & 0xFF);
+            this.userPrefix = "rush-" + index;
+        }
+
+        String nextUserId() {
+            return userPrefix + "-" + iteration++;
+        }
+    }
+
+    /**
+     * Reads the seat numbers of a flight, ordered as the seat map lists them.
+     *
+     * @throws IllegalStateException if the flight has no seat map
+     */
+    static List<String> fetchSeatNumbers(HttpClient http, ObjectMapper objectMapper, String baseUrl, long flightId)
+            throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/flights/" + flightId + "/seats"))
+                        .timeout(REQUEST_TIMEOUT).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Seat map of flight " + flightId + " returned " + response.statusCode());
+        }
+        List<String> seats = new ArrayList<>();
+        for (JsonNode seat : objectMapper.readTree(response.body())) {
+            seats.add(seat.get("seatNumber").asText());
+        }
+        return seats;
+    }
+
+    void run(LoadTestConfig.Scenario scenario, Passenger passenger) throws InterruptedException {
+        switch (scenario) {
+            case SEAT_MAP -> pollSeatMap(passenger);
+            case HOLD_STORM -> hold(passenger, pick(hotSeats), passenger.nextUserId());
+            case CONFIRM -> holdAndConfirm(passenger);
+            case WAITLIST -> post(Endpoint.WAITLIST_JOIN, "/waitlist/join", passenger,
+                    Map.of("flightId", flightId, "userId", passenger.nextUserId()));
+        }
+    }
+
+    private void pollSeatMap(Passenger passenger) throws InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(api + "/flights/" + flightId + "/seats"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("X-Forwarded-For", passenger.clientIp)
+                .GET();
+        if (passenger.seatMapEtag != null) {
+            request.header("If-None-Match", passenger.seatMapEtag);
+        }
+        HttpResponse<byte[]> response = send(Endpoint.SEAT_MAP, request.build());
+        if (response != null) {
+            response.headers().firstValue("ETag").ifPresent(etag -> passenger.seatMapEtag = etag);
+        }
+    }
+
+    private int hold(Passenger passenger, String seatNumber, String userId) throws InterruptedException {
+        HttpResponse<byte[]> response = post(Endpoint.HOLD, "/seats/hold", passenger,
+                Map.of("flightId", flightId, "seatNumber", seatNumber, "userId", userId));
+        return response != null ? response.statusCode() : -1;
+    }
+
+    private void holdAndConfirm(Passenger passenger) throws InterruptedException {
+        String userId = passenger.nextUserId();
+        String seatNumber = pick(otherSeats);
+        if (hold(passenger, seatNumber, userId) != 200) {
+            return;
+        }
+        // About a third of passengers check in over the 25 kg allowance
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double baggage = random.nextInt(3) == 0 ? 26 + random.nextInt(10) : random.nextInt(26);
+        HttpResponse<byte[]> response = confirm(passenger, seatNumber, userId, baggage, null);
+        if (response != null && response.statusCode() == 402) {
+            String intentId = pay(passenger, seatNumber, userId, baggage);
+            if (intentId != null) {
+                confirm(passenger, seatNumber, userId, baggage, intentId);
+            }
+        }
+    }
+
+    /** Creates and executes a payment intent; returns its id if the charge succeeded. */
+    private String pay(Passenger passenger, String seatNumber, String userId, double baggage)
+            throws InterruptedException {
+        HttpResponse<byte[]> created = post(Endpoint.PAYMENT_INTENT, "/payments/intents", passenger,
+                Map.of("flightId", flightId, "seatNumber", seatNumber, "userId", userId, "baggageWeight", baggage),
+                "Idempotency-Key", userId + "-" + seatNumber);
+        String intentId = field(created, 201, "id");
+        if (intentId == null) {
+            return null;
+        }
+        HttpResponse<byte[]> executed = post(Endpoint.PAYMENT_EXECUTE, "/payments/intents/" + intentId + "/execute",
+                passenger, Map.of("userId", userId, "paymentToken", "tok_loadtest"));
+        return "SUCCEEDED".equals(field(executed, 200, "status")) ? intentId : null;
+    }
+
+    private HttpResponse<byte[]> confirm(Passenger passenger, String seatNumber, String userId,
+                                         double baggage, String paymentIntentId) throws InterruptedException {
+        Map<String, Object> body = new HashMap<>(Map.of(
+                "flightId", flightId,
+                "seatNumber", seatNumber,
+                "userId", userId,
+                "email", userId + "@loadtest.skyhigh.com",
+                "baggageWeight", baggage));
+        if (paymentIntentId != null) {
+            body.put("paymentIntentId", paymentIntentId);
+        }
+        return post(Endpoint.CONFIRM, "/bookings/confirm", passenger, body);
+    }
+
+    private String field(HttpResponse<byte[]> response, int expectedStatus, String name) {
+        if (response == null || response.statusCode() != expectedStatus) {
+            return null;
+        }
+        try {
+            JsonNode value = objectMapper.readTree(response.body()).get(name);
+            return value != null ? value.asText() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private HttpResponse<byte[]> post(Endpoint endpoint, String path, Passenger passenger, Map<String, Object> body,
+                                      String... headers) throws InterruptedException {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(api + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("X-Forwarded-For", passenger.clientIp)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json));
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return send(endpoint, request.build());
+    }
+
+    private HttpResponse<byte[]> send(Endpoint endpoint, HttpRequest request) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            report.record(endpoint, response.statusCode(), System.nanoTime() - start);
+            return response;
+        } catch (IOException e) {
+            report.recordTransportError();
+            return null;
+        }
+    }
+
+    private static String pick(List<String> seats) {
+        return seats.get(ThreadLocalRandom.current().nextInt(seats.size()));
+    }
+}
@@ -1,8 +1,7 @@
 package com.skyhigh.core.config;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.BucketConfiguration;
-import io.github.bucket4j.Refill;
+import com.skyhigh.core.service.SeatMapCache;
+import com.skyhigh.core.service.SeatMapStreamService;
 import io.github.bucket4j.distributed.proxy.ProxyManager;
 import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
 import io.lettuce.core.RedisClient;
@@ -16,6 +15,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 import java.time.Duration;
 
@@ -43,11 +44,17 @@ public class DistributedConfig {
                 .build();
     }
 
+    /**
+     * Fans committed seat-status deltas out to every node's seat-map snapshot
+     * and SSE subscribers.
+     */
     @Bean
-    public BucketConfiguration bucketConfiguration() {
-        return BucketConfiguration.builder()
-                .addLimit(Bandwidth.classic(50, Refill.intervally(25, Duration.ofSeconds(1))))
-                .build();
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       SeatMapStreamService seatMapStreamService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(seatMapStreamService, new ChannelTopic(SeatMapCache.DELTA_CHANNEL));
+        return container;
     }
 
     @Bean
@@ -0,0 +1,210 @@
+package com.skyhigh.core.config;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limiter with a per-node near-cache in front of the Redis buckets.
+ *
+ * Each client gets an in-memory Bucket4j bucket per RateLimitPolicy, with the
+ * same limits as the shared one, so a request is admitted or rejected
+ * in-process. Tokens
+ * admitted locally are counted and pushed to the client's Redis bucket every
+ * {@code sync-interval-ms}, all keys at once over the async proxy manager
+ * (requests pipelined on one connection). Consumption is forced
+ * (consumeIgnoringRateLimits): if the cluster as a whole has overdrawn the
+ * bucket, Redis answers with the time until it is back in credit and the key
+ * is blocked locally until then — no network hop for an abuser's requests.
+ *
+ * Cluster-wide limits are therefore approximate: between two syncs each node
+ * can admit up to one local bucket's worth. Keys idle for
+ * {@code idle-evict-ms} are dropped; past {@code max-clients} tracked keys,
+ * new keys go straight to Redis as with the near-cache disabled.
+ *
+ * Lookups on the request path go policy → client string with no key
+ * building; a bucket's Redis key bytes are computed once, when the client is
+ * first tracked. The Redis-only path keeps its bucket proxies in an LRU of
+ * {@code proxy-cache-size} entries.
+ */
+@Component
+@Slf4j
+public class NearCacheRateLimiter {
+
+    /** Bound for a Redis answer of "never" (more tokens forced than the bucket holds). */
+    private static final long MAX_BLOCK_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long SYNC_TIMEOUT_MILLIS = 1_000;
+
+    private final ProxyManager<byte[]> proxyManager;
+    private final boolean enabled;
+    private final long idleEvictNanos;
+    private final int maxClients;
+    private final Map<RateLimitPolicy, Map<String, ClientAllowance>> clients = new ConcurrentHashMap<>();
+    private final AtomicInteger trackedClients = new AtomicInteger();
+    private final Map<String, Bucket> remoteBuckets;
+
+    public NearCacheRateLimiter(ProxyManager<byte[]> proxyManager,
+                                @Value("${skyhigh.rate-limit.near-cache.enabled:false}") boolean enabled,
+                                @Value("${skyhigh.rate-limit.near-cache.idle-evict-ms:60000}") long idleEvictMillis,
+                                @Value("${skyhigh.rate-limit.near-cache.max-clients:100000}") int maxClients,
+                                @Value("${skyhigh.rate-limit.proxy-cache-size:10000}") int proxyCacheSize) {
+        this.proxyManager = proxyManager;
+        this.enabled = enabled;
+        this.idleEvictNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictMillis);
+        this.maxClients = maxClients;
+        this.remoteBuckets = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                return size() > proxyCacheSize;
+            }
+        });
+    }
+
+    /** Takes one token for the client under the policy; false means the request is over the limit. */
+    public boolean tryConsume(RateLimitPolicy policy, String clientId) {
+        if (!enabled) {
+            return consumeRemote(policy, clientId);
+        }
+        Map<String, ClientAllowance> policyClients = clients.get(policy);
+        if (policyClients == null) {
+            policyClients = clients.computeIfAbsent(policy, p -> new ConcurrentHashMap<>());
+        }
+        ClientAllowance client = policyClients.get(clientId);
+        if (client == null) {
+            if (trackedClients.get() >= maxClients) {
+                return consumeRemote(policy, clientId);
+            }
+            client = policyClients.computeIfAbsent(clientId, id -> {
+                trackedClients.incrementAndGet();
+                return new ClientAllowance(policy.bucketKey(id), localBucket(policy.configuration()));
+            });
+        }
+        long now = System.nanoTime();
+        client.lastSeenNanos = now;
+        if (now - client.blockedUntilNanos < 0) {
+            return false; // the cluster-wide bucket is overdrawn
+        }
+        if (!client.local.tryConsume(1)) {
+            return false; // over the limit on this node alone
+        }
+        client.unsynced.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Pushes locally admitted tokens to Redis and evicts idle keys. Failed
+     * pushes are retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${skyhigh.rate-limit.near-cache.sync-interval-ms:100}")
+    public void sync() {
+        if (!enabled || clients.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        List<CompletableFuture<?>> pushes = new ArrayList<>();
+        clients.forEach((policy, policyClients) -> {
+            for (Iterator<Map.Entry<String, ClientAllowance>> it = policyClients.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, ClientAllowance> entry = it.next();
+                ClientAllowance client = entry.getValue();
+                long consumed = client.unsynced.getAndSet(0);
+                if (consumed == 0) {
+                    if (now - client.lastSeenNanos > idleEvictNanos && now - client.blockedUntilNanos >= 0) {
+                        it.remove();
+                        trackedClients.decrementAndGet();
+                    }
+                    continue;
+                }
+                if (client.remote == null) {
+                    client.remote = proxyManager.asAsync().builder().build(client.bucketKey, policy.configuration());
+                }
+                long forced = Math.min(consumed, policy.capacity());
+                pushes.add(client.remote.consumeIgnoringRateLimits(forced)
+                        .thenAccept(penaltyNanos -> {
+                            if (penaltyNanos > 0) {
+                                long blockNanos = Math.min(penaltyNanos, MAX_BLOCK_NANOS);
+                                client.blockedUntilNanos = System.nanoTime() + blockNanos;
+                                log.warn("Rate limit {} exceeded cluster-wide for client: {} — blocked locally for {} ms",
+                                        policy, entry.getKey(), TimeUnit.NANOSECONDS.toMillis(blockNanos));
+                            }
+                        })
+                        .exceptionally(e -> {
+                            client.unsynced.addAndGet(forced);
+                            log.debug("Rate limit sync for {} ({}) failed: {}", entry.getKey(), policy, e.getMessage());
+                            return null;
+                        }));
+            }
+        });
+        if (pushes.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(pushes.toArray(CompletableFuture[]::new))
+                    .get(SYNC_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Rate limit sync of {} clients did not finish within {} ms", pushes.size(), SYNC_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Rate limit sync failed: {}", e.getMessage());
+        }
+    }
+
+    int trackedClients() {
+        return trackedClients.get();
+    }
+
+    /** One Redis round trip; the bucket proxy (and its key bytes) is reused while it stays in the LRU. */
+    private boolean consumeRemote(RateLimitPolicy policy, String clientId) {
+        String cacheKey = policy + ":" + clientId;
+        Bucket bucket = remoteBuckets.get(cacheKey);
+        if (bucket == null) {
+            bucket = proxyManager.builder().build(policy.bucketKey(clientId), policy.configuration());
+            remoteBuckets.put(cacheKey, bucket);
+        }
+        return bucket.tryConsume(1);
+    }
+
+    private static Bucket localBucket(BucketConfiguration configuration) {
+        LocalBucketBuilder builder = Bucket.builder();
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+
+    private static final class ClientAllowance {
+        final byte[] bucketKey;
+        final Bucket local;
+        final AtomicLong unsynced = new AtomicLong();
+        volatile long lastSeenNanos;
+        volatile long blockedUntilNanos;
+        /** Built on first sync; only the sync thread touches it. */
+        AsyncBucketProxy remote;
+
+        ClientAllowance(byte[] bucketKey, Bucket local) {
+            this.bucketKey = bucketKey;
+            this.local = local;
+            this.blockedUntilNanos = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.skyhigh.core.config;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Rate-limit policies per endpoint group and client tier.
+ *
+ * Each endpoint group (hold, confirm, waitlist, payment) has its own bucket
+ * limits. The API gateway tags requests from partner integrations with
+ * {@code X-Client-Tier: partner}; those get the group's limits multiplied by
+ * {@code partner-multiplier}. Any other or missing tier is standard.
+ *
+ * The header is only honoured with {@code trust-tier-header=true}: any caller
+ * can send it, so it is trusted only behind a gateway that authenticates the
+ * partner (API key or mTLS), strips the header from every incoming request
+ * and sets it itself. Otherwise every request gets the standard limits.
+ */
+@Component
+public class RateLimitPolicies implements MeterBinder {
+
+    public static final String TIER_HEADER = "X-Client-Tier";
+    static final String STANDARD_TIER = "standard";
+    static final String PARTNER_TIER = "partner";
+
+    private final List<EndpointPolicies> endpoints;
+
+    public RateLimitPolicies(@Value("${skyhigh.rate-limit.hold.capacity:50}") long holdCapacity,
+                             @Value("${skyhigh.rate-limit.hold.refill-per-second:25}") long holdRefill,
+                             @Value("${skyhigh.rate-limit.confirm.capacity:20}") long confirmCapacity,
+                             @Value("${skyhigh.rate-limit.confirm.refill-per-second:10}") long confirmRefill,
+                             @Value("${skyhigh.rate-limit.waitlist.capacity:10}") long waitlistCapacity,
+                             @Value("${skyhigh.rate-limit.waitlist.refill-per-second:5}") long waitlistRefill,
+                             @Value("${skyhigh.rate-limit.payment.capacity:20}") long paymentCapacity,
+                             @Value("${skyhigh.rate-limit.payment.refill-per-second:10}") long paymentRefill,
+                             @Value("${skyhigh.rate-limit.partner-multiplier:5}") long partnerMultiplier,
+                             @Value("${skyhigh.rate-limit.trust-tier-header:false}") boolean trustTierHeader) {
+        this.endpoints = List.of(
+                endpoint("hold", holdCapacity, holdRefill, partnerMultiplier, trustTierHeader,
+                        "/api/v1/seats/hold", "/api/v1/seats/hold-batch", "/api/v1/seats/allocate"),
+                endpoint("confirm", confirmCapacity, confirmRefill, partnerMultiplier, trustTierHeader,
+                        "/api/v1/bookings/confirm"),
+                endpoint("waitlist", waitlistCapacity, waitlistRefill, partnerMultiplier, trustTierHeader,
+                        "/api/v1/waitlist/join", "/api/v1/waitlist/join-bulk"),
+                endpoint("payment", paymentCapacity, paymentRefill, partnerMultiplier, trustTierHeader,
+                        "/api/v1/payments/intents", "/api/v1/payments/intents/*/execute"));
+    }
+
+    public List<EndpointPolicies> endpoints() {
+        return endpoints;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (EndpointPolicies endpoint : endpoints) {
+            for (RateLimitPolicy policy : List.of(endpoint.standard(), endpoint.partner())) {
+                FunctionCounter.builder("rate.limit.rejected", policy, RateLimitPolicy::rejectedCount)
+                        .description("Requests rejected by the rate limiter")
+                        .tag("endpoint", policy.endpoint())
+                        .tag("tier", policy.tier())
+                        .register(registry);
+            }
+        }
+    }
+
+    private static EndpointPolicies endpoint(String name, long capacity, long refillPerSecond,
+                                             long partnerMultiplier, boolean trustTierHeader, String... paths) {
+        return new EndpointPolicies(name, List.of(paths), trustTierHeader,
+                new RateLimitPolicy(name, STANDARD_TIER, bucket(capacity, refillPerSecond)),
+                new RateLimitPolicy(name, PARTNER_TIER,
+                        bucket(capacity * partnerMultiplier, refillPerSecond * partnerMultiplier)));
+    }
+
+    private static BucketConfiguration bucket(long capacity, long refillPerSecond) {
+        return BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(refillPerSecond, Duration.ofSeconds(1))))
+                .build();
+    }
+
+    /** The policies of one endpoint group and the paths they apply to. */
+    public record EndpointPolicies(String name, List<String> paths, boolean tierHeaderTrusted,
+                                   RateLimitPolicy standard, RateLimitPolicy partner) {
+
+        /**
+         * Policy for the request's tier header value; null or unknown means
+         * standard, and so does any value while the header is not trusted.
+         */
+        public RateLimitPolicy forTier(String tier) {
+            return tierHeaderTrusted && PARTNER_TIER.equalsIgnoreCase(tier) ? partner : standard;
+        }
+    }
+}
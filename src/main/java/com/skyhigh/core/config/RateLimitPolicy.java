@@ -0,0 +1,77 @@
+package com.skyhigh.core.config;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bucket limits for one endpoint group and client tier. Each client gets its
+ * own bucket per policy, under {@code rate_limit:<endpoint>:<tier>:<client>}.
+ *
+ * Compared by identity: policies are created once by RateLimitPolicies and
+ * used as map keys on the request path.
+ */
+public final class RateLimitPolicy {
+
+    private final String endpoint;
+    private final String tier;
+    private final String name;
+    private final BucketConfiguration configuration;
+    private final long capacity;
+    private final byte[] keyPrefix;
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimitPolicy(String endpoint, String tier, BucketConfiguration configuration) {
+        this.endpoint = endpoint;
+        this.tier = tier;
+        this.name = endpoint + "/" + tier;
+        this.configuration = configuration;
+        long min = Long.MAX_VALUE;
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            min = Math.min(min, bandwidth.getCapacity());
+        }
+        this.capacity = min;
+        this.keyPrefix = ("rate_limit:" + endpoint + ":" + tier + ":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    public String tier() {
+        return tier;
+    }
+
+    public BucketConfiguration configuration() {
+        return configuration;
+    }
+
+    /** Smallest bandwidth capacity — the most tokens the bucket can ever hold. */
+    public long capacity() {
+        return capacity;
+    }
+
+    /** Redis key of the client's bucket under this policy; built once per cached bucket. */
+    public byte[] bucketKey(String client) {
+        byte[] clientBytes = client.getBytes(StandardCharsets.UTF_8);
+        byte[] key = Arrays.copyOf(keyPrefix, keyPrefix.length + clientBytes.length);
+        System.arraycopy(clientBytes, 0, key, keyPrefix.length, clientBytes.length);
+        return key;
+    }
+
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
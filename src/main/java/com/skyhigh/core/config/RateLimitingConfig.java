@@ -1,8 +1,8 @@
 package com.skyhigh.core.config;
 
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.BucketConfiguration;
-import io.github.bucket4j.distributed.proxy.ProxyManager;
+import com.skyhigh.core.service.AbuseDetector;
+import com.skyhigh.core.service.RequestTracer;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -14,43 +14,95 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  * Distributed Rate Limiting using Bucket4j + Redis.
- * Enforces limits across multiple application replicas.
+ * Enforces limits across multiple application replicas; the decision itself
+ * is made in-process by NearCacheRateLimiter, which syncs with Redis in
+ * batches. Limits are per endpoint group and client tier (RateLimitPolicies).
  */
 @Configuration
 @RequiredArgsConstructor
 @Slf4j
 public class RateLimitingConfig implements WebMvcConfigurer {
 
-    private final ProxyManager<byte[]> proxyManager;
-    private final BucketConfiguration bucketConfiguration;
+    private final NearCacheRateLimiter rateLimiter;
+    private final RateLimitPolicies policies;
+    private final RequestTracer tracer;
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        registry.addInterceptor(new HandlerInterceptor() {
-            @Override
-            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-                String key = "rate_limit:" + getClientIp(request);
-
-                // Fetch the bucket state from Redis (atomic)
-                Bucket bucket = proxyManager.builder().build(key.getBytes(), bucketConfiguration);
-
-                if (bucket.tryConsume(1)) {
-                    return true;
-                } else {
-                    response.setStatus(429);
-                    response.setHeader("Retry-After", "1");
-                    log.warn("Rate limit exceeded for client: {}", key);
-                    return false;
-                }
-            }
-        }).addPathPatterns("/api/v1/seats/hold", "/api/v1/bookings/confirm", "/api/v1/waitlist/join");
+        // One interceptor per endpoint group: the policy is known from the path match
+        for (RateLimitPolicies.EndpointPolicies endpoint : policies.endpoints()) {
+            registry.addInterceptor(new RateLimitInterceptor(rateLimiter, endpoint, tracer))
+                    .addPathPatterns(endpoint.paths());
+        }
     }
 
-    private String getClientIp(HttpServletRequest request) {
+    /**
+     * First address of X-Forwarded-For, else the peer address. Scans the
+     * header in place instead of split/trim: no allocation when it holds a
+     * single address, one substring when it holds a proxy chain.
+     */
+    static String getClientIp(HttpServletRequest request) {
         String xf = request.getHeader("X-Forwarded-For");
-        if (xf != null && !xf.isBlank()) {
-            return xf.split(",")[0].trim();
+        if (xf != null) {
+            int end = xf.indexOf(',');
+            if (end < 0) {
+                end = xf.length();
+            }
+            int start = 0;
+            while (start < end && Character.isWhitespace(xf.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(xf.charAt(end - 1))) {
+                end--;
+            }
+            if (start < end) {
+                return start == 0 && end == xf.length() ? xf : xf.substring(start, end);
+            }
         }
         return request.getRemoteAddr();
     }
+
+    static final class RateLimitInterceptor implements HandlerInterceptor {
+
+        private final NearCacheRateLimiter rateLimiter;
+        private final RateLimitPolicies.EndpointPolicies endpoint;
+        private final RequestTracer tracer;
+        private final String traceName;
+
+        RateLimitInterceptor(NearCacheRateLimiter rateLimiter, RateLimitPolicies.EndpointPolicies endpoint,
+                             RequestTracer tracer) {
+            this.rateLimiter = rateLimiter;
+            this.endpoint = endpoint;
+            this.tracer = tracer;
+            this.traceName = "rate-limit." + endpoint.name();
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            // Async handlers (payment execute) are re-dispatched; charge them once
+            if (request.getDispatcherType() == DispatcherType.ASYNC) {
+                return true;
+            }
+            RequestTracer.Trace trace = tracer.start(traceName);
+            String clientIp = getClientIp(request);
+            // Lets SeatService's abuse checks count holds per IP as well as per user
+            request.setAttribute(AbuseDetector.CLIENT_IP_ATTRIBUTE, clientIp);
+            RateLimitPolicy policy = endpoint.forTier(request.getHeader(RateLimitPolicies.TIER_HEADER));
+            trace.tag("policy", policy);
+            trace.stage("resolve");
+
+            boolean allowed = rateLimiter.tryConsume(policy, clientIp);
+            trace.stage("consume");
+            trace.tag("allowed", allowed);
+            tracer.finish(trace, null);
+            if (allowed) {
+                return true;
+            }
+            policy.recordRejected();
+            response.setStatus(429);
+            response.setHeader("Retry-After", "1");
+            log.warn("Rate limit {} exceeded for client: {}", policy, clientIp);
+            return false;
+        }
+    }
 }
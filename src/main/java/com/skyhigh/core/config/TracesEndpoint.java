@@ -0,0 +1,30 @@
+package com.skyhigh.core.config;
+
+import com.skyhigh.core.service.RequestTracer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/traces?limit=N} — the N slowest sampled traces still
+ * in RequestTracer's ring buffer, with their per-stage breakdown.
+ */
+@Component
+@Endpoint(id = "traces")
+@RequiredArgsConstructor
+public class TracesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final RequestTracer tracer;
+
+    @ReadOperation
+    public List<Map<String, Object>> slowest(@Nullable Integer limit) {
+        return tracer.slowest(limit == null ? DEFAULT_LIMIT : limit);
+    }
+}
@@ -0,0 +1,114 @@
+package com.skyhigh.core.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Pinning diagnostics for virtual threads.
+ *
+ * Streams the JFR {@code jdk.VirtualThreadPinned} event in-process: a virtual
+ * thread that blocks while holding a monitor (synchronized) keeps its carrier
+ * thread, and a handful of those around JDBC calls can stall every request.
+ * Pinned parks that happened inside JDBC, the pool or the ORM are logged at
+ * WARN with the stack; the rest at DEBUG. Both are counted in
+ * {@code jvm.threads.virtual.pinned} (tag {@code jdbc}).
+ */
+@Component
+@ConditionalOnProperty(name = "skyhigh.virtual-threads.pinning-monitor.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final List<String> JDBC_PACKAGES = List.of(
+            "java.sql.", "javax.sql.", "org.postgresql.", "org.h2.", "com.zaxxer.hikari.", "org.hibernate.");
+    private static final int LOGGED_FRAMES = 15;
+
+    private final Counter pinnedInJdbc;
+    private final Counter pinnedElsewhere;
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${skyhigh.virtual-threads.pinning-monitor.threshold-ms:20}") long thresholdMillis) {
+        this.pinnedInJdbc = pinnedCounter(meterRegistry, "true");
+        this.pinnedElsewhere = pinnedCounter(meterRegistry, "false");
+        this.threshold = Duration.ofMillis(thresholdMillis);
+    }
+
+    @PostConstruct
+    void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Virtual thread pinning monitor started (threshold {}ms)", threshold.toMillis());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    void onPinned(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+        boolean inJdbc = frames.stream().anyMatch(VirtualThreadPinningMonitor::isJdbcFrame);
+        (inJdbc ? pinnedInJdbc : pinnedElsewhere).increment();
+
+        if (inJdbc) {
+            log.warn("Virtual thread pinned for {}ms during JDBC — a synchronized section encloses a blocking "
+                    + "DB call:{}", event.getDuration().toMillis(), format(frames));
+        } else if (log.isDebugEnabled()) {
+            log.debug("Virtual thread pinned for {}ms:{}", event.getDuration().toMillis(), format(frames));
+        }
+    }
+
+    private static boolean isJdbcFrame(RecordedFrame frame) {
+        if (!frame.isJavaFrame()) {
+            return false;
+        }
+        String type = frame.getMethod().getType().getName();
+        for (String prefix : JDBC_PACKAGES) {
+            if (type.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String format(List<RecordedFrame> frames) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < Math.min(frames.size(), LOGGED_FRAMES); i++) {
+            RecordedFrame frame = frames.get(i);
+            out.append("\n\tat ").append(frame.getMethod().getType().getName())
+                    .append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        if (frames.size() > LOGGED_FRAMES) {
+            out.append("\n\t... ").append(frames.size() - LOGGED_FRAMES).append(" more");
+        }
+        return out.toString();
+    }
+
+    private static Counter pinnedCounter(MeterRegistry meterRegistry, String jdbc) {
+        return Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads that blocked while pinned to their carrier")
+                .tag("jdbc", jdbc)
+                .register(meterRegistry);
+    }
+}
@@ -7,25 +7,38 @@ import com.skyhigh.core.service.*;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/v1")
 @RequiredArgsConstructor
 public class FlightController {
 
-    private final SeatRepository seatRepository;
     private final FlightRepository flightRepository;
     private final SeatService seatService;
     private final BaggageService baggageService;
     private final WaitlistService waitlistService;
     private final BookingRepository bookingRepository;
+    private final SeatMapCache seatMapCache;
+    private final SeatMapStreamService seatMapStreamService;
+    private final SeatAllocationService seatAllocationService;
+    private final PaymentIntentService paymentIntentService;
+
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
 
     // ─────────────────────────────────────────────────────────────
     // GET /api/v1/flights
@@ -37,15 +50,49 @@ public class FlightController {
 
     // ─────────────────────────────────────────────────────────────
     // GET /api/v1/flights/{flightId}/seats
+    // Served from the in-memory snapshot — no DB round trip on the hot path.
+    // The JSON is pre-rendered per revision; pollers sending If-None-Match
+    // with the current ETag get an empty 304.
     // ─────────────────────────────────────────────────────────────
     @GetMapping("/flights/{flightId}/seats")
-    public ResponseEntity<?> getSeatMap(@PathVariable Long flightId) {
-        List<Seat> seats = seatRepository.findByFlightId(flightId);
-        if (seats.isEmpty()) {
+    public ResponseEntity<?> getSeatMap(@PathVariable Long flightId, WebRequest webRequest) {
+        FlightSeatMap.RenderedSeatMap seatMap = seatMapCache.getRendered(flightId);
+        if (seatMap == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Flight not found or has no seats"));
         }
-        return ResponseEntity.ok(seats);
+        if (webRequest.checkNotModified(seatMap.etag())) {
+            return null; // 304 already written by checkNotModified
+        }
+        return ResponseEntity.ok()
+                .eTag(seatMap.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(seatMap.body());
+    }
+
+    // ─────────────────────────────────────────────────────────────
+    // GET /api/v1/flights/{flightId}/seats/stream
+    // Server-Sent Events: one "snapshot" event with the current ETag, then a
+    // "seat" event per committed status change — replaces seat-map polling.
+    // 503 + Retry-After when this node or flight is at its stream limit.
+    // ─────────────────────────────────────────────────────────────
+    @GetMapping("/flights/{flightId}/seats/stream")
+    public ResponseEntity<?> streamSeatMap(@PathVariable Long flightId) {
+        SseEmitter emitter;
+        try {
+            emitter = seatMapStreamService.subscribe(flightId);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "5")
+                    .body(Map.of("error", e.getMessage()));
+        }
+        if (emitter == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(emitter);
     }
 
     // ─────────────────────────────────────────────────────────────
@@ -68,22 +115,153 @@ public class FlightController {
         }
     }
 
+    // ─────────────────────────────────────────────────────────────
+    // POST /api/v1/seats/hold-batch
+    // All-or-nothing group hold: either every seat is held or none is.
+    // ─────────────────────────────────────────────────────────────
+    @PostMapping("/seats/hold-batch")
+    public ResponseEntity<?> holdSeats(@RequestBody @Valid BatchHoldRequest request) {
+        try {
+            String ref = seatService.holdSeats(request.flightId, request.seatNumbers, request.userId);
+            return ResponseEntity.ok(Map.of(
+                    "status", "HELD",
+                    "holdReference", ref,
+                    "seatNumbers", request.seatNumbers,
+                    "message", "Seats held for 120 seconds. Confirm each seat quickly!"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────────
+    // POST /api/v1/seats/allocate
+    // Finds and holds the best block of adjacent seats in one row.
+    // ─────────────────────────────────────────────────────────────
+    @PostMapping("/seats/allocate")
+    public ResponseEntity<?> allocateSeats(@RequestBody @Valid AllocateRequest request) {
+        try {
+            SeatAllocationService.Allocation allocation = seatAllocationService.allocateAdjacent(
+                    request.flightId, request.count, request.seatClass, request.userId);
+            return ResponseEntity.ok(Map.of(
+                    "status", "HELD",
+                    "holdReference", allocation.holdReference(),
+                    "seatNumbers", allocation.seatNumbers(),
+                    "message", "Seats held for 120 seconds. Confirm each seat quickly!"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────────
+    // POST /api/v1/payments/intents
+    // Prices excess baggage and creates a payment intent for one held seat.
+    // Retries with the same Idempotency-Key return the same intent.
+    // ─────────────────────────────────────────────────────────────
+    @PostMapping("/payments/intents")
+    public ResponseEntity<?> createPaymentIntent(
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestBody @Valid CreatePaymentIntentRequest request) {
+        if (idempotencyKey == null || idempotencyKey.isBlank() || idempotencyKey.length() > 128) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", IDEMPOTENCY_KEY + " header is required (at most 128 characters)"));
+        }
+        try {
+            PaymentIntentService.Created created = paymentIntentService.createIntent(idempotencyKey,
+                    request.flightId, request.seatNumber, request.userId, request.baggageWeight);
+            return ResponseEntity.status(created.replayed() ? HttpStatus.OK : HttpStatus.CREATED)
+                    .header("Idempotent-Replayed", String.valueOf(created.replayed()))
+                    .body(created.intent());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────────
+    // POST /api/v1/payments/intents/{intentId}/execute
+    // Charges the intent once; replays get the stored outcome without a
+    // gateway call. The request thread is released while the gateway works.
+    // ─────────────────────────────────────────────────────────────
+    @PostMapping("/payments/intents/{intentId}/execute")
+    public CompletableFuture<ResponseEntity<?>> executePaymentIntent(@PathVariable String intentId,
+                                                                     @RequestBody @Valid ExecutePaymentRequest request) {
+        try {
+            return paymentIntentService.executeIntent(intentId, request.userId, request.paymentToken)
+                    .handle((intent, error) -> error != null ? paymentFailure(error) : paymentOutcome(intent));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage())));
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────────
+    // GET /api/v1/payments/intents/{intentId}
+    // ─────────────────────────────────────────────────────────────
+    @GetMapping("/payments/intents/{intentId}")
+    public ResponseEntity<?> getPaymentIntent(@PathVariable String intentId) {
+        return paymentIntentService.findIntent(intentId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Payment intent not found")));
+    }
+
+    private static ResponseEntity<?> paymentOutcome(PaymentIntentService.PaymentIntent intent) {
+        return switch (intent.status()) {
+            case SUCCEEDED -> ResponseEntity.ok(intent);
+            case DECLINED -> ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(intent);
+            case PROCESSING, REQUIRES_PAYMENT -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header("Retry-After", "1")
+                    .body(intent);
+            case FAILED -> ResponseEntity.status("GATEWAY_TIMEOUT".equals(intent.failureReason())
+                            ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_GATEWAY)
+                    .body(intent);
+        };
+    }
+
+    private static ResponseEntity<?> paymentFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "1")
+                    .body(Map.of("error", cause.getMessage()));
+        }
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                .body(Map.of("error", "Payment failed"));
+    }
+
     // ─────────────────────────────────────────────────────────────
     // POST /api/v1/bookings/confirm
+    // An excess-baggage fee must be covered by a succeeded payment intent
+    // for this flight, seat and user.
     // ─────────────────────────────────────────────────────────────
     @PostMapping("/bookings/confirm")
     public ResponseEntity<?> confirmBooking(@RequestBody @Valid ConfirmRequest request) {
         // Baggage validation
         if (request.baggageWeight > 0) {
             BigDecimal fee = baggageService.calculateExcessBaggageFee(request.baggageWeight);
-            if (fee.compareTo(BigDecimal.ZERO) > 0 && !request.paymentProcessed) {
-                return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(Map.of(
-                        "error", "Excess baggage fee required before check-in",
-                        "feeAmount", fee,
-                        "currency", "USD",
-                        "hint", "Retry with paymentProcessed=true after paying"));
+            if (fee.compareTo(BigDecimal.ZERO) > 0) {
+                boolean paid = request.paymentIntentId != null && paymentIntentService.findIntent(request.paymentIntentId)
+                        .filter(intent -> intent.covers(request.flightId, request.seatNumber, request.userId, fee))
+                        .isPresent();
+                if (!paid) {
+                    return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(Map.of(
+                            "error", "Excess baggage fee required before check-in",
+                            "feeAmount", fee,
+                            "currency", "USD",
+                            "hint", "Create and execute a payment intent (POST /payments/intents), "
+                                    + "then retry with its paymentIntentId"));
+                }
             }
         }
+
         try {
             Booking booking = seatService.confirmBooking(
                     request.flightId, request.seatNumber, request.userId, request.email);
@@ -102,21 +280,53 @@ public class FlightController {
     // ─────────────────────────────────────────────────────────────
     @PostMapping("/waitlist/join")
     public ResponseEntity<?> joinWaitlist(@RequestBody @Valid JoinWaitlistRequest request) {
-        // FIX (HIGH): use atomic ZADD NX — eliminates TOCTOU race between ZRANK
-        // check and ZADD that allowed duplicate waitlist entries.
-        boolean added = waitlistService.joinWaitlistIfAbsent(request.flightId, request.userId);
-        if (!added) {
-            Long position = waitlistService.getWaitlistPosition(request.flightId, request.userId);
+        // Atomic ZADD NX + rank in one Redis round trip — no TOCTOU window
+        // between the duplicate check and the add, no separate position lookup.
+        WaitlistService.JoinResult joined = waitlistService.join(request.flightId, request.userId);
+        if (!joined.added()) {
             return ResponseEntity.badRequest()
-                    .body(Map.of("error", "Already on waitlist at position " + (position != null ? position + 1 : 1)));
+                    .body(Map.of("error", "Already on waitlist at position " + (joined.position() + 1)));
         }
-        Long newPosition = waitlistService.getWaitlistPosition(request.flightId, request.userId);
         return ResponseEntity.accepted().body(Map.of(
                 "status", "WAITLISTED",
-                "position", newPosition != null ? newPosition + 1 : 1,
+                "position", joined.position() + 1,
                 "message", "You will be notified when a seat becomes available"));
     }
 
+    // ─────────────────────────────────────────────────────────────
+    // POST /api/v1/waitlist/join-bulk
+    // Admits a list of users (e.g. a partner import) in one round trip.
+    // ─────────────────────────────────────────────────────────────
+    @PostMapping("/waitlist/join-bulk")
+    public ResponseEntity<?> joinWaitlistBulk(@RequestBody @Valid BulkJoinWaitlistRequest request) {
+        List<WaitlistService.JoinResult> joined = waitlistService.joinAll(request.flightId, request.userIds);
+        List<Map<String, Object>> entries = joined.stream()
+                .<Map<String, Object>>map(result -> Map.of(
+                        "userId", result.userId(),
+                        "status", result.added() ? "WAITLISTED" : "ALREADY_WAITLISTED",
+                        "position", result.position() + 1))
+                .toList();
+        return ResponseEntity.accepted().body(Map.of(
+                "admitted", joined.stream().filter(WaitlistService.JoinResult::added).count(),
+                "entries", entries));
+    }
+
+    // ─────────────────────────────────────────────────────────────
+    // GET /api/v1/waitlist/offers?userId=...
+    // Seats currently held for the user off a waitlist; confirm them through
+    // POST /bookings/confirm before expiresAt.
+    // ─────────────────────────────────────────────────────────────
+    @GetMapping("/waitlist/offers")
+    public ResponseEntity<?> getWaitlistOffers(@RequestParam String userId) {
+        List<Map<String, Object>> offers = waitlistService.offersFor(userId).stream()
+                .<Map<String, Object>>map(offer -> Map.of(
+                        "flightId", offer.flightId(),
+                        "seatNumber", offer.seatNumber(),
+                        "expiresAt", Instant.ofEpochMilli(offer.expiresAtMillis()).toString()))
+                .toList();
+        return ResponseEntity.ok(Map.of("offers", offers));
+    }
+
     // ─────────────────────────────────────────────────────────────
     // GET /api/v1/bookings/{reference}
     // ─────────────────────────────────────────────────────────────
@@ -150,6 +360,41 @@ public class FlightController {
         public String userId;
     }
 
+    public static class BatchHoldRequest {
+        @JsonProperty
+        @NotNull(message = "flightId is required")
+        @Positive(message = "flightId must be a positive number")
+        public Long flightId;
+
+        @JsonProperty
+        @NotEmpty(message = "seatNumbers is required")
+        @Size(max = 9, message = "at most 9 seats can be held at once")
+        public List<@NotBlank @Size(min = 2, max = 5, message = "seatNumber must be 2–5 characters (e.g. 1A, 20B)") String> seatNumbers;
+
+        @JsonProperty
+        @NotBlank(message = "userId is required")
+        public String userId;
+    }
+
+    public static class AllocateRequest {
+        @JsonProperty
+        @NotNull(message = "flightId is required")
+        @Positive(message = "flightId must be a positive number")
+        public Long flightId;
+
+        @JsonProperty
+        @Min(value = 1, message = "count must be at least 1")
+        @Max(value = 9, message = "at most 9 seats can be allocated at once")
+        public int count;
+
+        @JsonProperty
+        public Seat.SeatClass seatClass;
+
+        @JsonProperty
+        @NotBlank(message = "userId is required")
+        public String userId;
+    }
+
     public static class ConfirmRequest {
         @JsonProperty
         @NotNull(message = "flightId is required")
@@ -175,8 +420,42 @@ public class FlightController {
         @Max(value = 500, message = "baggageWeight cannot exceed 500 kg")
         public double baggageWeight;
 
+        /** Succeeded payment intent covering the excess-baggage fee, if one is due. */
         @JsonProperty
-        public boolean paymentProcessed;
+        @Size(max = 64)
+        public String paymentIntentId;
+    }
+
+    public static class CreatePaymentIntentRequest {
+        @JsonProperty
+        @NotNull(message = "flightId is required")
+        @Positive(message = "flightId must be a positive number")
+        public Long flightId;
+
+        @JsonProperty
+        @NotBlank(message = "seatNumber is required")
+        @Size(min = 2, max = 5)
+        public String seatNumber;
+
+        @JsonProperty
+        @NotBlank(message = "userId is required")
+        public String userId;
+
+        @JsonProperty
+        @Min(value = 0, message = "baggageWeight cannot be negative")
+        @Max(value = 500, message = "baggageWeight cannot exceed 500 kg")
+        public double baggageWeight;
+    }
+
+    public static class ExecutePaymentRequest {
+        @JsonProperty
+        @NotBlank(message = "userId is required")
+        public String userId;
+
+        @JsonProperty
+        @NotBlank(message = "paymentToken is required")
+        @Size(max = 128)
+        public String paymentToken;
     }
 
     public static class JoinWaitlistRequest {
@@ -189,4 +468,16 @@ public class FlightController {
         @NotBlank(message = "userId is required")
         public String userId;
     }
+
+    public static class BulkJoinWaitlistRequest {
+        @JsonProperty
+        @NotNull(message = "flightId is required")
+        @Positive(message = "flightId must be a positive number")
+        public Long flightId;
+
+        @JsonProperty
+        @NotEmpty(message = "userIds is required")
+        @Size(max = 1000, message = "at most 1000 users can be admitted at once")
+        public List<@NotBlank String> userIds;
+    }
 }
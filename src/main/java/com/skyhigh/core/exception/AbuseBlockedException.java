@@ -0,0 +1,20 @@
+package com.skyhigh.core.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a client has been blocked by the abuse detector; mapped to
+ * 429 Too Many Requests with a Retry-After header.
+ */
+@Getter
+public class AbuseBlockedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public AbuseBlockedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -2,6 +2,7 @@ package com.skyhigh.core.repository;
 
 import com.skyhigh.core.model.Flight;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -12,4 +13,7 @@ import java.util.Optional;
 public interface FlightRepository extends JpaRepository<Flight, Long> {
     Optional<Flight> findByFlightNumber(String flightNumber);
     List<Flight> findByDepartureTimeAfter(LocalDateTime now);
+
+    @Query("SELECT f.id FROM Flight f")
+    List<Long> findAllIds();
 }
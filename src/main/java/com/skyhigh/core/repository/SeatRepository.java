@@ -3,11 +3,13 @@ package com.skyhigh.core.repository;
 import com.skyhigh.core.model.Seat;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,4 +37,37 @@ public interface SeatRepository extends JpaRepository<Seat, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT s FROM Seat s WHERE s.flight.id = :flightId AND s.seatNumber = :seatNumber")
     Optional<Seat> findByFlightIdAndSeatNumberWithLock(Long flightId, String seatNumber);
+
+    /**
+     * Locks several seats of one flight for a group hold. Rows are locked in id
+     * order so two overlapping group holds can never deadlock each other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Seat s WHERE s.flight.id = :flightId AND s.seatNumber IN :seatNumbers ORDER BY s.id")
+    List<Seat> findByFlightIdAndSeatNumberInWithLock(Long flightId, Collection<String> seatNumbers);
+
+    /**
+     * Moves a set of already-locked seats to HELD in a single statement, bumping
+     * the version like a JPA update would.
+     */
+    @Modifying
+    @Query("UPDATE Seat s SET s.status = com.skyhigh.core.model.Seat$SeatStatus.HELD, "
+            + "s.version = s.version + 1, s.updatedAt = :now WHERE s.id IN :ids")
+    int markHeldByIds(Collection<Long> ids, LocalDateTime now);
+
+    /**
+     * Optimistic compare-and-set of a seat's status: succeeds only if nobody has
+     * touched the row since it was read. No row lock is taken, so readers and
+     * writers of other seats never queue behind it.
+     *
+     * Clears the persistence context so the stale entity is not flushed back
+     * over the new version.
+     *
+     * @return 1 on success, 0 if the version or status no longer match
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Seat s SET s.status = :newStatus, s.version = s.version + 1, s.updatedAt = :now "
+            + "WHERE s.id = :id AND s.version = :version AND s.status = :expectedStatus")
+    int compareAndSetStatus(Long id, Long version, Seat.SeatStatus expectedStatus,
+                            Seat.SeatStatus newStatus, LocalDateTime now);
 }
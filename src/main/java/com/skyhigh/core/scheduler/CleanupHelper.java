@@ -2,16 +2,30 @@ package com.skyhigh.core.scheduler;
 
 import com.skyhigh.core.model.Seat;
 import com.skyhigh.core.repository.SeatRepository;
-import com.skyhigh.core.service.WaitlistService;
+import com.skyhigh.core.service.HoldExpiryWheel;
+import com.skyhigh.core.service.RequestTracer;
+import com.skyhigh.core.service.SeatInventoryService;
+import com.skyhigh.core.service.SeatMapCache;
+import com.skyhigh.core.service.SeatRef;
+import com.skyhigh.core.service.SeatService;
+import com.skyhigh.core.service.WaitlistPromotionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
- * Helper for CleanupScheduler — processes a single zombie seat in its own
- * REQUIRES_NEW transaction so a failure on one seat cannot roll back others.
+ * Helper for CleanupScheduler and HoldExpiryListener — processes a single
+ * zombie seat in its own REQUIRES_NEW transaction so a failure on one seat
+ * cannot roll back others. Every release path ends in onSeatsReleased, which
+ * offers the freed seats to the waitlist. Single-seat releases are traced as
+ * {@code cleanup.release} (see RequestTracer); the commit of the
+ * REQUIRES_NEW transaction happens after the trace ends.
  *
  * Extracted from CleanupScheduler to avoid Spring circular-proxy issues with
  * self-injection.
@@ -22,29 +36,104 @@ import org.springframework.transaction.annotation.Transactional;
 public class CleanupHelper {
 
     private final SeatRepository seatRepository;
-    private final WaitlistService waitlistService;
+    private final SeatMapCache seatMapCache;
+    private final WaitlistPromotionService waitlistPromotion;
+    private final HoldExpiryWheel holdExpiry;
+    private final StringRedisTemplate redisTemplate;
+    private final RequestTracer tracer;
 
+    /** @return true if the seat was moved from HELD to AVAILABLE */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void cleanupSingleSeat(Seat seat) {
-        // Re-fetch inside the new transaction to get latest committed state
-        Seat freshSeat = seatRepository.findById(seat.getId()).orElse(null);
-        if (freshSeat == null || freshSeat.getStatus() != Seat.SeatStatus.HELD) {
+    public boolean cleanupSingleSeat(Seat seat) {
+        RequestTracer.Trace trace = tracer.start("cleanup.release");
+        trace.tag("seatId", seat.getId());
+        try {
+            // Re-fetch inside the new transaction to get latest committed state
+            Optional<Seat> fresh = seatRepository.findById(seat.getId());
+            trace.stage("db.read");
+            boolean released = fresh.map(freshSeat -> releaseIfExpired(freshSeat, trace)).orElse(false);
+            tracer.finish(trace, null);
+            return released;
+        } catch (RuntimeException e) {
+            tracer.finish(trace, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases a seat whose hold key has just expired (Redis expired-key
+     * event). Takes the row lock, so a concurrent re-hold either lands before
+     * the check — and its live key keeps the seat — or waits for this release
+     * and then marks it HELD again.
+     *
+     * @return true if the seat was moved from HELD to AVAILABLE
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean releaseExpiredHold(Long flightId, String seatNumber) {
+        RequestTracer.Trace trace = tracer.start("cleanup.release");
+        trace.tag("flight", flightId);
+        trace.tag("seat", seatNumber);
+        try {
+            Optional<Seat> locked = seatRepository.findByFlightIdAndSeatNumberWithLock(flightId, seatNumber);
+            trace.stage("db.lock");
+            boolean released = locked.map(freshSeat -> releaseIfExpired(freshSeat, trace)).orElse(false);
+            tracer.finish(trace, null);
+            return released;
+        } catch (RuntimeException e) {
+            tracer.finish(trace, e);
+            throw e;
+        }
+    }
+
+    private boolean releaseIfExpired(Seat freshSeat, RequestTracer.Trace trace) {
+        if (freshSeat.getStatus() != Seat.SeatStatus.HELD) {
             // Already handled by another process (e.g. user confirmed it)
-            return;
+            return false;
+        }
+        boolean liveHold = Boolean.TRUE.equals(redisTemplate.hasKey(
+                SeatService.buildHoldKey(freshSeat.getFlight().getId(), freshSeat.getSeatNumber())));
+        trace.stage("redis.check");
+        if (liveHold) {
+            // A live hold exists — the zombie row was re-claimed via the atomic
+            // hold path and its deferred DB write has not landed yet
+            return false;
         }
 
         log.info("Releasing zombie hold on seat {} (flight {})",
                 freshSeat.getSeatNumber(), freshSeat.getFlight().getId());
         freshSeat.setStatus(Seat.SeatStatus.AVAILABLE);
         seatRepository.save(freshSeat);
+        seatMapCache.markAvailable(freshSeat.getFlight().getId(), freshSeat.getSeatNumber());
+        trace.stage("seat.update");
+
+        // Offer the seat to the waitlist AFTER the DB is successfully updated
+        // within this transaction. The offer's deferred HELD write waits on this
+        // transaction's row lock, so it lands after the release.
+        onSeatReleased(freshSeat.getFlight().getId(), freshSeat.getSeatNumber());
+        trace.stage("waitlist.offer");
+        return true;
+    }
+
+    /**
+     * Post-release steps of the per-seat release paths: the seat's DB row is
+     * already AVAILABLE.
+     */
+    public void onSeatReleased(Long flightId, String seatNumber) {
+        onSeatsReleased(List.of(new SeatRef(flightId, seatNumber)));
+    }
 
-        // Pop waitlist AFTER the DB is successfully updated within this transaction.
-        // The REQUIRES_NEW transaction commits before returning, so the seat is
-        // safely AVAILABLE before a waitlist user is popped.
-        String nextUser = waitlistService.popNextUser(freshSeat.getFlight().getId());
-        if (nextUser != null) {
-            log.info("Waitlist: Seat {} freed → User {} (notification pending v1.1)",
-                    freshSeat.getSeatNumber(), nextUser);
+    /**
+     * onSeatReleased for a whole batch: the seats are offered to their
+     * flights' waitlists in one round trip, and each offer's expiry is
+     * tracked like any hold.
+     *
+     * @return the number of waitlisted users offered a seat
+     */
+    public int onSeatsReleased(List<SeatRef> seats) {
+        List<SeatInventoryService.Offer> offers = waitlistPromotion.promote(seats);
+        for (SeatInventoryService.Offer offer : offers) {
+            holdExpiry.track(offer.seat().flightId(), offer.seat().seatNumber());
         }
+        return offers.size();
     }
 }
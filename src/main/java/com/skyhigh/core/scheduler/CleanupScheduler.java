@@ -2,12 +2,19 @@ package com.skyhigh.core.scheduler;
 
 import com.skyhigh.core.model.Seat;
 import com.skyhigh.core.repository.SeatRepository;
-import lombok.RequiredArgsConstructor;
+import com.skyhigh.core.service.SeatInventoryService;
+import com.skyhigh.core.service.SeatRef;
+import com.skyhigh.core.service.SeatStatusWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -15,37 +22,219 @@ import java.util.List;
  * Zombie Hold Cleanup Job.
  *
  * Safety net for HELD seats whose Redis key expired but DB status was never
- * updated. Runs every 60 seconds. Uses 125s cutoff (120s TTL + 5s buffer).
+ * updated. Uses 125s cutoff (120s TTL + 5s buffer).
+ *
+ * With expiry events enabled (HoldExpiryListener) seats are released as their
+ * hold key expires and this job only reconciles missed events, so it runs
+ * every {@code skyhigh.seats.cleanup.sweep-interval-ms} (10 minutes in
+ * application.properties; 60 seconds if unset).
+ *
+ * Both set-based modes release a chunk of seats with one JDBC statement or
+ * batch, then offer the whole chunk to the waitlist in one pipelined Redis
+ * round trip — instead of a REQUIRES_NEW transaction, re-fetch and save per
+ * seat:
+ * <ul>
+ *   <li>In write-behind mode (atomic holds, the default) every HELD row was
+ *       written by SeatStatusWriter and recorded in the Redis hold log, so the
+ *       job reconciles that log a chunk at a time instead of scanning the
+ *       seats table.</li>
+ *   <li>Otherwise, with {@code skyhigh.seats.cleanup.bulk-enabled}, stale
+ *       holds are released with one UPDATE ... RETURNING per chunk.</li>
+ * </ul>
+ * A run stops after RUN_BUDGET so it always finishes inside lockAtMostFor;
+ * whatever is left goes to the next run. Each chunk is recorded in the
+ * {@code seat.cleanup.batch} timer and {@code seat.cleanup.batch.released} /
+ * {@code seat.cleanup.batch.promoted} summaries.
+ *
+ * Every run, whatever the mode, records the holds it released in the
+ * {@code seat.cleanup.released} summary (published as a histogram).
  *
  * @SchedulerLock ensures only one node in a cluster runs this at a time.
  */
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class CleanupScheduler {
 
+    /** Well inside lockAtMostFor (50s), so a slow run never overlaps the next node's. */
+    private static final Duration RUN_BUDGET = Duration.ofSeconds(40);
+
     private final SeatRepository seatRepository;
     private final CleanupHelper cleanupHelper;
+    private final SeatInventoryService seatInventory;
+    private final SeatStatusWriter seatStatusWriter;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary releasedPerRun;
+    private final Timer batchTimer;
+    private final DistributionSummary releasedPerBatch;
+    private final DistributionSummary promotedPerBatch;
+
+    @Value("${skyhigh.seats.atomic-hold-enabled:false}")
+    private boolean writeBehindEnabled;
 
-    @Scheduled(fixedRate = 60_000)
+    @Value("${skyhigh.seats.write-behind.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${skyhigh.seats.cleanup.bulk-enabled:false}")
+    private boolean bulkEnabled;
+
+    @Value("${skyhigh.seats.cleanup.bulk-chunk-size:1000}")
+    private int bulkChunkSize = 1000;
+
+    public CleanupScheduler(SeatRepository seatRepository,
+                            CleanupHelper cleanupHelper,
+                            SeatInventoryService seatInventory,
+                            SeatStatusWriter seatStatusWriter,
+                            MeterRegistry meterRegistry) {
+        this.seatRepository = seatRepository;
+        this.cleanupHelper = cleanupHelper;
+        this.seatInventory = seatInventory;
+        this.seatStatusWriter = seatStatusWriter;
+        this.meterRegistry = meterRegistry;
+        this.releasedPerRun = DistributionSummary.builder("seat.cleanup.released")
+                .description("Zombie holds released per cleanup run")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("seat.cleanup.batch")
+                .description("Duration of one set-based zombie-cleanup chunk (DB + Redis)")
+                .register(meterRegistry);
+        this.releasedPerBatch = DistributionSummary.builder("seat.cleanup.batch.released")
+                .description("Seats released per set-based zombie-cleanup chunk")
+                .register(meterRegistry);
+        this.promotedPerBatch = DistributionSummary.builder("seat.cleanup.batch.promoted")
+                .description("Waitlisted users promoted per set-based zombie-cleanup chunk")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedRateString = "${skyhigh.seats.cleanup.sweep-interval-ms:60000}")
     @SchedulerLock(name = "CleanupZombieHolds", lockAtLeastFor = "30s", lockAtMostFor = "50s")
     public void cleanupExpiredHolds() {
-        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(125);
+        int released;
+        if (writeBehindEnabled) {
+            released = reconcileHoldLog();
+        } else if (bulkEnabled) {
+            released = releaseStaleHolds(LocalDateTime.now().minusSeconds(125));
+        } else {
+            released = releaseOneByOne(LocalDateTime.now().minusSeconds(125));
+        }
+        releasedPerRun.record(released);
+    }
+
+    private int releaseOneByOne(LocalDateTime cutoff) {
         List<Seat> zombieSeats = seatRepository.findByStatusAndUpdatedAtBefore(Seat.SeatStatus.HELD, cutoff);
 
         if (zombieSeats.isEmpty()) {
-            return;
+            return 0;
         }
 
         log.warn("Found {} zombie holds to release", zombieSeats.size());
 
+        int released = 0;
         for (Seat seat : zombieSeats) {
             try {
-                cleanupHelper.cleanupSingleSeat(seat);
+                if (cleanupHelper.cleanupSingleSeat(seat)) {
+                    released++;
+                }
             } catch (Exception e) {
                 log.error("Failed to cleanup zombie hold on seat {} (flight {}): {}",
                         seat.getSeatNumber(), seat.getFlight().getId(), e.getMessage(), e);
             }
         }
+        return released;
+    }
+
+    /**
+     * Set-based sweep: releases HELD rows older than the cutoff a chunk at a
+     * time, each chunk in its own transaction.
+     *
+     * @return seats released
+     */
+    private int releaseStaleHolds(LocalDateTime cutoff) {
+        long deadline = System.nanoTime() + RUN_BUDGET.toNanos();
+
+        int total = 0;
+        List<SeatRef> released;
+        do {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                released = seatStatusWriter.releaseStaleHolds(cutoff, bulkChunkSize);
+            } catch (Exception e) {
+                log.error("Bulk release of zombie holds failed: {}", e.getMessage(), e);
+                return total;
+            }
+            int promoted = 0;
+            if (!released.isEmpty()) {
+                try {
+                    promoted = cleanupHelper.onSeatsReleased(released);
+                } catch (Exception e) {
+                    // The rows are AVAILABLE; the Redis inventory re-syncs when its hash expires
+                    log.error("Post-release step failed for {} seats: {}", released.size(), e.getMessage(), e);
+                }
+            }
+            sample.stop(batchTimer);
+            releasedPerBatch.record(released.size());
+            promotedPerBatch.record(promoted);
+            total += released.size();
+        } while (released.size() == bulkChunkSize && System.nanoTime() < deadline);
+
+        if (total > 0) {
+            log.warn("Released {} zombie holds in bulk", total);
+        }
+        if (released.size() == bulkChunkSize) {
+            log.warn("Zombie cleanup hit its {}s budget — the rest is left to the next run", RUN_BUDGET.toSeconds());
+        }
+        return total;
+    }
+
+    /**
+     * Releases logged holds whose Redis key has expired, one JDBC batch and
+     * one pipelined waitlist round trip per chunk.
+     * Rows updated since the chunk was polled belong to a new hold and are
+     * skipped.
+     *
+     * @return seats released
+     */
+    private int reconcileHoldLog() {
+        long deadline = System.nanoTime() + RUN_BUDGET.toNanos();
+        int total = 0;
+        List<SeatRef> expired;
+        do {
+            // Taken before the expiry check: a seat re-held after it has a newer row and is left alone
+            LocalDateTime polledAt = LocalDateTime.now();
+            expired = seatInventory.pollExpiredHolds(batchSize);
+            if (expired.isEmpty()) {
+                break;
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            List<SeatRef> released;
+            try {
+                released = seatStatusWriter.releaseHolds(expired, polledAt);
+            } catch (Exception e) {
+                // Put them back so the next run retries
+                seatInventory.logHolds(expired);
+                log.error("Failed to release {} expired holds: {}", expired.size(), e.getMessage(), e);
+                return total;
+            }
+            int promoted = 0;
+            if (!released.isEmpty()) {
+                try {
+                    promoted = cleanupHelper.onSeatsReleased(released);
+                } catch (Exception e) {
+                    log.error("Post-release step failed for {} seats: {}", released.size(), e.getMessage(), e);
+                }
+            }
+            sample.stop(batchTimer);
+            releasedPerBatch.record(released.size());
+            promotedPerBatch.record(promoted);
+            total += released.size();
+        } while (expired.size() == batchSize && System.nanoTime() < deadline);
+
+        if (total > 0) {
+            log.warn("Released {} expired holds from the hold log", total);
+        }
+        if (expired.size() == batchSize) {
+            log.warn("Hold-log reconciliation hit its {}s budget — the rest is left to the next run",
+                    RUN_BUDGET.toSeconds());
+        }
+        return total;
     }
 }
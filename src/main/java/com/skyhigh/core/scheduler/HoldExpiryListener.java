@@ -0,0 +1,123 @@
+package com.skyhigh.core.scheduler;
+
+import com.skyhigh.core.service.SeatRef;
+import com.skyhigh.core.service.SeatService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.KeyExpirationEventMessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Event-driven hold expiry.
+ *
+ * Subscribes to Redis expired-key events and releases a seat as soon as its
+ * {@code seat_hold:{flightId}:{seatNumber}} key expires, instead of waiting for
+ * the next CleanupScheduler run. Every node receives every event, so each
+ * one first claims the event with a SET NX on
+ * {@code seat_hold_expired:{flightId}:{seatNumber}}; only the winner runs the
+ * release. The release itself still takes the seat's row lock and re-checks
+ * status and hold key, so a lost claim key can never free a seat twice.
+ *
+ * Redis does not guarantee delivery (pub/sub is fire-and-forget and a node may
+ * be down), so CleanupScheduler still runs as a slow reconciliation sweep.
+ */
+@Component
+@ConditionalOnProperty(name = "skyhigh.seats.expiry-events.enabled", havingValue = "true")
+@Slf4j
+public class HoldExpiryListener extends KeyExpirationEventMessageListener {
+
+    private static final String NOTIFY_CONFIG = "notify-keyspace-events";
+    private static final String CLAIM_KEY_PREFIX = "seat_hold_expired:";
+    // Outlives the delivery skew between nodes, well short of the next hold's TTL
+    private static final Duration CLAIM_TTL = Duration.ofSeconds(60);
+
+    private final CleanupHelper cleanupHelper;
+    private final StringRedisTemplate redisTemplate;
+
+    public HoldExpiryListener(RedisMessageListenerContainer listenerContainer,
+                              CleanupHelper cleanupHelper,
+                              StringRedisTemplate redisTemplate) {
+        super(listenerContainer);
+        this.cleanupHelper = cleanupHelper;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Runs once the bean is fully constructed (InitializingBean), so the
+     * container never sees a half-built listener.
+     */
+    @Override
+    public void init() {
+        // Configured by enableExpiredEvents(), merging with any flags already set
+        setKeyspaceNotificationsConfigParameter("");
+        enableExpiredEvents();
+        super.init();
+    }
+
+    @Override
+    protected void doHandleMessage(Message message) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        SeatRef seat = SeatService.parseHoldKey(key);
+        if (seat == null) {
+            return;
+        }
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(claimKey(seat), "1", CLAIM_TTL))) {
+                return; // another node is handling this expiry
+            }
+            if (cleanupHelper.releaseExpiredHold(seat.flightId(), seat.seatNumber())) {
+                log.info("Hold on seat {} (flight {}) expired — seat released", seat.seatNumber(), seat.flightId());
+            }
+        } catch (Exception e) {
+            // The reconciliation sweep picks it up later
+            log.error("Failed to release expired hold {}: {}", key, e.getMessage(), e);
+        }
+    }
+
+    static String claimKey(SeatRef seat) {
+        return CLAIM_KEY_PREFIX + "{" + seat.flightId() + "}:" + seat.seatNumber();
+    }
+
+    /**
+     * Turns on expired-key events (E + x) unless they already are. Managed
+     * Redis services often forbid CONFIG; there the flags must be set in the
+     * server configuration instead.
+     */
+    private void enableExpiredEvents() {
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                String current = currentFlags(connection);
+                String required = (current.contains("E") ? "" : "E")
+                        + (current.contains("x") || current.contains("A") ? "" : "x");
+                if (!required.isEmpty()) {
+                    connection.serverCommands().setConfig(NOTIFY_CONFIG, current + required);
+                    log.info("Enabled Redis {}={}", NOTIFY_CONFIG, current + required);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Could not enable Redis expired-key events ({}); set {} to include 'Ex' on the server, "
+                    + "otherwise expired holds are only released by the reconciliation sweep",
+                    e.getMessage(), NOTIFY_CONFIG);
+        }
+    }
+
+    private static String currentFlags(RedisConnection connection) {
+        Properties config = connection.serverCommands().getConfig(NOTIFY_CONFIG);
+        if (config == null) {
+            return "";
+        }
+        // Lettuce returns the value under the parameter name
+        return config.getProperty(NOTIFY_CONFIG, "");
+    }
+}
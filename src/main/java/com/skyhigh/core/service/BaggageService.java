@@ -1,15 +1,43 @@
 package com.skyhigh.core.service;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Service
+@Slf4j
 public class BaggageService {
 
     private static final double MAX_WEIGHT_KG = 25.0;
     private static final BigDecimal EXCESS_FEE_PER_KG = new BigDecimal("15.00");
-    private final Random random = new Random();
+
+    private final Executor gateway;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final long timeoutMillis;
+
+    public BaggageService() {
+        this(200, 2_000, 5_000);
+    }
+
+    @Autowired
+    public BaggageService(@Value("${skyhigh.payment.gateway-latency-ms:200}") long gatewayLatencyMillis,
+                          @Value("${skyhigh.payment.timeout-ms:2000}") long timeoutMillis,
+                          @Value("${skyhigh.payment.max-in-flight:5000}") int maxInFlight) {
+        // Mock gateway: the reply arrives after a delay, without any thread waiting for it
+        this.gateway = CompletableFuture.delayedExecutor(gatewayLatencyMillis, TimeUnit.MILLISECONDS);
+        this.timeoutMillis = timeoutMillis;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
 
     public BigDecimal calculateExcessBaggageFee(double weight) {
         if (weight <= MAX_WEIGHT_KG) {
@@ -19,15 +47,37 @@ public class BaggageService {
         return EXCESS_FEE_PER_KG.multiply(BigDecimal.valueOf(excess));
     }
 
+    /**
+     * Blocking variant, for callers already on a virtual thread.
+     * Returns false on decline, timeout or a full bulkhead.
+     */
     public boolean processPayment(String paymentToken, BigDecimal amount) {
-        // Mock payment processing simulation
-        // 80% success rate
-        try {
-            Thread.sleep(200); // Simulate network latency
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        return processPaymentAsync(paymentToken, amount)
+                .handle((approved, error) -> error == null && approved)
+                .join();
+    }
+
+    /**
+     * Charges the payment without tying up a thread while the gateway works.
+     *
+     * Bulkhead: at most {@code max-in-flight} payments are outstanding; beyond
+     * that the future fails immediately with RejectedExecutionException.
+     * Timeout: the future fails with TimeoutException after {@code timeout-ms}.
+     *
+     * @return completes with true if approved, false if declined (mock: 80% approval)
+     */
+    public CompletableFuture<Boolean> processPaymentAsync(String paymentToken, BigDecimal amount) {
+        if (!inFlight.tryAcquire()) {
+            log.warn("Payment bulkhead full ({} in flight) — rejecting payment", maxInFlight);
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Payment gateway is saturated, retry shortly"));
         }
+        return CompletableFuture.supplyAsync(() -> ThreadLocalRandom.current().nextInt(100) < 80, gateway)
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((approved, error) -> inFlight.release());
+    }
 
-        return random.nextInt(100) < 80;
+    public int paymentsInFlight() {
+        return maxInFlight - inFlight.availablePermits();
     }
 }
@@ -0,0 +1,90 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.model.Seat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cabin layout of one flight, derived from seat numbers ("12C" = row 12,
+ * column C). Computed once per snapshot and immutable.
+ *
+ * Columns are letter positions (A = bit 0 … Z = bit 25), so a row's seats fit
+ * in an int bitmask and adjacency is simply consecutive bits. Aisles are not
+ * modelled — the seats table carries no layout beyond the seat number.
+ * Seat numbers that do not parse are left out of the geometry (they can still
+ * be held individually).
+ */
+final class CabinGeometry {
+
+    private static final Pattern SEAT_NUMBER = Pattern.compile("(\\d{1,3})([A-Z])");
+    private static final int CLASS_COUNT = Seat.SeatClass.values().length;
+
+    private final int[] rowNumbers;
+    private final int[] rowOf;
+    private final int[] columnOf;
+    private final int[][] seatAt;
+    private final int[][] classMask;
+
+    private CabinGeometry(int[] rowNumbers, int seatCount) {
+        this.rowNumbers = rowNumbers;
+        this.rowOf = new int[seatCount];
+        this.columnOf = new int[seatCount];
+        this.seatAt = new int[rowNumbers.length][26];
+        this.classMask = new int[CLASS_COUNT][rowNumbers.length];
+        Arrays.fill(rowOf, -1);
+        for (int[] row : seatAt) {
+            Arrays.fill(row, -1);
+        }
+    }
+
+    static CabinGeometry of(List<Seat> seats) {
+        TreeSet<Integer> rows = new TreeSet<>();
+        for (Seat seat : seats) {
+            Matcher m = SEAT_NUMBER.matcher(seat.getSeatNumber());
+            if (m.matches()) {
+                rows.add(Integer.parseInt(m.group(1)));
+            }
+        }
+        int[] rowNumbers = rows.stream().mapToInt(Integer::intValue).toArray();
+        CabinGeometry geometry = new CabinGeometry(rowNumbers, seats.size());
+        for (int i = 0; i < seats.size(); i++) {
+            Matcher m = SEAT_NUMBER.matcher(seats.get(i).getSeatNumber());
+            if (!m.matches()) {
+                continue;
+            }
+            int row = Arrays.binarySearch(rowNumbers, Integer.parseInt(m.group(1)));
+            int column = m.group(2).charAt(0) - 'A';
+            geometry.rowOf[i] = row;
+            geometry.columnOf[i] = column;
+            geometry.seatAt[row][column] = i;
+            geometry.classMask[seats.get(i).getSeatClass().ordinal()][row] |= 1 << column;
+        }
+        return geometry;
+    }
+
+    int rowCount() {
+        return rowNumbers.length;
+    }
+
+    /** Row index of a seat, or -1 if its number did not parse. */
+    int rowOf(int seatIndex) {
+        return rowOf[seatIndex];
+    }
+
+    int columnOf(int seatIndex) {
+        return columnOf[seatIndex];
+    }
+
+    int seatAt(int row, int column) {
+        return seatAt[row][column];
+    }
+
+    /** Bitmask of the columns in a row that belong to a seat class. */
+    int classMask(Seat.SeatClass seatClass, int row) {
+        return classMask[seatClass.ordinal()][row];
+    }
+}
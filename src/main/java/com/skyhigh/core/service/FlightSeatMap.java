@@ -0,0 +1,275 @@
+package com.skyhigh.core.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skyhigh.core.model.Seat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact, in-memory seat map of a single flight.
+ *
+ * Seats are addressed by a dense index (ordered by seat id). Per-seat state is
+ * kept in primitive arrays and bitsets instead of JPA entities, so one snapshot
+ * of a 300-seat aircraft costs a few kilobytes and no Hibernate proxies.
+ *
+ * Every seat carries the value of its {@code Seat.version} column, bumped
+ * locally on each status change. The map revision (the sum of all seat
+ * versions) changes whenever this snapshot does, so it tells when to render
+ * again. It is node-local: a sum can match across different maps, and local
+ * versions can drift from the DB. The ETag is therefore a hash of the
+ * rendered body — two nodes give the same ETag only for the same bytes.
+ *
+ * For adjacent-seat allocation the snapshot also keeps a free-seat bitmask per
+ * cabin row (see CabinGeometry), maintained on every status change, so a
+ * best-fit block search is O(rows) rather than a rescan of all seats.
+ *
+ * All mutating and reading methods synchronize on the snapshot itself; the
+ * critical sections are a handful of array writes, so contention is negligible.
+ */
+public final class FlightSeatMap {
+
+    private static final Seat.SeatClass[] CLASSES = Seat.SeatClass.values();
+
+    private final Long flightId;
+    private final long[] seatIds;
+    private final String[] seatNumbers;
+    private final byte[] seatClasses;
+    private final long[] versions;
+    private final BitSet held;
+    private final BitSet confirmed;
+    private final Map<String, Integer> indexBySeatNumber;
+    private final CabinGeometry geometry;
+    private final int[] freeMask;
+    private final long loadedAtMillis;
+    private long revision;
+    private RenderedSeatMap rendered;
+
+    private FlightSeatMap(Long flightId, int size, CabinGeometry geometry, long loadedAtMillis) {
+        this.flightId = flightId;
+        this.seatIds = new long[size];
+        this.seatNumbers = new String[size];
+        this.seatClasses = new byte[size];
+        this.versions = new long[size];
+        this.held = new BitSet(size);
+        this.confirmed = new BitSet(size);
+        this.indexBySeatNumber = new HashMap<>(size * 2);
+        this.geometry = geometry;
+        this.freeMask = new int[geometry.rowCount()];
+        this.loadedAtMillis = loadedAtMillis;
+    }
+
+    /**
+     * Builds a snapshot from the seat rows of one flight. The caller is expected
+     * to pass them in a stable order (by id) so every node produces the same
+     * seat indexes.
+     */
+    public static FlightSeatMap of(Long flightId, List<Seat> seats) {
+        FlightSeatMap map = new FlightSeatMap(flightId, seats.size(), CabinGeometry.of(seats),
+                System.currentTimeMillis());
+        for (int i = 0; i < seats.size(); i++) {
+            Seat seat = seats.get(i);
+            map.seatIds[i] = seat.getId() != null ? seat.getId() : 0L;
+            map.seatNumbers[i] = seat.getSeatNumber();
+            map.seatClasses[i] = (byte) seat.getSeatClass().ordinal();
+            map.versions[i] = seat.getVersion() != null ? seat.getVersion() : 0L;
+            map.revision += map.versions[i];
+            map.indexBySeatNumber.put(seat.getSeatNumber(), i);
+            map.applyStatus(i, seat.getStatus());
+        }
+        return map;
+    }
+
+    public Long getFlightId() {
+        return flightId;
+    }
+
+    public int size() {
+        return seatIds.length;
+    }
+
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Returns the dense index of a seat, or -1 if the flight has no such seat.
+     */
+    public int indexOf(String seatNumber) {
+        Integer index = indexBySeatNumber.get(seatNumber);
+        return index != null ? index : -1;
+    }
+
+    public synchronized Seat.SeatStatus statusAt(int index) {
+        if (confirmed.get(index)) {
+            return Seat.SeatStatus.CONFIRMED;
+        }
+        return held.get(index) ? Seat.SeatStatus.HELD : Seat.SeatStatus.AVAILABLE;
+    }
+
+    /**
+     * Moves one seat to a new status, mirroring the version bump of the DB row.
+     *
+     * @return the seat's new version, or -1 if the seat number is unknown or
+     *         already in that status
+     */
+    public synchronized long updateStatus(String seatNumber, Seat.SeatStatus status) {
+        int index = indexOf(seatNumber);
+        if (index < 0 || statusAt(index) == status) {
+            return -1;
+        }
+        applyStatus(index, status);
+        revision++;
+        return ++versions[index];
+    }
+
+    /**
+     * Applies a delta published by another node. Deltas carrying a version are
+     * applied only if newer than what this snapshot already has, so duplicates
+     * and reordered messages are harmless. A version of 0 means the publisher
+     * had no snapshot loaded; the status is then applied like a local change.
+     *
+     * @return true if the snapshot changed
+     */
+    public synchronized boolean applyDelta(String seatNumber, Seat.SeatStatus status, long version) {
+        int index = indexOf(seatNumber);
+        if (index < 0) {
+            return false;
+        }
+        if (version <= 0) {
+            return updateStatus(seatNumber, status) > 0;
+        }
+        if (version <= versions[index]) {
+            return false;
+        }
+        applyStatus(index, status);
+        revision += version - versions[index];
+        versions[index] = version;
+        return true;
+    }
+
+    /**
+     * Returns the seat-map JSON for the current revision. The body and its
+     * ETag are computed at most once per revision; polling readers share the
+     * same byte array.
+     */
+    public synchronized RenderedSeatMap render(ObjectMapper objectMapper) {
+        if (rendered == null || rendered.revision() != revision) {
+            byte[] body = writeJson(objectMapper);
+            rendered = new RenderedSeatMap(revision, etagOf(body), body);
+        }
+        return rendered;
+    }
+
+    /** Strong ETag from the body's content: 64 bits of its SHA-256. */
+    private String etagOf(byte[] body) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        return "\"" + flightId + "-" + HexFormat.of().formatHex(digest.digest(body), 0, 8) + "\"";
+    }
+
+    private byte[] writeJson(ObjectMapper objectMapper) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * seatIds.length + 2);
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.writeStartArray();
+            for (int i = 0; i < seatIds.length; i++) {
+                gen.writeStartObject();
+                gen.writeNumberField("id", seatIds[i]);
+                gen.writeStringField("seatNumber", seatNumbers[i]);
+                gen.writeStringField("seatClass", CLASSES[seatClasses[i]].name());
+                gen.writeStringField("status", statusAt(i).name());
+                gen.writeNumberField("version", versions[i]);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to render seat map for flight " + flightId, e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Best-fit search for {@code count} adjacent free seats in one row: the
+     * shortest free run that fits wins (ties go to the front-most row), and the
+     * block starts at the run's first seat so the remainder stays contiguous.
+     *
+     * @param seatClass      restrict to one class, or null for any
+     * @param excludedSeats  seats to treat as taken (e.g. lost in a race)
+     * @return seat numbers of the block in column order, or empty if none fits
+     */
+    public synchronized List<String> findAdjacentBlock(int count, Seat.SeatClass seatClass, Set<String> excludedSeats) {
+        int[] excludedMask = new int[freeMask.length];
+        for (String seatNumber : excludedSeats) {
+            int index = indexOf(seatNumber);
+            if (index >= 0 && geometry.rowOf(index) >= 0) {
+                excludedMask[geometry.rowOf(index)] |= 1 << geometry.columnOf(index);
+            }
+        }
+
+        int bestRow = -1;
+        int bestStart = -1;
+        int bestRun = Integer.MAX_VALUE;
+        for (int row = 0; row < freeMask.length && bestRun != count; row++) {
+            int mask = freeMask[row] & ~excludedMask[row];
+            if (seatClass != null) {
+                mask &= geometry.classMask(seatClass, row);
+            }
+            while (Integer.bitCount(mask) >= count) {
+                int start = Integer.numberOfTrailingZeros(mask);
+                int run = Integer.numberOfTrailingZeros(~(mask >>> start));
+                if (run >= count && run < bestRun) {
+                    bestRow = row;
+                    bestStart = start;
+                    bestRun = run;
+                    if (run == count) {
+                        break;
+                    }
+                }
+                mask &= ~(((1 << run) - 1) << start);
+            }
+        }
+        if (bestRow < 0) {
+            return List.of();
+        }
+        List<String> block = new ArrayList<>(count);
+        for (int column = bestStart; column < bestStart + count; column++) {
+            block.add(seatNumbers[geometry.seatAt(bestRow, column)]);
+        }
+        return block;
+    }
+
+    private void applyStatus(int index, Seat.SeatStatus status) {
+        held.set(index, status == Seat.SeatStatus.HELD);
+        confirmed.set(index, status == Seat.SeatStatus.CONFIRMED);
+        int row = geometry.rowOf(index);
+        if (row >= 0) {
+            int bit = 1 << geometry.columnOf(index);
+            freeMask[row] = status == Seat.SeatStatus.AVAILABLE ? freeMask[row] | bit : freeMask[row] & ~bit;
+        }
+    }
+
+    /**
+     * Pre-serialized seat map of one revision, with its content-derived strong ETag.
+     */
+    public record RenderedSeatMap(long revision, String etag, byte[] body) {
+    }
+}
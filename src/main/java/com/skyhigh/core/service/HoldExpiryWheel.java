@@ -0,0 +1,528 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.repository.FlightRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process hold expiry engine.
+ *
+ * Every hold created by SeatService is tracked in a hierarchical
+ * {@link TimingWheel} and released within one tick (100 ms by default) of its
+ * Redis TTL running out — no table scan, and releases that come due together
+ * are written as one JDBC batch instead of one REQUIRES_NEW transaction per
+ * seat.
+ *
+ * Flights are partitioned between nodes by Redis leases
+ * ({@code seat_hold_owner:{flightId}}, renewed every lease/3). Each node
+ * heartbeats into {@value #NODES_KEY} and holds at most its fair share,
+ * ceil(flights / live nodes): it hands back any excess so a node that just
+ * joined can pick it up, and acquires free flights one key at a time in
+ * random order, trying a bounded sample per round. Only the owning node
+ * tracks a flight's holds; other nodes forward theirs on the
+ * {@value #SCHEDULE_CHANNEL} channel. A node that acquires a flight rebuilds
+ * its wheel from the live {@code seat_hold:*} keys, so a restart or failover
+ * loses nothing still held. Holds that expired while a flight had no owner are
+ * left to the CleanupScheduler reconciliation sweep.
+ *
+ * Cancellation is lazy: the wheel entry stays, and at expiry it is skipped if
+ * the seat's latest tracked deadline differs (re-held, confirmed). Before
+ * releasing, the hold key is checked once more; a key that is still alive is
+ * re-scheduled at its remaining TTL.
+ */
+@Service
+@Slf4j
+public class HoldExpiryWheel implements MessageListener, MeterBinder {
+
+    public static final String SCHEDULE_CHANNEL = "seat_hold_schedule";
+    private static final String LEASE_KEY_PREFIX = "seat_hold_owner:";
+    private static final String NODES_KEY = "seat_hold_nodes";
+    private static final int MIN_ACQUIRE_ATTEMPTS = 64;
+    private static final int RELEASE_BATCH_SIZE = 500;
+    private static final long RELEASE_RETRY_MILLIS = 5_000;
+
+    /** Extends a lease we still own. KEYS[1] = lease key; ARGV[1] = node id, ARGV[2] = lease (ms). */
+    private static final byte[] RENEW_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /** Drops a lease we own so another node takes over without waiting for it to lapse. */
+    private static final byte[] RELINQUISH_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final StringRedisTemplate redisTemplate;
+    private final FlightRepository flightRepository;
+    private final SeatStatusWriter seatStatusWriter;
+    private final WaitlistPromotionService waitlistPromotion;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean enabled;
+    private final long tickMillis;
+    private final long leaseMillis;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "/"
+            + UUID.randomUUID().toString().substring(0, 8);
+    private final Set<Long> ownedFlights = ConcurrentHashMap.newKeySet();
+    /** Latest deadline per tracked seat; an entry whose deadline no longer matches is stale. */
+    private final Map<SeatRef, Long> deadlines = new ConcurrentHashMap<>();
+    private final Queue<TimingWheel.Entry<SeatRef>> incoming = new ConcurrentLinkedQueue<>();
+    private final TimingWheel<SeatRef> wheel;
+    private final LongAdder released = new LongAdder();
+    private volatile Thread driver;
+    private volatile boolean running;
+
+    public HoldExpiryWheel(StringRedisTemplate redisTemplate,
+                           FlightRepository flightRepository,
+                           SeatStatusWriter seatStatusWriter,
+                           WaitlistPromotionService waitlistPromotion,
+                           RedisMessageListenerContainer listenerContainer,
+                           @Value("${skyhigh.seats.expiry-wheel.enabled:false}") boolean enabled,
+                           @Value("${skyhigh.seats.expiry-wheel.tick-ms:100}") long tickMillis,
+                           @Value("${skyhigh.seats.expiry-wheel.wheel-size:64}") int wheelSize,
+                           @Value("${skyhigh.seats.expiry-wheel.lease-ms:30000}") long leaseMillis) {
+        this.redisTemplate = redisTemplate;
+        this.flightRepository = flightRepository;
+        this.seatStatusWriter = seatStatusWriter;
+        this.waitlistPromotion = waitlistPromotion;
+        this.listenerContainer = listenerContainer;
+        this.enabled = enabled;
+        this.tickMillis = tickMillis;
+        this.leaseMillis = leaseMillis;
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    /** Starts tracking a hold just claimed for HOLD_DURATION_SECONDS. */
+    public void track(Long flightId, String seatNumber) {
+        if (!enabled) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + SeatService.HOLD_DURATION_SECONDS * 1000;
+        if (ownedFlights.contains(flightId)) {
+            schedule(new SeatRef(flightId, seatNumber), deadline);
+        } else {
+            publish("+" + deadline + ":" + new SeatRef(flightId, seatNumber).encode());
+        }
+    }
+
+    /** Stops tracking a hold that ended early (confirmed). */
+    public void cancel(Long flightId, String seatNumber) {
+        if (!enabled) {
+            return;
+        }
+        if (ownedFlights.contains(flightId)) {
+            deadlines.remove(new SeatRef(flightId, seatNumber));
+        } else {
+            publish("-0:" + new SeatRef(flightId, seatNumber).encode());
+        }
+    }
+
+    /** Holds forwarded by nodes that do not own the flight: "+deadline:flightId:seat" or "-0:flightId:seat". */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        SeatRef seat;
+        long deadline;
+        try {
+            seat = SeatRef.decode(body.substring(separator + 1));
+            deadline = Long.parseLong(body.substring(1, separator));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed hold expiry message '{}'", body);
+            return;
+        }
+        if (!ownedFlights.contains(seat.flightId())) {
+            return;
+        }
+        if (body.charAt(0) == '+') {
+            schedule(seat, deadline);
+        } else {
+            deadlines.remove(seat);
+        }
+    }
+
+    /**
+     * Renews this node's flight leases, trims or tops them up to its fair
+     * share, rebuilds the wheel for flights newly acquired and forgets flights
+     * lost.
+     */
+    @Scheduled(fixedRateString = "#{${skyhigh.seats.expiry-wheel.lease-ms:30000} / 3}")
+    public void renewLeases() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Long> flightIds = flightRepository.findAllIds();
+            if (flightIds.isEmpty()) {
+                return;
+            }
+            int liveNodes = heartbeat(System.currentTimeMillis());
+            int share = (flightIds.size() + liveNodes - 1) / liveNodes;
+
+            Set<Long> nowOwned = renew(List.copyOf(ownedFlights));
+            if (nowOwned.size() > share) {
+                List<Long> excess = nowOwned.stream().skip(share).toList();
+                relinquish(excess);
+                excess.forEach(nowOwned::remove);
+            } else if (nowOwned.size() < share) {
+                nowOwned.addAll(acquire(flightIds, nowOwned, share - nowOwned.size()));
+            }
+
+            for (Long flightId : nowOwned) {
+                if (ownedFlights.add(flightId)) {
+                    rebuild(flightId);
+                }
+            }
+            for (Long flightId : List.copyOf(ownedFlights)) {
+                if (!nowOwned.contains(flightId)) {
+                    ownedFlights.remove(flightId);
+                    deadlines.keySet().removeIf(seat -> seat.flightId().equals(flightId));
+                    log.info("Hold expiry for flight {} moved to another node", flightId);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Hold expiry lease renewal failed: {}", e.getMessage());
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        listenerContainer.addMessageListener(this, new ChannelTopic(SCHEDULE_CHANNEL));
+        running = true;
+        // Sleeps between ticks and waits on Redis/JDBC when releasing — a virtual thread is enough
+        driver = Thread.ofVirtual().name("hold-expiry-wheel").start(this::runDriver);
+    }
+
+    /**
+     * Hands this node's leases back on shutdown. Runs on ContextClosedEvent:
+     * by @PreDestroy time the Redis connection factory is already stopped.
+     */
+    @EventListener(ContextClosedEvent.class)
+    void relinquishLeases() {
+        if (!enabled || ownedFlights.isEmpty()) {
+            return;
+        }
+        List<Long> flightIds = List.copyOf(ownedFlights);
+        ownedFlights.clear();
+        try {
+            redisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+            relinquish(flightIds);
+        } catch (Exception e) {
+            log.warn("Could not hand back hold expiry leases: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        Thread thread = driver;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(5_000);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("seat.hold.expiry.tracked", deadlines, Map::size)
+                .description("Holds tracked by this node's expiry wheel")
+                .register(registry);
+        Gauge.builder("seat.hold.expiry.owned.flights", ownedFlights, Set::size)
+                .description("Flights whose hold expiry this node owns")
+                .register(registry);
+        FunctionCounter.builder("seat.hold.expiry.released", released, LongAdder::sum)
+                .description("Seats released by the expiry wheel")
+                .register(registry);
+    }
+
+    private void runDriver() {
+        while (running) {
+            try {
+                Thread.sleep(tickMillis);
+                tick(System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Hold expiry tick failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /** One driver step: file newly tracked holds, advance the wheel, release what came due. */
+    void tick(long nowMillis) {
+        List<TimingWheel.Entry<SeatRef>> due = new ArrayList<>();
+        TimingWheel.Entry<SeatRef> entry;
+        while ((entry = incoming.poll()) != null) {
+            if (!wheel.add(entry.deadlineMillis(), entry.item())) {
+                due.add(entry);
+            }
+        }
+        wheel.advance(nowMillis, due::add);
+        if (!due.isEmpty()) {
+            expire(due, nowMillis);
+        }
+    }
+
+    private void expire(List<TimingWheel.Entry<SeatRef>> due, long nowMillis) {
+        List<TimingWheel.Entry<SeatRef>> current = new ArrayList<>(due.size());
+        for (TimingWheel.Entry<SeatRef> entry : due) {
+            SeatRef seat = entry.item();
+            if (ownedFlights.contains(seat.flightId())
+                    && Objects.equals(deadlines.get(seat), entry.deadlineMillis())) {
+                current.add(entry);
+            }
+        }
+        if (current.isEmpty()) {
+            return;
+        }
+
+        List<Object> ttls = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (TimingWheel.Entry<SeatRef> entry : current) {
+                SeatRef seat = entry.item();
+                connection.keyCommands().pTtl(
+                        SeatService.buildHoldKey(seat.flightId(), seat.seatNumber()).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+
+        List<SeatRef> expired = new ArrayList<>(current.size());
+        long earliestDeadline = Long.MAX_VALUE;
+        for (int i = 0; i < current.size(); i++) {
+            TimingWheel.Entry<SeatRef> entry = current.get(i);
+            long ttl = ((Number) ttls.get(i)).longValue();
+            if (ttl > 0) {
+                // Our clock ran ahead of Redis, or the seat was re-held elsewhere
+                schedule(entry.item(), nowMillis + ttl);
+            } else {
+                deadlines.remove(entry.item(), entry.deadlineMillis());
+                expired.add(entry.item());
+                earliestDeadline = Math.min(earliestDeadline, entry.deadlineMillis());
+            }
+        }
+        if (!expired.isEmpty()) {
+            release(expired, earliestDeadline);
+        }
+    }
+
+    private void release(List<SeatRef> expired, long earliestDeadline) {
+        // The expiring holds were written ~HOLD_DURATION before their deadline; a re-hold
+        // can only happen after the key expired. Halfway separates the two safely.
+        LocalDateTime heldBefore = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(earliestDeadline - SeatService.HOLD_DURATION_SECONDS * 500),
+                ZoneId.systemDefault());
+        for (int from = 0; from < expired.size(); from += RELEASE_BATCH_SIZE) {
+            List<SeatRef> batch = expired.subList(from, Math.min(expired.size(), from + RELEASE_BATCH_SIZE));
+            List<SeatRef> freed;
+            try {
+                freed = seatStatusWriter.releaseHolds(batch, heldBefore);
+            } catch (Exception e) {
+                log.error("Failed to release {} expired holds, retrying in {}ms: {}",
+                        batch.size(), RELEASE_RETRY_MILLIS, e.getMessage(), e);
+                long retryAt = System.currentTimeMillis() + RELEASE_RETRY_MILLIS;
+                batch.forEach(seat -> schedule(seat, retryAt));
+                continue;
+            }
+            try {
+                // Offers are holds on flights we own: they expire through this wheel too
+                long offerDeadline = System.currentTimeMillis() + SeatService.HOLD_DURATION_SECONDS * 1000;
+                for (SeatInventoryService.Offer offer : waitlistPromotion.promote(freed)) {
+                    schedule(offer.seat(), offerDeadline);
+                }
+            } catch (Exception e) {
+                // The rows are AVAILABLE; a stale 'H' in the Redis inventory is claimable once its key is gone
+                log.error("Waitlist promotion failed for {} released seats: {}", freed.size(), e.getMessage(), e);
+            }
+            released.add(freed.size());
+            if (!freed.isEmpty()) {
+                log.info("Released {} expired holds", freed.size());
+            }
+        }
+    }
+
+    /** Rebuilds a newly owned flight's entries from its live hold keys. */
+    private void rebuild(Long flightId) {
+        List<SeatRef> seats = new ArrayList<>();
+        String prefix = SeatService.buildHoldKey(flightId, "");
+        ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(1_000).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            keys.forEachRemaining(key -> seats.add(new SeatRef(flightId, key.substring(prefix.length()))));
+        }
+        if (seats.isEmpty()) {
+            log.info("Took over hold expiry for flight {} (no live holds)", flightId);
+            return;
+        }
+        List<Object> ttls = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (SeatRef seat : seats) {
+                connection.keyCommands().pTtl((prefix + seat.seatNumber()).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < seats.size(); i++) {
+            long ttl = ((Number) ttls.get(i)).longValue();
+            if (ttl > 0) {
+                schedule(seats.get(i), now + ttl);
+            }
+        }
+        log.info("Took over hold expiry for flight {} ({} live holds)", flightId, seats.size());
+    }
+
+    private void schedule(SeatRef seat, long deadlineMillis) {
+        deadlines.put(seat, deadlineMillis);
+        incoming.add(new TimingWheel.Entry<>(deadlineMillis, seat));
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(SCHEDULE_CHANNEL, message);
+        } catch (Exception e) {
+            // The owner's reconciliation (rebuild or sweep) still finds the hold
+            log.warn("Could not forward hold expiry '{}': {}", message, e.getMessage());
+        }
+    }
+
+    /** Records this node as alive and returns the number of live nodes (at least 1). */
+    private int heartbeat(long nowMillis) {
+        ZSetOperations<String, String> nodes = redisTemplate.opsForZSet();
+        nodes.add(NODES_KEY, nodeId, nowMillis);
+        nodes.removeRangeByScore(NODES_KEY, Double.NEGATIVE_INFINITY, nowMillis - leaseMillis);
+        Long live = nodes.zCard(NODES_KEY);
+        return live == null || live < 1 ? 1 : live.intValue();
+    }
+
+    /** @return the flights whose lease this node still held and has extended */
+    private Set<Long> renew(List<Long> flightIds) {
+        Set<Long> renewed = new HashSet<>();
+        if (flightIds.isEmpty()) {
+            return renewed;
+        }
+        List<Object> results = evalEach(RENEW_SCRIPT, flightIds, String.valueOf(leaseMillis));
+        for (int i = 0; i < flightIds.size(); i++) {
+            if (results.get(i) instanceof Number n && n.longValue() == 1) {
+                renewed.add(flightIds.get(i));
+            }
+        }
+        return renewed;
+    }
+
+    private void relinquish(List<Long> flightIds) {
+        if (!flightIds.isEmpty()) {
+            evalEach(RELINQUISH_SCRIPT, flightIds);
+        }
+    }
+
+    /**
+     * Takes up to {@code needed} free leases with SET NX, one key per command.
+     * Candidates are shuffled so nodes renewing at the same moment spread out,
+     * and at most max(2 * needed, {@value #MIN_ACQUIRE_ATTEMPTS}) are tried per
+     * round; flights not reached are picked up in a later round.
+     */
+    private Set<Long> acquire(List<Long> flightIds, Set<Long> owned, int needed) {
+        List<Long> candidates = new ArrayList<>(flightIds);
+        candidates.removeIf(owned::contains);
+        Collections.shuffle(candidates);
+        int attempts = Math.min(candidates.size(), Math.max(2 * needed, MIN_ACQUIRE_ATTEMPTS));
+        Expiration lease = Expiration.milliseconds(leaseMillis);
+        byte[] owner = nodeId.getBytes(StandardCharsets.UTF_8);
+
+        Set<Long> acquired = new HashSet<>();
+        int next = 0;
+        while (acquired.size() < needed && next < attempts) {
+            List<Long> batch = candidates.subList(next, Math.min(attempts, next + needed - acquired.size()));
+            next += batch.size();
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long flightId : batch) {
+                    connection.stringCommands().set(leaseKey(flightId), owner, lease,
+                            RedisStringCommands.SetOption.ifAbsent());
+                }
+                return null;
+            });
+            for (int i = 0; i < batch.size(); i++) {
+                if (Boolean.TRUE.equals(results.get(i))) {
+                    acquired.add(batch.get(i));
+                }
+            }
+        }
+        return acquired;
+    }
+
+    /** Runs a single-key script once per flight lease, pipelined. */
+    private List<Object> evalEach(byte[] script, List<Long> flightIds, String... extraArgs) {
+        return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long flightId : flightIds) {
+                byte[][] keysAndArgs = new byte[2 + extraArgs.length][];
+                keysAndArgs[0] = leaseKey(flightId);
+                keysAndArgs[1] = nodeId.getBytes(StandardCharsets.UTF_8);
+                for (int i = 0; i < extraArgs.length; i++) {
+                    keysAndArgs[2 + i] = extraArgs[i].getBytes(StandardCharsets.UTF_8);
+                }
+                connection.scriptingCommands().eval(script, ReturnType.INTEGER, 1, keysAndArgs);
+            }
+            return null;
+        });
+    }
+
+    /** Hash-tagged like the flight's hold keys, so a lease shares their cluster slot. */
+    private static byte[] leaseKey(Long flightId) {
+        return (LEASE_KEY_PREFIX + "{" + flightId + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** For tests: the flights this node currently owns. */
+    Set<Long> ownedFlights() {
+        return Set.copyOf(ownedFlights);
+    }
+
+    /** For tests: take ownership without Redis. */
+    void own(Long flightId) {
+        ownedFlights.add(flightId);
+    }
+}
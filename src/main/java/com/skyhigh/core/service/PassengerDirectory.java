@@ -0,0 +1,94 @@
+package com.skyhigh.core.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolves a passenger email to its passenger id for confirmBooking.
+ *
+ * Ids are cached per node by email in a bounded LRU map whose entries
+ * expire after {@code ttl-ms}, so a repeat passenger costs no query. On a
+ * miss the passenger is created or found with one upsert that returns the id:
+ * two concurrent first bookings for the same email both get the same row
+ * instead of one failing on the unique index.
+ *
+ * Emails are used exactly as submitted, both as the cache key and in the
+ * upsert, matching the case-sensitive unique index on
+ * {@code passengers.email}: a cache hit always names the row the upsert
+ * would return, on every node.
+ *
+ * The upsert runs in its own statement, outside the confirm transaction, so
+ * a cached id always refers to a committed row.
+ */
+@Service
+public class PassengerDirectory {
+
+    /** The no-op update makes RETURNING yield the existing row's id on a conflict. */
+    private static final String UPSERT_SQL = "INSERT INTO passengers (email, first_name, last_name, created_at) "
+            + "VALUES (?, 'Guest', 'Passenger', ?) "
+            + "ON CONFLICT (email) DO UPDATE SET email = EXCLUDED.email RETURNING id";
+
+    /** H2 (tests, load test) has no ON CONFLICT; MERGE in a data change delta table does the same. */
+    private static final String UPSERT_H2_SQL = "SELECT id FROM FINAL TABLE ("
+            + "MERGE INTO passengers p USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS TIMESTAMP))) "
+            + "v(email, created_at) ON p.email = v.email "
+            + "WHEN MATCHED THEN UPDATE SET p.email = v.email "
+            + "WHEN NOT MATCHED THEN INSERT (email, first_name, last_name, created_at) "
+            + "VALUES (v.email, 'Guest', 'Passenger', v.created_at))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlMillis;
+    private final Map<String, CachedId> ids;
+    private volatile String upsertSql;
+
+    public PassengerDirectory(JdbcTemplate jdbcTemplate,
+                              @Value("${skyhigh.passengers.id-cache.max-size:100000}") int maxSize,
+                              @Value("${skyhigh.passengers.id-cache.ttl-ms:600000}") long ttlMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMillis = ttlMillis;
+        this.ids = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedId> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /** Id of the passenger with this email, creating a guest passenger on first use. */
+    public Long idFor(String email) {
+        long now = System.currentTimeMillis();
+        CachedId cached = ids.get(email);
+        if (cached != null && cached.expiresAtMillis() > now) {
+            return cached.id();
+        }
+        Long id = jdbcTemplate.queryForObject(upsertSql(), Long.class, email, Timestamp.valueOf(LocalDateTime.now()));
+        ids.put(email, new CachedId(id, now + ttlMillis));
+        return id;
+    }
+
+    int cachedCount() {
+        return ids.size();
+    }
+
+    private String upsertSql() {
+        String sql = upsertSql;
+        if (sql == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            sql = "H2".equals(product) ? UPSERT_H2_SQL : UPSERT_SQL;
+            upsertSql = sql;
+        }
+        return sql;
+    }
+
+    private record CachedId(Long id, long expiresAtMillis) {
+    }
+}
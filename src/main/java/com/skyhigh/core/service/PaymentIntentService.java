@@ -0,0 +1,219 @@
+package com.skyhigh.core.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Two-phase excess-baggage payment.
+ *
+ * 1. {@link #createIntent} prices the baggage and stores an intent bound to
+ *    one flight, seat and user. The client's Idempotency-Key maps to the
+ *    intent, so a retried create returns the same intent.
+ * 2. {@link #executeIntent} charges it. A Lua compare-and-set moves the intent
+ *    from REQUIRES_PAYMENT to PROCESSING, so only one caller ever reaches the
+ *    gateway; every other call returns the stored status without a gateway
+ *    round trip.
+ *
+ * Booking confirmation then checks the intent ({@link PaymentIntent#covers})
+ * instead of trusting a client flag.
+ *
+ * Intents live in {@code payment_intent:{id}} hashes and idempotency keys in
+ * {@code payment_idempotency:{userId}:{key}}, both expiring after 24 hours.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentIntentService {
+
+    private static final String INTENT_KEY_PREFIX = "payment_intent:";
+    private static final String IDEMPOTENCY_KEY_PREFIX = "payment_idempotency:";
+    private static final Duration INTENT_TTL = Duration.ofHours(24);
+    private static final String CURRENCY = "USD";
+
+    /**
+     * Returns the intent already mapped to the idempotency key, or stores the
+     * new one and maps it.
+     * KEYS[1] = idempotency key, KEYS[2] = new intent hash
+     * ARGV[1] = new intent id, ARGV[2] = TTL (seconds), ARGV[3..] = field, value, ...
+     */
+    private static final RedisScript<String> CREATE_SCRIPT = new DefaultRedisScript<>("""
+            local existing = redis.call('GET', KEYS[1])
+            if existing then return existing end
+            redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])
+            for i = 3, #ARGV, 2 do
+                redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('EXPIRE', KEYS[2], ARGV[2])
+            return ARGV[1]
+            """, String.class);
+
+    /**
+     * Claims an intent for charging. Returns CLAIMED to the single winner,
+     * otherwise the current status ('' if the intent does not exist).
+     * KEYS[1] = intent hash
+     */
+    private static final RedisScript<String> CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            local status = redis.call('HGET', KEYS[1], 'status')
+            if not status then return '' end
+            if status ~= 'REQUIRES_PAYMENT' then return status end
+            redis.call('HSET', KEYS[1], 'status', 'PROCESSING')
+            return 'CLAIMED'
+            """, String.class);
+
+    /** Gateway callbacks write to Redis; keep that off the gateway's timer thread. */
+    private static final Executor VIRTUAL_THREADS = task -> Thread.ofVirtual().name("payment-intent").start(task);
+
+    private final StringRedisTemplate redisTemplate;
+    private final BaggageService baggageService;
+
+    public enum Status {
+        REQUIRES_PAYMENT, PROCESSING, SUCCEEDED, DECLINED, FAILED
+    }
+
+    public record PaymentIntent(String id, Long flightId, String seatNumber, String userId,
+                                BigDecimal amount, String currency, Status status, String failureReason) {
+
+        /** True if this intent has paid a fee of at least {@code fee} for exactly this seat and user. */
+        public boolean covers(Long flightId, String seatNumber, String userId, BigDecimal fee) {
+            return status == Status.SUCCEEDED
+                    && this.flightId.equals(flightId)
+                    && this.seatNumber.equals(seatNumber)
+                    && this.userId.equals(userId)
+                    && amount.compareTo(fee) >= 0;
+        }
+    }
+
+    /** @param replayed true if the idempotency key had already been used and the stored intent was returned */
+    public record Created(PaymentIntent intent, boolean replayed) {
+    }
+
+    /**
+     * Prices the baggage and creates an intent, or returns the intent already
+     * created under the same idempotency key.
+     *
+     * @throws IllegalStateException if no fee is due, or the key was used for a different payment
+     */
+    public Created createIntent(String idempotencyKey, Long flightId, String seatNumber, String userId,
+                                double baggageWeight) {
+        BigDecimal fee = baggageService.calculateExcessBaggageFee(baggageWeight);
+        if (fee.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalStateException("No excess baggage fee is due for " + baggageWeight + " kg.");
+        }
+
+        String id = "pi_" + UUID.randomUUID().toString().replace("-", "");
+        String storedId = redisTemplate.execute(CREATE_SCRIPT,
+                List.of(IDEMPOTENCY_KEY_PREFIX + userId + ":" + idempotencyKey, INTENT_KEY_PREFIX + id),
+                id, String.valueOf(INTENT_TTL.toSeconds()),
+                "flightId", flightId.toString(),
+                "seatNumber", seatNumber,
+                "userId", userId,
+                "amount", fee.toPlainString(),
+                "currency", CURRENCY,
+                "status", Status.REQUIRES_PAYMENT.name());
+
+        if (id.equals(storedId)) {
+            log.info("Created payment intent {} for {} {} (seat {}, flight {}, user {})",
+                    id, fee, CURRENCY, seatNumber, flightId, userId);
+            return new Created(new PaymentIntent(id, flightId, seatNumber, userId, fee, CURRENCY,
+                    Status.REQUIRES_PAYMENT, null), false);
+        }
+
+        PaymentIntent existing = findIntent(storedId)
+                .orElseThrow(() -> new IllegalStateException("Idempotency-Key refers to an expired payment intent."));
+        if (!existing.flightId().equals(flightId) || !existing.seatNumber().equals(seatNumber)
+                || existing.amount().compareTo(fee) != 0) {
+            throw new IllegalStateException("Idempotency-Key was already used for a different payment.");
+        }
+        log.debug("Replayed payment intent {} for idempotency key {}", storedId, idempotencyKey);
+        return new Created(existing, true);
+    }
+
+    /**
+     * Charges the intent exactly once. Calls that do not win the claim —
+     * replays, or a second click while the first is in flight — complete
+     * immediately with the stored intent.
+     *
+     * A bulkhead rejection never reached the gateway, so the intent goes back
+     * to REQUIRES_PAYMENT and the future fails with RejectedExecutionException.
+     * A timeout or gateway error may have charged the card, so the intent is
+     * marked FAILED rather than offered for a second charge.
+     *
+     * @throws IllegalArgumentException if the intent does not exist or belongs to another user
+     */
+    public CompletableFuture<PaymentIntent> executeIntent(String intentId, String userId, String paymentToken) {
+        PaymentIntent intent = findIntent(intentId)
+                .filter(found -> found.userId().equals(userId))
+                .orElseThrow(() -> new IllegalArgumentException("Payment intent " + intentId + " not found"));
+
+        String claim = redisTemplate.execute(CLAIM_SCRIPT, List.of(INTENT_KEY_PREFIX + intentId));
+        if (!"CLAIMED".equals(claim)) {
+            if (claim == null || claim.isEmpty()) {
+                throw new IllegalArgumentException("Payment intent " + intentId + " not found");
+            }
+            return CompletableFuture.completedFuture(withStatus(intent, Status.valueOf(claim), intent.failureReason()));
+        }
+
+        return baggageService.processPaymentAsync(paymentToken, intent.amount())
+                .handleAsync((approved, error) -> {
+                    if (error == null) {
+                        Status status = Boolean.TRUE.equals(approved) ? Status.SUCCEEDED : Status.DECLINED;
+                        log.info("Payment intent {} {}", intentId, status);
+                        return record(intent, status, null);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof RejectedExecutionException rejected) {
+                        record(intent, Status.REQUIRES_PAYMENT, null);
+                        throw new CompletionException(rejected);
+                    }
+                    String reason = cause instanceof TimeoutException ? "GATEWAY_TIMEOUT" : "GATEWAY_ERROR";
+                    log.warn("Payment intent {} failed: {}", intentId, reason, cause);
+                    return record(intent, Status.FAILED, reason);
+                }, VIRTUAL_THREADS);
+    }
+
+    public Optional<PaymentIntent> findIntent(String intentId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(INTENT_KEY_PREFIX + intentId);
+        if (fields == null || fields.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new PaymentIntent(
+                intentId,
+                Long.valueOf((String) fields.get("flightId")),
+                (String) fields.get("seatNumber"),
+                (String) fields.get("userId"),
+                new BigDecimal((String) fields.get("amount")),
+                (String) fields.get("currency"),
+                Status.valueOf((String) fields.get("status")),
+                (String) fields.get("failureReason")));
+    }
+
+    private PaymentIntent record(PaymentIntent intent, Status status, String failureReason) {
+        String key = INTENT_KEY_PREFIX + intent.id();
+        redisTemplate.opsForHash().putAll(key, failureReason == null
+                ? Map.of("status", status.name())
+                : Map.of("status", status.name(), "failureReason", failureReason));
+        return withStatus(intent, status, failureReason);
+    }
+
+    private static PaymentIntent withStatus(PaymentIntent intent, Status status, String failureReason) {
+        return new PaymentIntent(intent.id(), intent.flightId(), intent.seatNumber(), intent.userId(),
+                intent.amount(), intent.currency(), status, failureReason);
+    }
+}
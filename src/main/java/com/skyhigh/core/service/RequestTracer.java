@@ -0,0 +1,177 @@
+package com.skyhigh.core.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-process request tracing with a per-stage latency breakdown.
+ *
+ * {@link #start} samples {@code sample-rate} of calls; everything else gets
+ * {@link Trace#NOOP}, whose methods return immediately, so an unsampled
+ * request allocates nothing. A sampled trace is one object with fixed arrays
+ * for up to {@value Trace#MAX_STAGES} stages and {@value Trace#MAX_TAGS} tags.
+ * Stage and tag names are constants, and each stage costs one nanoTime().
+ *
+ * The trace is passed down explicitly rather than kept in a ThreadLocal: on
+ * virtual threads a ThreadLocal would allocate a map per request.
+ *
+ * Finished traces overwrite the oldest slot of a ring of
+ * {@code buffer-size} entries; {@link #slowest} backs the {@code traces}
+ * actuator endpoint.
+ */
+@Component
+public class RequestTracer {
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final AtomicReferenceArray<Trace> ring;
+    private final AtomicLong cursor = new AtomicLong();
+
+    public RequestTracer(@Value("${skyhigh.tracing.enabled:false}") boolean enabled,
+                         @Value("${skyhigh.tracing.sample-rate:0.01}") double sampleRate,
+                         @Value("${skyhigh.tracing.buffer-size:1024}") int bufferSize) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.ring = new AtomicReferenceArray<>(Math.max(1, bufferSize));
+    }
+
+    /** Starts a trace if this call is sampled; otherwise returns {@link Trace#NOOP}. */
+    public Trace start(String operation) {
+        if (!enabled || (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return Trace.NOOP;
+        }
+        return new Trace(operation);
+    }
+
+    /** Ends the trace (the time since the last stage becomes a final stage) and records it. */
+    public void finish(Trace trace, Throwable failure) {
+        if (trace == Trace.NOOP) {
+            return;
+        }
+        trace.end(failure);
+        ring.set((int) Math.floorMod(cursor.getAndIncrement(), (long) ring.length()), trace);
+    }
+
+    /** The {@code limit} slowest traces still in the ring, slowest first. */
+    public List<Map<String, Object>> slowest(int limit) {
+        List<Trace> traces = new ArrayList<>(ring.length());
+        for (int i = 0; i < ring.length(); i++) {
+            Trace trace = ring.get(i);
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        traces.sort(Comparator.comparingLong(Trace::durationNanos).reversed());
+        return traces.stream().limit(Math.max(0, limit)).map(Trace::toMap).toList();
+    }
+
+    /**
+     * One traced call. Not thread-safe: a trace belongs to the thread running
+     * the call until it is finished.
+     */
+    public static final class Trace {
+
+        static final int MAX_STAGES = 16;
+        static final int MAX_TAGS = 4;
+
+        /** Shared placeholder for unsampled calls; every method is a no-op. */
+        public static final Trace NOOP = new Trace(null);
+
+        private final String operation;
+        private final long startedAtMillis;
+        private final long startNanos;
+        private final String[] stageNames = new String[MAX_STAGES];
+        private final long[] stageNanos = new long[MAX_STAGES];
+        private final String[] tagKeys = new String[MAX_TAGS];
+        private final Object[] tagValues = new Object[MAX_TAGS];
+        private int stages;
+        private int tags;
+        private long lastMarkNanos;
+        private long durationNanos;
+        private Throwable failure;
+
+        private Trace(String operation) {
+            this.operation = operation;
+            this.startedAtMillis = operation == null ? 0 : System.currentTimeMillis();
+            this.startNanos = operation == null ? 0 : System.nanoTime();
+            this.lastMarkNanos = startNanos;
+        }
+
+        /** Closes the current stage: the time since the previous mark is recorded under {@code name}. */
+        public void stage(String name) {
+            if (this == NOOP) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (stages < MAX_STAGES) {
+                stageNames[stages] = name;
+                stageNanos[stages] = now - lastMarkNanos;
+                stages++;
+            }
+            lastMarkNanos = now;
+        }
+
+        /** Attaches a value (flight id, seat number, ...) to the trace. */
+        public void tag(String key, Object value) {
+            if (this == NOOP || tags == MAX_TAGS) {
+                return;
+            }
+            tagKeys[tags] = key;
+            tagValues[tags] = value;
+            tags++;
+        }
+
+        public boolean sampled() {
+            return this != NOOP;
+        }
+
+        long durationNanos() {
+            return durationNanos;
+        }
+
+        private void end(Throwable failure) {
+            long now = System.nanoTime();
+            if (now > lastMarkNanos && stages > 0) {
+                stage("finish");
+            }
+            this.durationNanos = now - startNanos;
+            this.failure = failure;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("operation", operation);
+            view.put("startedAt", startedAtMillis);
+            view.put("durationMicros", TimeUnit.NANOSECONDS.toMicros(durationNanos));
+            view.put("outcome", SeatMetrics.outcomeOf(failure).name().toLowerCase(Locale.ROOT));
+            if (failure != null) {
+                view.put("error", failure.getClass().getSimpleName() + ": " + failure.getMessage());
+            }
+            Map<String, Object> tagView = new LinkedHashMap<>();
+            for (int i = 0; i < tags; i++) {
+                tagView.put(tagKeys[i], String.valueOf(tagValues[i]));
+            }
+            view.put("tags", tagView);
+            List<Map<String, Object>> stageView = new ArrayList<>(stages);
+            for (int i = 0; i < stages; i++) {
+                Map<String, Object> stage = new LinkedHashMap<>();
+                stage.put("name", stageNames[i]);
+                stage.put("micros", TimeUnit.NANOSECONDS.toMicros(stageNanos[i]));
+                stageView.add(stage);
+            }
+            view.put("stages", stageView);
+            return view;
+        }
+    }
+}
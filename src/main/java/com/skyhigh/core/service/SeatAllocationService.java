@@ -0,0 +1,66 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.model.Seat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds and holds the best block of adjacent seats for a group ("3 seats
+ * together"), so clients no longer probe seat numbers one at a time.
+ *
+ * The search runs on the in-memory seat map's per-row free masks; the chosen
+ * block is then held all-or-nothing via SeatService.holdSeats(). If another
+ * user wins one of those seats first, the block is excluded and the next best
+ * one is tried.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatAllocationService {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final SeatMapCache seatMapCache;
+    private final SeatService seatService;
+
+    public record Allocation(String holdReference, List<String> seatNumbers) {
+    }
+
+    /**
+     * @param seatClass restrict the block to one class, or null for any
+     * @throws IllegalArgumentException if the flight has no seats
+     * @throws IllegalStateException    if no adjacent block could be held
+     */
+    public Allocation allocateAdjacent(Long flightId, int count, Seat.SeatClass seatClass, String userId) {
+        FlightSeatMap snapshot = seatMapCache.getSnapshot(flightId);
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Flight " + flightId + " not found or has no seats.");
+        }
+
+        Set<String> excluded = new HashSet<>();
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            List<String> block = snapshot.findAdjacentBlock(count, seatClass, excluded);
+            if (block.isEmpty()) {
+                throw new IllegalStateException("No block of " + count + " adjacent "
+                        + (seatClass != null ? seatClass + " " : "") + "seats is available.");
+            }
+            try {
+                String ref = seatService.holdSeats(flightId, block, userId);
+                log.info("Allocated adjacent seats {} on flight {} to user {}", block, flightId, userId);
+                return new Allocation(ref, block);
+            } catch (IllegalStateException e) {
+                // Lost a race on one of the seats — the snapshot catches up shortly
+                log.debug("Adjacent block {} on flight {} unavailable (attempt {}): {}",
+                        block, flightId, attempt, e.getMessage());
+                excluded.addAll(block);
+            }
+        }
+        throw new IllegalStateException("Seats are changing too fast to allocate " + count
+                + " adjacent seats. Please retry.");
+    }
+}
@@ -0,0 +1,476 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.model.Seat;
+import com.skyhigh.core.repository.SeatRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis-side seat inventory used by the atomic hold path.
+ *
+ * Each flight has a hash {@code seat_status:{flightId}} mapping seat number to
+ * A (available), H (held) or C (confirmed). A Lua script checks that hash and
+ * the seat's hold key and claims the seat in a single round trip, so requests
+ * that lose the race are rejected without touching PostgreSQL. The braces are
+ * a cluster hash tag shared with the flight's hold keys, so the scripts only
+ * ever touch one slot.
+ *
+ * Only C is authoritative for rejection: an H entry whose hold key has expired
+ * is a zombie and may be claimed again.
+ *
+ * Hold keys written before they were hash-tagged ({@code seat_hold:flightId:seat},
+ * see {@link SeatService#legacyHoldKey}) may still be live right after an
+ * upgrade, and nodes not yet upgraded keep writing them during a rolling
+ * deploy. For {@code legacy-hold-key-window-ms} after start the claim scripts
+ * also treat a live untagged key as a hold. Those keys are in other cluster
+ * slots, so on Redis Cluster the scripts skip this check; drain holds before
+ * deploying there instead (see application.properties).
+ *
+ * The hold log ({@code seat_hold_log}, a ZSET of {@code flightId:seatNumber}
+ * scored by expiry time) records every hold written to the DB by the
+ * write-behind flusher, so expired holds are found without a table scan.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatInventoryService {
+
+    private static final String STATUS_KEY_PREFIX = "seat_status:";
+    private static final Duration STATUS_TTL = Duration.ofHours(24);
+    private static final String HOLD_LOG_KEY = "seat_hold_log";
+
+    /**
+     * KEYS[1] = status hash, KEYS[2] = hold key, KEYS[3] = untagged hold key (optional)
+     * ARGV[1] = seat number, ARGV[2] = user id, ARGV[3] = hold TTL (seconds)
+     */
+    private static final RedisScript<Long> HOLD_SCRIPT = new DefaultRedisScript<>("""
+            local status = redis.call('HGET', KEYS[1], ARGV[1])
+            if not status then
+                if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end
+                return -2
+            end
+            if status == 'C' then return 0 end
+            if KEYS[3] and redis.call('EXISTS', KEYS[3]) == 1 then return 2 end
+            if redis.call('SET', KEYS[2], ARGV[2], 'NX', 'EX', ARGV[3]) then
+                redis.call('HSET', KEYS[1], ARGV[1], 'H')
+                return 1
+            end
+            return 2
+            """, Long.class);
+
+    /** KEYS[1] = status hash; ARGV = seat, status, seat, status, ..., TTL (seconds) last */
+    private static final RedisScript<Long> SEED_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end
+            for i = 1, #ARGV - 1, 2 do
+                redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[#ARGV])
+            return 1
+            """, Long.class);
+
+    /** Updates one field only if the hash is seeded — never creates a partial hash. */
+    private static final RedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    /**
+     * Offers released seats of one flight to waitlisted users already popped
+     * from the waitlist: each seat nobody has re-held goes, as a hold, to the
+     * next candidate in order; seats left over once the candidates run out are
+     * marked available. Confirmed seats are skipped. The waitlist shards live
+     * in other cluster slots, so the script only receives their users.
+     * KEYS[1] = status hash, KEYS[2..n+1] = hold keys, KEYS[n+2..2n+1] = untagged hold keys (if ARGV[2] is 1)
+     * ARGV[1] = hold TTL (seconds), ARGV[2] = 1 if untagged keys are passed, else 0,
+     * ARGV[3..n+2] = seat numbers, ARGV[n+3..] = candidate user ids
+     * Returns {seat, user, seat, user, ...} for the offers made; candidates
+     * are used in order, so any after the last offered one were not used.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> OFFER_SCRIPT = new DefaultRedisScript<>("""
+            local seeded = redis.call('EXISTS', KEYS[1]) == 1
+            local legacy = ARGV[2] == '1'
+            local n = legacy and (#KEYS - 1) / 2 or #KEYS - 1
+            local nextCandidate = n + 3
+            local offers = {}
+            for i = 2, n + 1 do
+                local seat = ARGV[i + 1]
+                local confirmed = seeded and redis.call('HGET', KEYS[1], seat) == 'C'
+                local held = redis.call('EXISTS', KEYS[i]) == 1
+                    or (legacy and redis.call('EXISTS', KEYS[i + n]) == 1)
+                if not confirmed and not held then
+                    local user = ARGV[nextCandidate]
+                    if user then
+                        nextCandidate = nextCandidate + 1
+                        redis.call('SET', KEYS[i], user, 'EX', ARGV[1])
+                        if seeded then redis.call('HSET', KEYS[1], seat, 'H') end
+                        table.insert(offers, seat)
+                        table.insert(offers, user)
+                    elseif seeded then
+                        redis.call('HSET', KEYS[1], seat, 'A')
+                    end
+                end
+            end
+            return offers
+            """, List.class);
+
+    /**
+     * All-or-nothing claim of several seats. Nothing is written unless every
+     * seat is known, not confirmed and not held.
+     * KEYS[1] = status hash, KEYS[2..n+1] = hold keys, KEYS[n+2..2n+1] = untagged hold keys (optional)
+     * ARGV[1] = user id, ARGV[2] = hold TTL (seconds), ARGV[3..n+2] = seat numbers
+     * Returns {code, 1-based index of the offending seat}.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> HOLD_ALL_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return {-1, 0} end
+            local n = #ARGV - 2
+            local legacy = #KEYS > n + 1
+            for i = 2, n + 1 do
+                local status = redis.call('HGET', KEYS[1], ARGV[i + 1])
+                if not status then return {-2, i - 1} end
+                if status == 'C' then return {0, i - 1} end
+                if redis.call('EXISTS', KEYS[i]) == 1 then return {2, i - 1} end
+                if legacy and redis.call('EXISTS', KEYS[i + n]) == 1 then return {2, i - 1} end
+            end
+            for i = 2, n + 1 do
+                redis.call('SET', KEYS[i], ARGV[1], 'EX', ARGV[2])
+                redis.call('HSET', KEYS[1], ARGV[i + 1], 'H')
+            end
+            return {1, 0}
+            """, List.class);
+
+    /** Compare-and-delete: removes the hold key only if it still belongs to ARGV[1]. */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * Settles one polled hold-log entry, only if its score is still the one
+     * polled: a seat re-held since then was re-logged with a new score and is
+     * left alone. KEYS[1] = hold log, ARGV[1] = member, ARGV[2] = polled score,
+     * ARGV[3] = new score, or empty to remove. Returns 1 if removed.
+     */
+    private static final byte[] SETTLE_LOG_ENTRY_SCRIPT = """
+            local score = redis.call('ZSCORE', KEYS[1], ARGV[1])
+            if not score or tonumber(score) ~= tonumber(ARGV[2]) then
+                return 0
+            end
+            if ARGV[3] == '' then
+                return redis.call('ZREM', KEYS[1], ARGV[1])
+            end
+            redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1])
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final StringRedisTemplate redisTemplate;
+    private final SeatRepository seatRepository;
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    /** How long after start holds under the untagged key format are still honoured. */
+    @Value("${skyhigh.seats.legacy-hold-key-window-ms:600000}")
+    private long legacyHoldKeyWindowMillis = 600_000;
+
+    /** Set on Redis Cluster, where the claim scripts cannot reach the untagged keys' slots. */
+    @Value("${spring.data.redis.cluster.nodes:}")
+    private String clusterNodes = "";
+
+    public enum HoldOutcome {
+        CLAIMED, ALREADY_HELD, ALREADY_BOOKED, UNKNOWN_SEAT
+    }
+
+    /**
+     * Result of a multi-seat claim; {@code seatNumber} is the seat that blocked
+     * it (null when claimed).
+     */
+    public record BatchHoldResult(HoldOutcome outcome, String seatNumber) {
+    }
+
+    /** A released seat now held in a waitlisted user's name. */
+    public record Offer(SeatRef seat, String userId) {
+    }
+
+    /**
+     * Atomically claims a seat for a user. The first hold on a flight seeds the
+     * status hash from the DB; every later hold is a single Redis call.
+     */
+    public HoldOutcome tryHold(Long flightId, String seatNumber, String userId, long ttlSeconds) {
+        Long result = runHoldScript(flightId, seatNumber, userId, ttlSeconds);
+        if (result != null && result == -1) {
+            seed(flightId);
+            result = runHoldScript(flightId, seatNumber, userId, ttlSeconds);
+        }
+        if (result == null) {
+            throw new IllegalStateException("Seat hold script returned no result.");
+        }
+        return switch (result.intValue()) {
+            case 1 -> HoldOutcome.CLAIMED;
+            case 0 -> HoldOutcome.ALREADY_BOOKED;
+            case 2 -> HoldOutcome.ALREADY_HELD;
+            default -> HoldOutcome.UNKNOWN_SEAT;
+        };
+    }
+
+    /**
+     * Claims all given seats for one user in a single script call, or none.
+     */
+    public BatchHoldResult tryHoldAll(Long flightId, List<String> seatNumbers, String userId, long ttlSeconds) {
+        List<Long> result = runHoldAllScript(flightId, seatNumbers, userId, ttlSeconds);
+        if (result != null && result.get(0) == -1) {
+            seed(flightId);
+            result = runHoldAllScript(flightId, seatNumbers, userId, ttlSeconds);
+        }
+        if (result == null || result.size() != 2) {
+            throw new IllegalStateException("Seat hold script returned no result.");
+        }
+        int index = result.get(1).intValue();
+        String seatNumber = index > 0 ? seatNumbers.get(index - 1) : null;
+        return switch (result.get(0).intValue()) {
+            case 1 -> new BatchHoldResult(HoldOutcome.CLAIMED, null);
+            case 0 -> new BatchHoldResult(HoldOutcome.ALREADY_BOOKED, seatNumber);
+            case 2 -> new BatchHoldResult(HoldOutcome.ALREADY_HELD, seatNumber);
+            default -> new BatchHoldResult(HoldOutcome.UNKNOWN_SEAT, seatNumber);
+        };
+    }
+
+    /**
+     * Compensates a multi-seat claim whose DB write failed: releases every hold
+     * key that still belongs to the user.
+     */
+    public void releaseHolds(Long flightId, List<String> seatNumbers, String userId) {
+        for (String seatNumber : seatNumbers) {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(SeatService.buildHoldKey(flightId, seatNumber)), userId);
+        }
+    }
+
+    public void markConfirmed(Long flightId, String seatNumber) {
+        redisTemplate.execute(UPDATE_SCRIPT, List.of(statusKey(flightId)), seatNumber, "C");
+    }
+
+    /**
+     * Offers seats whose DB row was just released to the given waitlist
+     * candidates (see OFFER_SCRIPT). One script per flight, all flights in one
+     * pipelined round trip.
+     *
+     * @param candidatesByFlight users popped from each flight's waitlist, earliest first
+     * @return the seats now held for a waitlisted user
+     */
+    public List<Offer> offerToWaitlist(Map<Long, List<String>> seatsByFlight,
+                                       Map<Long, List<String>> candidatesByFlight, long ttlSeconds) {
+        if (seatsByFlight.isEmpty()) {
+            return List.of();
+        }
+        List<Long> flightIds = new ArrayList<>(seatsByFlight.keySet());
+        boolean legacyKeys = scriptsCheckLegacyHoldKeys();
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                for (Long flightId : flightIds) {
+                    List<String> seatNumbers = seatsByFlight.get(flightId);
+                    List<String> candidates = candidatesByFlight.getOrDefault(flightId, List.of());
+                    List<String> keys = new ArrayList<>(2 * seatNumbers.size() + 1);
+                    keys.add(statusKey(flightId));
+                    List<String> args = new ArrayList<>(seatNumbers.size() + candidates.size() + 2);
+                    args.add(String.valueOf(ttlSeconds));
+                    args.add(legacyKeys ? "1" : "0");
+                    for (String seatNumber : seatNumbers) {
+                        keys.add(SeatService.buildHoldKey(flightId, seatNumber));
+                        args.add(seatNumber);
+                    }
+                    if (legacyKeys) {
+                        seatNumbers.forEach(seatNumber -> keys.add(SeatService.legacyHoldKey(flightId, seatNumber)));
+                    }
+                    args.addAll(candidates);
+                    redisTemplate.execute(OFFER_SCRIPT, keys, args.toArray());
+                }
+                return null;
+            }
+        });
+
+        List<Offer> offers = new ArrayList<>();
+        for (int i = 0; i < flightIds.size(); i++) {
+            if (results.get(i) instanceof List<?> pairs) {
+                for (int j = 0; j + 1 < pairs.size(); j += 2) {
+                    offers.add(new Offer(new SeatRef(flightIds.get(i), (String) pairs.get(j)), (String) pairs.get(j + 1)));
+                }
+            }
+        }
+        return offers;
+    }
+
+    /**
+     * Drops a user's hold (if it is still theirs) and forgets the flight's
+     * status hash so it is re-seeded from the DB. Used when the deferred DB
+     * write finds the Redis view was stale.
+     *
+     * If the hold is already gone — typically the user confirmed the seat
+     * before the deferred write ran — Redis is not stale and nothing is dropped.
+     *
+     * @return true if a live hold was revoked
+     */
+    public boolean revokeHold(Long flightId, String seatNumber, String userId) {
+        Long released = redisTemplate.execute(RELEASE_SCRIPT,
+                List.of(SeatService.buildHoldKey(flightId, seatNumber)), userId);
+        if (released == null || released == 0) {
+            return false;
+        }
+        redisTemplate.delete(statusKey(flightId));
+        return true;
+    }
+
+    /**
+     * Appends freshly written holds to the hold log, due when the hold TTL ends.
+     */
+    public void logHolds(List<SeatRef> seats) {
+        long dueAt = System.currentTimeMillis() + Duration.ofSeconds(SeatService.HOLD_DURATION_SECONDS).toMillis();
+        Set<ZSetOperations.TypedTuple<String>> entries = new HashSet<>(seats.size() * 2);
+        for (SeatRef seat : seats) {
+            entries.add(new DefaultTypedTuple<>(seat.encode(), (double) dueAt));
+        }
+        redisTemplate.opsForZSet().add(HOLD_LOG_KEY, entries);
+    }
+
+    /**
+     * Removes and returns up to {@code limit} logged holds that have expired.
+     *
+     * Three round trips: the due entries with their scores, then their hold
+     * keys' PTTL in one pipeline, then one pipeline that removes the expired
+     * entries and pushes live ones back to their real expiry. Hold keys live
+     * in their flights' cluster slots, so they are not touched from a script
+     * on the log's key; instead each entry is only settled if its score is
+     * unchanged, so a seat re-held (and re-logged) after its PTTL was read
+     * keeps its entry. An entry is only returned by the poller whose ZREM
+     * removed it.
+     *
+     * The caller must still release the returned seats with a
+     * {@code heldBefore} no later than this call, so a re-hold written to
+     * the DB after the expiry check is not flipped to AVAILABLE.
+     */
+    public List<SeatRef> pollExpiredHolds(int limit) {
+        long now = System.currentTimeMillis();
+        Set<ZSetOperations.TypedTuple<String>> due = redisTemplate.opsForZSet()
+                .rangeByScoreWithScores(HOLD_LOG_KEY, Double.NEGATIVE_INFINITY, now, 0, limit);
+        if (due == null || due.isEmpty()) {
+            return List.of();
+        }
+        List<SeatRef> seats = new ArrayList<>(due.size());
+        List<String> members = new ArrayList<>(due.size());
+        List<Long> scores = new ArrayList<>(due.size());
+        for (ZSetOperations.TypedTuple<String> entry : due) {
+            if (entry.getValue() == null || entry.getScore() == null) {
+                continue;
+            }
+            members.add(entry.getValue());
+            scores.add(entry.getScore().longValue());
+            seats.add(SeatRef.decode(entry.getValue()));
+        }
+        List<Object> ttls = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                for (SeatRef seat : seats) {
+                    redisTemplate.getExpire(SeatService.buildHoldKey(seat.flightId(), seat.seatNumber()),
+                            TimeUnit.MILLISECONDS);
+                }
+                return null;
+            }
+        });
+        byte[] logKey = HOLD_LOG_KEY.getBytes(StandardCharsets.UTF_8);
+        List<Object> removed = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < seats.size(); i++) {
+                long ttl = ttls.get(i) instanceof Long millis ? millis : -2;
+                connection.scriptingCommands().eval(SETTLE_LOG_ENTRY_SCRIPT, ReturnType.INTEGER, 1, logKey,
+                        members.get(i).getBytes(StandardCharsets.UTF_8),
+                        String.valueOf(scores.get(i)).getBytes(StandardCharsets.UTF_8),
+                        (ttl > 0 ? String.valueOf(now + ttl) : "").getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        List<SeatRef> expired = new ArrayList<>();
+        for (int i = 0; i < seats.size(); i++) {
+            if (removed.get(i) instanceof Long count && count > 0) {
+                expired.add(seats.get(i));
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * True while holds written under the untagged key format may still be
+     * live: for {@code legacy-hold-key-window-ms} after this node started,
+     * which must cover the rolling deploy plus one hold TTL.
+     */
+    public boolean inLegacyHoldKeyWindow() {
+        return System.currentTimeMillis() - startedAtMillis < legacyHoldKeyWindowMillis;
+    }
+
+    /** The claim scripts can only check untagged keys outside Redis Cluster. */
+    private boolean scriptsCheckLegacyHoldKeys() {
+        return clusterNodes.isBlank() && inLegacyHoldKeyWindow();
+    }
+
+    private Long runHoldScript(Long flightId, String seatNumber, String userId, long ttlSeconds) {
+        List<String> keys = scriptsCheckLegacyHoldKeys()
+                ? List.of(statusKey(flightId), SeatService.buildHoldKey(flightId, seatNumber),
+                        SeatService.legacyHoldKey(flightId, seatNumber))
+                : List.of(statusKey(flightId), SeatService.buildHoldKey(flightId, seatNumber));
+        return redisTemplate.execute(HOLD_SCRIPT, keys, seatNumber, userId, String.valueOf(ttlSeconds));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> runHoldAllScript(Long flightId, List<String> seatNumbers, String userId, long ttlSeconds) {
+        List<String> keys = new ArrayList<>(2 * seatNumbers.size() + 1);
+        keys.add(statusKey(flightId));
+        List<String> args = new ArrayList<>(seatNumbers.size() + 2);
+        args.add(userId);
+        args.add(String.valueOf(ttlSeconds));
+        for (String seatNumber : seatNumbers) {
+            keys.add(SeatService.buildHoldKey(flightId, seatNumber));
+            args.add(seatNumber);
+        }
+        if (scriptsCheckLegacyHoldKeys()) {
+            seatNumbers.forEach(seatNumber -> keys.add(SeatService.legacyHoldKey(flightId, seatNumber)));
+        }
+        return redisTemplate.execute(HOLD_ALL_SCRIPT, keys, args.toArray());
+    }
+
+    private void seed(Long flightId) {
+        List<Seat> seats = seatRepository.findByFlightId(flightId);
+        List<String> args = new ArrayList<>(seats.size() * 2 + 1);
+        for (Seat seat : seats) {
+            args.add(seat.getSeatNumber());
+            args.add(seat.getStatus().name().substring(0, 1));
+        }
+        args.add(String.valueOf(STATUS_TTL.toSeconds()));
+        redisTemplate.execute(SEED_SCRIPT, List.of(statusKey(flightId)), args.toArray());
+        log.info("Seeded Redis seat inventory for flight {} ({} seats)", flightId, seats.size());
+    }
+
+    /** Same {@code {flightId}} hash tag as the flight's hold keys (SeatService.buildHoldKey). */
+    private String statusKey(Long flightId) {
+        return STATUS_KEY_PREFIX + "{" + flightId + "}";
+    }
+}
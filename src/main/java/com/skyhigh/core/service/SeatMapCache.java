@@ -0,0 +1,166 @@
+package com.skyhigh.core.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skyhigh.core.model.Seat;
+import com.skyhigh.core.repository.SeatRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Node-local cache of per-flight seat map snapshots.
+ *
+ * A flight's seats are read from PostgreSQL once and then kept up to date
+ * incrementally by the write paths (hold, confirm, zombie cleanup), so the
+ * seat-map endpoint is served without a DB round trip.
+ *
+ * Every committed change is published on {@link #DELTA_CHANNEL}; all nodes
+ * (including this one) apply it to their snapshots and push it to seat-map
+ * stream subscribers. Snapshots are additionally reloaded after
+ * {@code skyhigh.seat-map.max-age-ms} as a safety net for lost messages.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatMapCache {
+
+    public static final String DELTA_CHANNEL = "seat_map:deltas";
+
+    private final SeatRepository seatRepository;
+    private final ObjectMapper objectMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final ConcurrentMap<Long, FlightSeatMap> snapshots = new ConcurrentHashMap<>();
+    /** Striped so unknown flight ids requested by clients cannot grow the lock table. */
+    private final ReentrantLock[] loadLocks = newLoadLocks(64);
+
+    @Value("${skyhigh.seat-map.max-age-ms:5000}")
+    private long maxAgeMillis = 5000;
+
+    /**
+     * Returns the current snapshot for a flight, loading it on first access.
+     * Returns null if the flight does not exist or has no seats.
+     */
+    public FlightSeatMap getSnapshot(Long flightId) {
+        long now = System.currentTimeMillis();
+        FlightSeatMap current = snapshots.get(flightId);
+        if (current != null && now - current.getLoadedAtMillis() < maxAgeMillis) {
+            return current;
+        }
+        // One query per miss: concurrent loads of the same flight wait on a per-flight
+        // lock. Not compute() — its bin monitor would pin virtual threads across JDBC.
+        ReentrantLock lock = loadLocks[Math.floorMod(flightId.hashCode(), loadLocks.length)];
+        lock.lock();
+        try {
+            FlightSeatMap existing = snapshots.get(flightId);
+            if (existing != null && now - existing.getLoadedAtMillis() < maxAgeMillis) {
+                return existing;
+            }
+            FlightSeatMap loaded = load(flightId);
+            if (loaded != null) {
+                snapshots.put(flightId, loaded);
+            } else {
+                snapshots.remove(flightId);
+            }
+            return loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the pre-serialized seat map of a flight, or null if the flight
+     * does not exist or has no seats.
+     */
+    public FlightSeatMap.RenderedSeatMap getRendered(Long flightId) {
+        FlightSeatMap snapshot = getSnapshot(flightId);
+        return snapshot != null ? snapshot.render(objectMapper) : null;
+    }
+
+    public void markHeld(Long flightId, String seatNumber) {
+        afterCommit(() -> apply(flightId, seatNumber, Seat.SeatStatus.HELD));
+    }
+
+    public void markConfirmed(Long flightId, String seatNumber) {
+        afterCommit(() -> apply(flightId, seatNumber, Seat.SeatStatus.CONFIRMED));
+    }
+
+    public void markAvailable(Long flightId, String seatNumber) {
+        afterCommit(() -> apply(flightId, seatNumber, Seat.SeatStatus.AVAILABLE));
+    }
+
+    public void evict(Long flightId) {
+        snapshots.remove(flightId);
+    }
+
+    /**
+     * Applies a delta received from the pub/sub channel.
+     *
+     * @return true if this node's snapshot changed
+     */
+    public boolean applyDelta(SeatMapDelta delta) {
+        FlightSeatMap snapshot = snapshots.get(delta.flightId());
+        return snapshot != null && snapshot.applyDelta(delta.seatNumber(), delta.status(), delta.version());
+    }
+
+    private void apply(Long flightId, String seatNumber, Seat.SeatStatus status) {
+        FlightSeatMap snapshot = snapshots.get(flightId);
+        // Not loaded on this node yet — publish with version 0 (unknown) for the others
+        long version = snapshot != null ? snapshot.updateStatus(seatNumber, status) : 0;
+        if (version < 0) {
+            return;
+        }
+        log.debug("Seat map {}: seat {} -> {} (v{})", flightId, seatNumber, status, version);
+        try {
+            redisTemplate.convertAndSend(DELTA_CHANNEL, new SeatMapDelta(flightId, seatNumber, status, version).encode());
+        } catch (Exception e) {
+            // Other nodes converge on their next snapshot reload
+            log.warn("Failed to publish seat map delta for flight {}: {}", flightId, e.getMessage());
+        }
+    }
+
+    private static ReentrantLock[] newLoadLocks(int stripes) {
+        ReentrantLock[] locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private FlightSeatMap load(Long flightId) {
+        List<Seat> seats = new ArrayList<>(seatRepository.findByFlightId(flightId));
+        if (seats.isEmpty()) {
+            return null;
+        }
+        seats.sort(Comparator.comparing(Seat::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        log.debug("Loaded seat map snapshot for flight {} ({} seats)", flightId, seats.size());
+        return FlightSeatMap.of(flightId, seats);
+    }
+
+    /**
+     * Seat state must only change in the cache once the DB change is durable.
+     * Outside a transaction (e.g. unit tests) the update is applied immediately.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
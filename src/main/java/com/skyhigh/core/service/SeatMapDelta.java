@@ -0,0 +1,30 @@
+package com.skyhigh.core.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.skyhigh.core.model.Seat;
+
+/**
+ * A single committed seat-status change, as fanned out to other nodes over
+ * Redis pub/sub and pushed to seat-map stream subscribers.
+ *
+ * On the wire between nodes it is encoded as
+ * {@code flightId:seatNumber:STATUS:version} to keep messages tiny.
+ */
+public record SeatMapDelta(@JsonIgnore Long flightId, String seatNumber, Seat.SeatStatus status, long version) {
+
+    public String encode() {
+        return flightId + ":" + seatNumber + ":" + status.name() + ":" + version;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message is not a valid delta
+     */
+    public static SeatMapDelta decode(String message) {
+        String[] parts = message.split(":");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed seat map delta: " + message);
+        }
+        return new SeatMapDelta(Long.valueOf(parts[0]), parts[1],
+                Seat.SeatStatus.valueOf(parts[2]), Long.parseLong(parts[3]));
+    }
+}
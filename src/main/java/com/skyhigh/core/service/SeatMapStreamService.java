@@ -0,0 +1,213 @@
+package com.skyhigh.core.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pushes seat-status deltas to clients over Server-Sent Events, replacing
+ * seat-map polling.
+ *
+ * Each node keeps its own per-flight subscriber sets. Deltas arrive from the
+ * Redis pub/sub channel {@link SeatMapCache#DELTA_CHANNEL} (including the ones
+ * this node published), are applied to the local snapshot, serialized once and
+ * queued to every local subscriber of that flight.
+ *
+ * The listener thread never writes to a socket: each subscriber has a bounded
+ * send queue drained by a virtual thread. A client that lets its queue fill up
+ * is disconnected — it reconnects and starts again from a fresh snapshot
+ * instead of holding back the other subscribers of the flight.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatMapStreamService implements MessageListener {
+
+    private static final Executor SENDERS = task -> Thread.ofVirtual().name("seat-map-stream").start(task);
+
+    private final SeatMapCache seatMapCache;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    @Value("${skyhigh.seat-map.stream-timeout-ms:1800000}")
+    private long streamTimeoutMillis = 1_800_000;
+
+    @Value("${skyhigh.seat-map.stream-max-subscribers:20000}")
+    private int maxSubscribers = 20_000;
+
+    @Value("${skyhigh.seat-map.stream-max-subscribers-per-flight:5000}")
+    private int maxSubscribersPerFlight = 5_000;
+
+    @Value("${skyhigh.seat-map.stream-send-queue-size:64}")
+    private int sendQueueSize = 64;
+
+    /**
+     * Opens a delta stream for a flight. The first event ("snapshot") carries
+     * the current seat-map ETag, so the client can fetch the full map once and
+     * then apply deltas on top of it.
+     *
+     * @return null if the flight does not exist or has no seats
+     * @throws RejectedExecutionException if this node or this flight is at its
+     *                                    stream limit
+     */
+    public SseEmitter subscribe(Long flightId) {
+        FlightSeatMap.RenderedSeatMap seatMap = seatMapCache.getRendered(flightId);
+        if (seatMap == null) {
+            return null;
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new RejectedExecutionException("Too many seat map streams on this node");
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        Subscriber subscriber = new Subscriber(flightId, emitter, sendQueueSize);
+        AtomicBoolean added = new AtomicBoolean();
+        // compute() keeps the add atomic with the empty-set pruning in Subscriber.drop()
+        Set<Subscriber> flightSubscribers = subscribers.compute(flightId, (id, set) -> {
+            Set<Subscriber> result = set != null ? set : ConcurrentHashMap.newKeySet();
+            if (result.size() < maxSubscribersPerFlight) {
+                added.set(result.add(subscriber));
+            }
+            return result.isEmpty() ? null : result;
+        });
+        if (!added.get()) {
+            subscriberCount.decrementAndGet();
+            throw new RejectedExecutionException("Too many seat map streams for flight " + flightId);
+        }
+        emitter.onCompletion(subscriber::drop);
+        emitter.onTimeout(subscriber::drop);
+        emitter.onError(e -> subscriber.drop());
+
+        subscriber.enqueue(() -> SseEmitter.event().name("snapshot").data(Map.of("etag", seatMap.etag())));
+        log.debug("Seat map stream opened for flight {} ({} local subscribers)", flightId, flightSubscribers.size());
+        return emitter;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        SeatMapDelta delta;
+        try {
+            delta = SeatMapDelta.decode(new String(message.getBody(), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            log.warn("Dropping seat map delta: {}", e.getMessage());
+            return;
+        }
+        seatMapCache.applyDelta(delta);
+        broadcast(delta);
+    }
+
+    void broadcast(SeatMapDelta delta) {
+        Set<Subscriber> flightSubscribers = subscribers.get(delta.flightId());
+        if (flightSubscribers == null || flightSubscribers.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize seat map delta {}", delta, e);
+            return;
+        }
+        for (Subscriber subscriber : flightSubscribers) {
+            subscriber.enqueue(() -> SseEmitter.event().name("seat").data(json));
+        }
+    }
+
+    /**
+     * Keeps idle streams open through proxies and load balancers; a send that
+     * fails or overflows the queue prunes the subscriber.
+     */
+    @Scheduled(fixedRate = 15_000)
+    public void sendHeartbeats() {
+        for (Long flightId : subscribers.keySet()) {
+            for (Subscriber subscriber : subscribers.getOrDefault(flightId, Set.of())) {
+                subscriber.enqueue(() -> SseEmitter.event().comment("keep-alive"));
+            }
+        }
+    }
+
+    int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * One open stream. Events are queued as builder suppliers because an
+     * {@link SseEmitter.SseEventBuilder} is consumed when it is sent.
+     */
+    private final class Subscriber {
+
+        private final Long flightId;
+        private final SseEmitter emitter;
+        private final Queue<Supplier<SseEmitter.SseEventBuilder>> pending;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(Long flightId, SseEmitter emitter, int queueSize) {
+            this.flightId = flightId;
+            this.emitter = emitter;
+            this.pending = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        void enqueue(Supplier<SseEmitter.SseEventBuilder> event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!pending.offer(event)) {
+                log.debug("Disconnecting slow seat map subscriber ({} events queued)", pending.size());
+                drop();
+                // complete() waits for an in-flight send, so never call it on this thread
+                SENDERS.execute(emitter::complete);
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                SENDERS.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Supplier<SseEmitter.SseEventBuilder> event;
+                while (!closed.get() && (event = pending.poll()) != null) {
+                    try {
+                        emitter.send(event.get());
+                    } catch (IOException | IllegalStateException e) {
+                        // Client went away — drop it; the container completes the emitter
+                        drop();
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!closed.get() && !pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        void drop() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.computeIfPresent(flightId, (id, set) -> set.remove(this) && set.isEmpty() ? null : set);
+                subscriberCount.decrementAndGet();
+                pending.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.exception.AbuseBlockedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for the seat hold / confirm hot path, registered once so recording
+ * is a field read plus a histogram update.
+ *
+ * <ul>
+ *   <li>{@code seat.hold}, {@code seat.hold.batch}, {@code seat.confirm} —
+ *       end-to-end latency, tagged with the outcome (success, contended,
+ *       already_booked, hold_expired, not_found, conflict, blocked, rejected,
+ *       error)</li>
+ *   <li>{@code seat.hold.redis} — the Redis claim, tagged by command
+ *       (setnx, lua, lua_batch)</li>
+ *   <li>{@code seat.db.lock.wait} — the SELECT ... FOR UPDATE on the seat
+ *       rows (query plus lock wait), tagged by operation</li>
+ * </ul>
+ *
+ * All are published with percentile histograms (1 ms – 5 s).
+ */
+@Component
+public class SeatMetrics {
+
+    public enum Operation {
+        HOLD("seat.hold"), HOLD_BATCH("seat.hold.batch"), CONFIRM("seat.confirm");
+
+        private final String meterName;
+
+        Operation(String meterName) {
+            this.meterName = meterName;
+        }
+
+        public String meterName() {
+            return meterName;
+        }
+    }
+
+    public enum Outcome {
+        SUCCESS, CONTENDED, ALREADY_BOOKED, HOLD_EXPIRED, NOT_FOUND, CONFLICT, BLOCKED, REJECTED, ERROR
+    }
+
+    private final Timer[][] outcomes;
+    private final Timer setnx;
+    private final Timer luaClaim;
+    private final Timer luaBatchClaim;
+    private final Timer holdLockWait;
+    private final Timer batchLockWait;
+    private final Timer confirmLockWait;
+
+    public SeatMetrics(MeterRegistry registry) {
+        Operation[] operations = Operation.values();
+        Outcome[] outcomeValues = Outcome.values();
+        this.outcomes = new Timer[operations.length][outcomeValues.length];
+        for (Operation operation : operations) {
+            for (Outcome outcome : outcomeValues) {
+                outcomes[operation.ordinal()][outcome.ordinal()] = timer(operation.meterName)
+                        .description("Seat " + operation.name().toLowerCase(Locale.ROOT) + " requests by outcome")
+                        .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                        .register(registry);
+            }
+        }
+        this.setnx = redisClaim(registry, "setnx");
+        this.luaClaim = redisClaim(registry, "lua");
+        this.luaBatchClaim = redisClaim(registry, "lua_batch");
+        this.holdLockWait = lockWait(registry, "hold");
+        this.batchLockWait = lockWait(registry, "hold_batch");
+        this.confirmLockWait = lockWait(registry, "confirm");
+    }
+
+    /** Records a finished request; {@code failure} is null on success. */
+    public void recordOutcome(Operation operation, long startNanos, Throwable failure) {
+        outcomes[operation.ordinal()][outcomeOf(failure).ordinal()]
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer setnx() {
+        return setnx;
+    }
+
+    public Timer luaClaim() {
+        return luaClaim;
+    }
+
+    public Timer luaBatchClaim() {
+        return luaBatchClaim;
+    }
+
+    public Timer holdLockWait() {
+        return holdLockWait;
+    }
+
+    public Timer batchLockWait() {
+        return batchLockWait;
+    }
+
+    public Timer confirmLockWait() {
+        return confirmLockWait;
+    }
+
+    /** Maps SeatService's exceptions to an outcome by type and message, as GlobalExceptionHandler does. */
+    static Outcome outcomeOf(Throwable failure) {
+        if (failure == null) {
+            return Outcome.SUCCESS;
+        }
+        if (failure instanceof AbuseBlockedException) {
+            return Outcome.BLOCKED;
+        }
+        if (failure instanceof IllegalArgumentException) {
+            return Outcome.NOT_FOUND;
+        }
+        if (failure instanceof IllegalStateException) {
+            String message = failure.getMessage() == null ? "" : failure.getMessage();
+            if (message.contains("already booked") || message.contains("already confirmed")) {
+                return Outcome.ALREADY_BOOKED;
+            }
+            if (message.contains("currently held") || message.contains("being confirmed")) {
+                return Outcome.CONTENDED;
+            }
+            if (message.contains("expired") || message.contains("belongs to another user")) {
+                return Outcome.HOLD_EXPIRED;
+            }
+            if (message.contains("modified concurrently")) {
+                return Outcome.CONFLICT;
+            }
+            return Outcome.REJECTED;
+        }
+        return Outcome.ERROR;
+    }
+
+    private static Timer redisClaim(MeterRegistry registry, String command) {
+        return timer("seat.hold.redis")
+                .description("Redis hold claim latency")
+                .tag("command", command)
+                .register(registry);
+    }
+
+    private static Timer lockWait(MeterRegistry registry, String operation) {
+        return timer("seat.db.lock.wait")
+                .description("SELECT ... FOR UPDATE on seat rows, including the wait for the row lock")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private static Timer.Builder timer(String name) {
+        return Timer.builder(name)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,23 @@
+package com.skyhigh.core.service;
+
+/**
+ * Identifies one seat of one flight. Encoded as {@code flightId:seatNumber};
+ * hold keys use their own format, see {@link SeatService#buildHoldKey}.
+ */
+public record SeatRef(Long flightId, String seatNumber) {
+
+    public String encode() {
+        return flightId + ":" + seatNumber;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a valid seat reference
+     */
+    public static SeatRef decode(String value) {
+        int separator = value.indexOf(':');
+        if (separator <= 0 || separator == value.length() - 1) {
+            throw new IllegalArgumentException("Malformed seat reference: " + value);
+        }
+        return new SeatRef(Long.valueOf(value.substring(0, separator)), value.substring(separator + 1));
+    }
+}
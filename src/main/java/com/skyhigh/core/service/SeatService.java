@@ -4,14 +4,23 @@ import com.skyhigh.core.model.*;
 import com.skyhigh.core.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -21,24 +30,208 @@ public class SeatService {
     private final SeatRepository seatRepository;
     private final BookingRepository bookingRepository;
     private final PassengerRepository passengerRepository;
+    private final PassengerDirectory passengerDirectory;
     private final StringRedisTemplate redisTemplate;
+    private final SeatMapCache seatMapCache;
+    private final SeatInventoryService seatInventory;
+    private final SeatStatusWriter seatStatusWriter;
+    private final TransactionOperations transactionOperations;
+    private final SeatLockStripes seatLocks;
+    private final HoldExpiryWheel holdExpiry;
+    private final AbuseDetector abuseDetector;
+    private final SeatMetrics seatMetrics;
+    private final RequestTracer tracer;
 
-    private static final long HOLD_DURATION_SECONDS = 120;
+    static final long HOLD_DURATION_SECONDS = 120;
+    private static final String HOLD_KEY_PREFIX = "seat_hold:";
 
     /**
-     * FIX (CRITICAL): holdSeat is now @Transactional.
+     * When enabled, holds are claimed by a single Redis Lua script and the DB
+     * row is updated asynchronously — losing requests never reach PostgreSQL.
+     */
+    @Value("${skyhigh.seats.atomic-hold-enabled:false}")
+    private boolean atomicHoldEnabled;
+
+    /**
+     * When enabled, the legacy hold and confirmBooking read the seat without a
+     * row lock and write it with a version-checked UPDATE; a lost race is
+     * retried up to optimisticMaxAttempts times with jittered backoff.
+     */
+    @Value("${skyhigh.seats.optimistic-locking-enabled:false}")
+    private boolean optimisticLocking;
+
+    @Value("${skyhigh.seats.optimistic.max-attempts:3}")
+    private int optimisticMaxAttempts = 3;
+
+    @Value("${skyhigh.seats.optimistic.backoff-ms:2}")
+    private long optimisticBackoffMillis;
+
+    /**
+     * Holds a seat for HOLD_DURATION_SECONDS.
+     *
+     * Not @Transactional itself: the atomic path must not borrow a JDBC
+     * connection just to reject a request, so the legacy path opens its
+     * transaction explicitly.
+     */
+    public String holdSeat(Long flightId, String seatNumber, String userId) {
+        return timed(SeatMetrics.Operation.HOLD, flightId, seatNumber,
+                trace -> hold(flightId, seatNumber, userId, trace));
+    }
+
+    private String hold(Long flightId, String seatNumber, String userId, RequestTracer.Trace trace) {
+        // Blocked clients are turned away before any Redis or DB work
+        abuseDetector.checkHold(flightId, userId);
+        trace.stage("abuse.check");
+        if (atomicHoldEnabled) {
+            String holdId = holdSeatAtomically(flightId, seatNumber, userId, trace);
+            abuseDetector.recordHold(flightId, userId, 1);
+            trace.stage("abuse.record");
+            return holdId;
+        }
+        // Duplicate contenders on this node are turned away before they borrow a connection
+        if (!seatLocks.tryAcquire(flightId, seatNumber)) {
+            throw new IllegalStateException("Seat " + seatNumber + " is currently held by another user.");
+        }
+        trace.stage("seat.guard");
+        try {
+            String holdId = optimisticLocking
+                    ? holdSeatOptimistically(flightId, seatNumber, userId, trace)
+                    : transactionOperations.execute(status ->
+                            holdSeatWithRowLock(flightId, seatNumber, userId, trace));
+            trace.stage("commit");
+            holdExpiry.track(flightId, seatNumber);
+            abuseDetector.recordHold(flightId, userId, 1);
+            trace.stage("bookkeeping");
+            return holdId;
+        } finally {
+            seatLocks.release(flightId, seatNumber);
+        }
+    }
+
+    /**
+     * Single round trip: the Lua script checks the flight's seat-status hash and
+     * the hold key and claims the seat. The DB write is deferred to
+     * SeatStatusWriter.
+     */
+    private String holdSeatAtomically(Long flightId, String seatNumber, String userId, RequestTracer.Trace trace) {
+        SeatInventoryService.HoldOutcome outcome = seatMetrics.luaClaim().record(() ->
+                seatInventory.tryHold(flightId, seatNumber, userId, HOLD_DURATION_SECONDS));
+        trace.stage("redis.claim");
+        switch (outcome) {
+            case ALREADY_BOOKED -> throw new IllegalStateException("Seat " + seatNumber + " is already booked.");
+            case ALREADY_HELD -> throw new IllegalStateException(
+                    "Seat " + seatNumber + " is currently held by another user.");
+            case UNKNOWN_SEAT -> throw new IllegalArgumentException("Seat " + seatNumber + " not found.");
+            case CLAIMED -> {
+                seatStatusWriter.persistHold(flightId, seatNumber, userId);
+                trace.stage("write-behind.enqueue");
+                holdExpiry.track(flightId, seatNumber);
+                trace.stage("expiry.track");
+            }
+        }
+        log.info("Seat {} held by user {} for {}s", seatNumber, userId, HOLD_DURATION_SECONDS);
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * All-or-nothing hold of several seats on one flight (group / family
+     * check-in): one Redis script claims every hold key, then one transaction
+     * locks the rows in id order and flips them with a single UPDATE.
+     * If any seat is unavailable nothing is held.
+     *
+     * @return one hold reference covering all seats
+     */
+    public String holdSeats(Long flightId, List<String> seatNumbers, String userId) {
+        return timed(SeatMetrics.Operation.HOLD_BATCH, flightId, seatNumbers.size(),
+                trace -> holdAll(flightId, seatNumbers, userId, trace));
+    }
+
+    private String holdAll(Long flightId, List<String> seatNumbers, String userId, RequestTracer.Trace trace) {
+        abuseDetector.checkHold(flightId, userId);
+        trace.stage("abuse.check");
+        List<String> seats = seatNumbers.stream().distinct().sorted().toList();
+
+        SeatInventoryService.BatchHoldResult claim = seatMetrics.luaBatchClaim().record(() ->
+                seatInventory.tryHoldAll(flightId, seats, userId, HOLD_DURATION_SECONDS));
+        trace.stage("redis.claim");
+        switch (claim.outcome()) {
+            case ALREADY_BOOKED -> throw new IllegalStateException(
+                    "Seat " + claim.seatNumber() + " is already booked.");
+            case ALREADY_HELD -> throw new IllegalStateException(
+                    "Seat " + claim.seatNumber() + " is currently held by another user.");
+            case UNKNOWN_SEAT -> throw new IllegalArgumentException("Seat " + claim.seatNumber() + " not found.");
+            case CLAIMED -> { }
+        }
+
+        try {
+            transactionOperations.executeWithoutResult(status -> persistGroupHold(flightId, seats, trace));
+        } catch (RuntimeException e) {
+            // Same guarantee as the single-seat path: no phantom holds survive a DB failure
+            seatInventory.releaseHolds(flightId, seats, userId);
+            throw e;
+        }
+        trace.stage("commit");
+        if (atomicHoldEnabled) {
+            // Rows written outside the write-behind flusher still need a hold-log entry
+            seatInventory.logHolds(seats.stream().map(seat -> new SeatRef(flightId, seat)).toList());
+        }
+        seats.forEach(seat -> holdExpiry.track(flightId, seat));
+        abuseDetector.recordHold(flightId, userId, seats.size());
+        trace.stage("bookkeeping");
+
+        log.info("Seats {} held by user {} for {}s", seats, userId, HOLD_DURATION_SECONDS);
+        return UUID.randomUUID().toString();
+    }
+
+    private void persistGroupHold(Long flightId, List<String> seatNumbers, RequestTracer.Trace trace) {
+        List<Seat> locked = seatMetrics.batchLockWait().record(() ->
+                seatRepository.findByFlightIdAndSeatNumberInWithLock(flightId, seatNumbers));
+        trace.stage("db.lock");
+        if (locked.size() != seatNumbers.size()) {
+            Set<String> found = locked.stream().map(Seat::getSeatNumber).collect(Collectors.toSet());
+            String missing = seatNumbers.stream().filter(seat -> !found.contains(seat)).findFirst().orElse("?");
+            throw new IllegalArgumentException("Seat " + missing + " not found.");
+        }
+        List<Long> ids = new ArrayList<>(locked.size());
+        List<String> changed = new ArrayList<>(locked.size());
+        for (Seat seat : locked) {
+            if (seat.getStatus() == Seat.SeatStatus.CONFIRMED) {
+                throw new IllegalStateException("Seat " + seat.getSeatNumber() + " is already booked.");
+            }
+            if (seat.getStatus() == Seat.SeatStatus.HELD) {
+                if (!atomicHoldEnabled) {
+                    throw new IllegalStateException(
+                            "Seat " + seat.getSeatNumber() + " is currently held by another user.");
+                }
+                // In atomic mode Redis is authoritative: a HELD row without a live hold is a
+                // zombie we now own. Leave it untouched so its version stays in step with the
+                // seat-map snapshot, which skips unchanged statuses.
+                continue;
+            }
+            ids.add(seat.getId());
+            changed.add(seat.getSeatNumber());
+        }
+        if (!ids.isEmpty()) {
+            seatRepository.markHeldByIds(ids, LocalDateTime.now());
+            changed.forEach(seat -> seatMapCache.markHeld(flightId, seat));
+        }
+        trace.stage("seat.update");
+    }
+
+    /**
+     * FIX (CRITICAL): the legacy hold runs in a transaction.
      * Redis SETNX is attempted first. On any DB failure the Redis key is
      * deleted in a finally/catch block so no phantom holds remain.
      * A pessimistic lock is acquired on the seat row to eliminate the
      * race window between reading and updating status.
      */
-    @Transactional
-    public String holdSeat(Long flightId, String seatNumber, String userId) {
-        String key = buildKey(flightId, seatNumber);
+    private String holdSeatWithRowLock(Long flightId, String seatNumber, String userId, RequestTracer.Trace trace) {
+        String key = buildHoldKey(flightId, seatNumber);
 
         // 1. Atomic Redis lock attempt (SETNX + TTL)
-        Boolean success = redisTemplate.opsForValue()
-                .setIfAbsent(key, userId, Duration.ofSeconds(HOLD_DURATION_SECONDS));
+        Boolean success = seatMetrics.setnx().record(() -> redisTemplate.opsForValue()
+                .setIfAbsent(key, userId, Duration.ofSeconds(HOLD_DURATION_SECONDS)));
+        trace.stage("redis.setnx");
 
         if (Boolean.FALSE.equals(success)) {
             throw new IllegalStateException("Seat " + seatNumber + " is currently held by another user.");
@@ -47,8 +240,10 @@ public class SeatService {
         try {
             // 2. FIX: single query with pessimistic lock — eliminates two-step lookup
             // and closes the race window with CleanupScheduler.
-            Seat seat = seatRepository.findByFlightIdAndSeatNumberWithLock(flightId, seatNumber)
+            Seat seat = seatMetrics.holdLockWait().record(() ->
+                            seatRepository.findByFlightIdAndSeatNumberWithLock(flightId, seatNumber))
                     .orElseThrow(() -> new IllegalArgumentException("Seat " + seatNumber + " not found."));
+            trace.stage("db.lock");
 
             // 3. Guard: reject if already confirmed or held by a zombie that Redis missed
             if (seat.getStatus() == Seat.SeatStatus.CONFIRMED) {
@@ -61,6 +256,8 @@ public class SeatService {
             // 4. Transition to HELD atomically within the transaction
             seat.setStatus(Seat.SeatStatus.HELD);
             seatRepository.save(seat);
+            seatMapCache.markHeld(flightId, seatNumber);
+            trace.stage("seat.update");
 
             log.info("Seat {} held by user {} for {}s", seatNumber, userId, HOLD_DURATION_SECONDS);
             return UUID.randomUUID().toString();
@@ -73,6 +270,51 @@ public class SeatService {
         }
     }
 
+    /**
+     * Optimistic variant of the legacy hold: same SETNX, but the row is read
+     * without FOR UPDATE and flipped with a version-checked UPDATE. Only the DB
+     * step is retried — the Redis hold stays claimed across attempts.
+     */
+    private String holdSeatOptimistically(Long flightId, String seatNumber, String userId,
+                                          RequestTracer.Trace trace) {
+        String key = buildHoldKey(flightId, seatNumber);
+
+        Boolean success = seatMetrics.setnx().record(() -> redisTemplate.opsForValue()
+                .setIfAbsent(key, userId, Duration.ofSeconds(HOLD_DURATION_SECONDS)));
+        trace.stage("redis.setnx");
+        if (Boolean.FALSE.equals(success)) {
+            throw new IllegalStateException("Seat " + seatNumber + " is currently held by another user.");
+        }
+
+        try {
+            withOptimisticRetry(seatNumber, () -> transactionOperations.execute(status -> {
+                Seat seat = seatRepository.findByFlightIdAndSeatNumber(flightId, seatNumber)
+                        .orElseThrow(() -> new IllegalArgumentException("Seat " + seatNumber + " not found."));
+                trace.stage("db.read");
+                if (seat.getStatus() == Seat.SeatStatus.CONFIRMED) {
+                    throw new IllegalStateException("Seat " + seatNumber + " is already booked.");
+                }
+                if (seat.getStatus() == Seat.SeatStatus.HELD) {
+                    throw new IllegalStateException("Seat " + seatNumber + " is currently held by another user.");
+                }
+                int updated = seatRepository.compareAndSetStatus(seat.getId(), seat.getVersion(),
+                        Seat.SeatStatus.AVAILABLE, Seat.SeatStatus.HELD, LocalDateTime.now());
+                trace.stage("db.cas");
+                if (updated == 0) {
+                    return null;
+                }
+                seatMapCache.markHeld(flightId, seatNumber);
+                return seat;
+            }));
+        } catch (Exception e) {
+            redisTemplate.delete(key);
+            throw e;
+        }
+
+        log.info("Seat {} held by user {} for {}s", seatNumber, userId, HOLD_DURATION_SECONDS);
+        return UUID.randomUUID().toString();
+    }
+
     /**
      * FIX (CRITICAL): Redis key is deleted AFTER the DB transaction commits,
      * using TransactionSynchronizationManager.afterCommit().
@@ -83,64 +325,229 @@ public class SeatService {
      * findByFlightIdAndSeatNumberWithLock
      * query instead of two separate queries (plain find → then lock by ID),
      * eliminating the stale-read window between them.
+     *
+     * The Redis ownership check and the in-process seat guard run before the
+     * transaction starts, so rejected requests never take a pooled connection.
+     * The passenger id comes from PassengerDirectory (cached, else one upsert)
+     * so the transaction only inserts the booking and flips the seat.
      */
-    @Transactional
     public Booking confirmBooking(Long flightId, String seatNumber, String userId, String passengerEmail) {
-        String key = buildKey(flightId, seatNumber);
+        return timed(SeatMetrics.Operation.CONFIRM, flightId, seatNumber,
+                trace -> confirm(flightId, seatNumber, userId, passengerEmail, trace));
+    }
+
+    private Booking confirm(Long flightId, String seatNumber, String userId, String passengerEmail,
+                            RequestTracer.Trace trace) {
+        String taggedKey = buildHoldKey(flightId, seatNumber);
 
         // 1. Verify Redis hold still belongs to this user
-        String holderId = redisTemplate.opsForValue().get(key);
+        String holderId = redisTemplate.opsForValue().get(taggedKey);
+        String heldKey = taggedKey;
+        if (!userId.equals(holderId) && seatInventory.inLegacyHoldKeyWindow()) {
+            // Held by a node still on the untagged key format (rolling deploy)
+            heldKey = legacyHoldKey(flightId, seatNumber);
+            holderId = redisTemplate.opsForValue().get(heldKey);
+        }
+        trace.stage("redis.get");
         if (holderId == null || !holderId.equals(userId)) {
             throw new IllegalStateException("Seat hold has expired or belongs to another user.");
         }
+        String key = heldKey;
 
+        // 1b. Only one confirm per seat may wait on the row lock from this node
+        if (!seatLocks.tryAcquire(flightId, seatNumber)) {
+            throw new IllegalStateException("Seat " + seatNumber + " is already being confirmed.");
+        }
+        trace.stage("seat.guard");
+        try {
+            // Usually a cache hit; a miss is one upsert, committed before the seat row is locked
+            Long passengerId = passengerDirectory.idFor(passengerEmail);
+            trace.stage("passenger.resolve");
+            Booking booking = optimisticLocking
+                    ? withOptimisticRetry(seatNumber, () -> transactionOperations.execute(status ->
+                            confirmOptimistically(flightId, seatNumber, passengerId, key, trace)))
+                    : transactionOperations.execute(status ->
+                            confirmWithRowLock(flightId, seatNumber, passengerId, key, trace));
+            trace.stage("commit");
+            abuseDetector.recordConfirm(flightId, userId);
+            return booking;
+        } finally {
+            seatLocks.release(flightId, seatNumber);
+        }
+    }
+
+    private Booking confirmWithRowLock(Long flightId, String seatNumber, Long passengerId, String key,
+                                       RequestTracer.Trace trace) {
         // 2. FIX: single locked query — no stale-read between two DB calls
-        Seat lockedSeat = seatRepository.findByFlightIdAndSeatNumberWithLock(flightId, seatNumber)
+        Seat lockedSeat = seatMetrics.confirmLockWait().record(() ->
+                        seatRepository.findByFlightIdAndSeatNumberWithLock(flightId, seatNumber))
                 .orElseThrow(() -> new IllegalArgumentException("Seat not found"));
+        trace.stage("db.lock");
 
         // 3. Final safety check under the DB lock
         if (lockedSeat.getStatus() == Seat.SeatStatus.CONFIRMED) {
             throw new IllegalStateException("Seat already confirmed (concurrent booking detected).");
         }
 
-        // 4. Find or create passenger
-        Passenger passenger = passengerRepository.findByEmail(passengerEmail)
-                .orElseGet(() -> passengerRepository.save(
-                        Passenger.builder()
-                                .email(passengerEmail)
-                                .firstName("Guest")
-                                .lastName("Passenger")
-                                .build()));
+        Booking booking = saveBooking(lockedSeat, passengerId, trace);
+
+        // 5. Confirm the seat
+        lockedSeat.setStatus(Seat.SeatStatus.CONFIRMED);
+        seatRepository.save(lockedSeat);
+        trace.stage("seat.update");
+        afterConfirm(flightId, seatNumber, key, booking);
+        return booking;
+    }
+
+    /**
+     * One optimistic confirm attempt: plain read, then a version-checked
+     * HELD/AVAILABLE → CONFIRMED update. The booking row is only inserted once
+     * the seat has been won.
+     *
+     * @return null if another writer changed the row first (caller retries)
+     */
+    private Booking confirmOptimistically(Long flightId, String seatNumber, Long passengerId, String key,
+                                          RequestTracer.Trace trace) {
+        Seat seat = seatRepository.findByFlightIdAndSeatNumber(flightId, seatNumber)
+                .orElseThrow(() -> new IllegalArgumentException("Seat not found"));
+        trace.stage("db.read");
+        if (seat.getStatus() == Seat.SeatStatus.CONFIRMED) {
+            throw new IllegalStateException("Seat already confirmed (concurrent booking detected).");
+        }
+        int updated = seatRepository.compareAndSetStatus(seat.getId(), seat.getVersion(), seat.getStatus(),
+                Seat.SeatStatus.CONFIRMED, LocalDateTime.now());
+        trace.stage("db.cas");
+        if (updated == 0) {
+            return null;
+        }
+        // The entity is detached now; bring it in line with the row for the response
+        seat.setStatus(Seat.SeatStatus.CONFIRMED);
+        seat.setVersion(seat.getVersion() + 1);
+
+        Booking booking = saveBooking(seat, passengerId, trace);
+        afterConfirm(flightId, seatNumber, key, booking);
+        return booking;
+    }
 
-        // 5. Create Booking record with full UUID — eliminates collision risk
+    private Booking saveBooking(Seat seat, Long passengerId, RequestTracer.Trace trace) {
+        // 4. Create Booking record with full UUID — eliminates collision risk.
+        // The passenger was resolved up front; a reference is enough for the FK.
         Booking booking = Booking.builder()
                 .bookingReference("PNR-" + UUID.randomUUID().toString().replace("-", "").substring(0, 8).toUpperCase())
-                .flight(lockedSeat.getFlight())
-                .seat(lockedSeat)
-                .passenger(passenger)
+                .flight(seat.getFlight())
+                .seat(seat)
+                .passenger(passengerRepository.getReferenceById(passengerId))
                 .status(Booking.BookingStatus.CONFIRMED)
                 .build();
         bookingRepository.save(booking);
+        trace.stage("booking.insert");
+        return booking;
+    }
 
-        // 6. Confirm the seat
-        lockedSeat.setStatus(Seat.SeatStatus.CONFIRMED);
-        seatRepository.save(lockedSeat);
+    private void afterConfirm(Long flightId, String seatNumber, String key, Booking booking) {
+        seatMapCache.markConfirmed(flightId, seatNumber);
 
-        // 7. FIX (CRITICAL): delete Redis key ONLY after DB commit succeeds.
+        // 6. FIX (CRITICAL): delete Redis key ONLY after DB commit succeeds.
         // If the commit fails the Redis TTL will naturally expire — no data corruption.
         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
             @Override
             public void afterCommit() {
                 redisTemplate.delete(key);
+                seatInventory.markConfirmed(flightId, seatNumber);
+                holdExpiry.cancel(flightId, seatNumber);
                 log.info("Redis hold key {} released after successful commit", key);
             }
         });
 
         log.info("Booking confirmed: {} for seat {}", booking.getBookingReference(), seatNumber);
-        return booking;
     }
 
-    private String buildKey(Long flightId, String seatNumber) {
-        return "seat_hold:" + flightId + ":" + seatNumber;
+    /**
+     * Records the call's latency under its outcome (see SeatMetrics) and, if
+     * the call is sampled, its stage breakdown (see RequestTracer).
+     */
+    private <T> T timed(SeatMetrics.Operation operation, Long flightId, Object target,
+                        Function<RequestTracer.Trace, T> call) {
+        long start = System.nanoTime();
+        RequestTracer.Trace trace = tracer.start(operation.meterName());
+        trace.tag("flight", flightId);
+        trace.tag(operation == SeatMetrics.Operation.HOLD_BATCH ? "seats" : "seat", target);
+        try {
+            T result = call.apply(trace);
+            seatMetrics.recordOutcome(operation, start, null);
+            tracer.finish(trace, null);
+            return result;
+        } catch (RuntimeException e) {
+            seatMetrics.recordOutcome(operation, start, e);
+            tracer.finish(trace, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Bounded retry for optimistic attempts. An attempt returns null when its
+     * version-checked UPDATE matched no row; business failures (already booked,
+     * not found) propagate immediately and are never retried.
+     */
+    private <T> T withOptimisticRetry(String seatNumber, Supplier<T> attempt) {
+        for (int i = 1; i <= optimisticMaxAttempts; i++) {
+            T result = attempt.get();
+            if (result != null) {
+                return result;
+            }
+            log.debug("Optimistic update of seat {} lost a race (attempt {}/{})", seatNumber, i,
+                    optimisticMaxAttempts);
+            if (i < optimisticMaxAttempts && optimisticBackoffMillis > 0) {
+                try {
+                    // Jittered exponential backoff so colliding writers spread out
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(optimisticBackoffMillis << (i - 1)) + 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        throw new IllegalStateException("Seat " + seatNumber + " was modified concurrently, please retry.");
+    }
+
+    /**
+     * {@code seat_hold:{flightId}:seatNumber}. The hash tag puts every hold key
+     * of a flight in the same cluster slot as its seat-status hash, so the
+     * hold scripts can touch both.
+     */
+    public static String buildHoldKey(Long flightId, String seatNumber) {
+        return HOLD_KEY_PREFIX + "{" + flightId + "}:" + seatNumber;
+    }
+
+    /**
+     * {@code seat_hold:flightId:seatNumber}, the hold key format before the
+     * hash tag was added. Only read while
+     * {@link SeatInventoryService#inLegacyHoldKeyWindow()} is true.
+     */
+    public static String legacyHoldKey(Long flightId, String seatNumber) {
+        return HOLD_KEY_PREFIX + flightId + ":" + seatNumber;
+    }
+
+    /**
+     * Inverse of buildHoldKey and legacyHoldKey.
+     *
+     * @return null if the key is not a hold key
+     */
+    public static SeatRef parseHoldKey(String key) {
+        if (!key.startsWith(HOLD_KEY_PREFIX)) {
+            return null;
+        }
+        int start = HOLD_KEY_PREFIX.length();
+        boolean tagged = key.startsWith("{", start);
+        int end = tagged ? key.indexOf('}', start) : key.indexOf(':', start);
+        int seatStart = tagged ? end + 2 : end + 1;
+        if (end < 0 || seatStart > key.length() - 1 || (tagged && key.charAt(end + 1) != ':')) {
+            return null;
+        }
+        try {
+            return new SeatRef(Long.valueOf(key.substring(tagged ? start + 1 : start, end)), key.substring(seatStart));
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 }
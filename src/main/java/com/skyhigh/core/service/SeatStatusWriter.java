@@ -0,0 +1,279 @@
+package com.skyhigh.core.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence of seat holds.
+ *
+ * Once the Redis script has claimed a hold it is authoritative; the DB row is
+ * brought in line later. Holds are queued and a single flusher thread writes
+ * them in JDBC batches — one transaction and one connection per batch instead
+ * of one per click. Releases found by the hold-log reconciliation are written
+ * the same way, and the cleanup sweep releases stale holds a chunk per
+ * statement.
+ *
+ * In write-behind mode every flushed hold is first appended to the Redis hold
+ * log (see SeatInventoryService) so the cleanup job can find it again once it
+ * expires, without scanning the seats table. With the legacy hold path the
+ * only holds written here are waitlist offers, and the cleanup job scans the
+ * table as for any other hold.
+ */
+@Service
+@Slf4j
+public class SeatStatusWriter {
+
+    /** Never overwrites CONFIRMED; refreshes updated_at so the zombie sweep leaves it alone. */
+    private static final String MARK_HELD_SQL = "UPDATE seats SET status = 'HELD', version = version + 1, "
+            + "updated_at = ? WHERE flight_id = ? AND seat_number = ? AND status <> 'CONFIRMED'";
+
+    private static final String MARK_AVAILABLE_SQL = "UPDATE seats SET status = 'AVAILABLE', version = version + 1, "
+            + "updated_at = ? WHERE flight_id = ? AND seat_number = ? AND status = 'HELD'";
+
+    /** As MARK_AVAILABLE_SQL, but leaves a row that was re-held after the expiring hold was written. */
+    private static final String MARK_EXPIRED_AVAILABLE_SQL = MARK_AVAILABLE_SQL + " AND updated_at < ?";
+
+    /**
+     * Releases one chunk of stale holds in a single statement. SKIP LOCKED
+     * leaves rows a hold or confirm is working on to the next run.
+     */
+    private static final String RELEASE_STALE_HOLDS_SQL = "UPDATE seats SET status = 'AVAILABLE', "
+            + "version = version + 1, updated_at = ? WHERE status = 'HELD' AND id IN ("
+            + "SELECT id FROM seats WHERE status = 'HELD' AND updated_at < ? ORDER BY id LIMIT ? "
+            + "FOR UPDATE SKIP LOCKED) RETURNING flight_id, seat_number";
+
+    /** H2 (tests, load test) has no UPDATE ... RETURNING; its data change delta table does the same. */
+    private static final String RELEASE_STALE_HOLDS_H2_SQL = "SELECT flight_id, seat_number FROM FINAL TABLE ("
+            + "UPDATE seats SET status = 'AVAILABLE', version = version + 1, updated_at = ? "
+            + "WHERE status = 'HELD' AND id IN ("
+            + "SELECT id FROM seats WHERE status = 'HELD' AND updated_at < ? ORDER BY id LIMIT ?))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SeatMapCache seatMapCache;
+    private final SeatInventoryService seatInventory;
+    private final TransactionOperations transactionOperations;
+    private final BlockingQueue<PendingHold> pending;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final boolean holdLogEnabled;
+    private volatile Thread flusher;
+    private volatile boolean running;
+    private volatile String releaseStaleHoldsSql;
+
+    public SeatStatusWriter(JdbcTemplate jdbcTemplate,
+                            SeatMapCache seatMapCache,
+                            SeatInventoryService seatInventory,
+                            TransactionOperations transactionOperations,
+                            @Value("${skyhigh.seats.write-behind.batch-size:500}") int batchSize,
+                            @Value("${skyhigh.seats.write-behind.flush-interval-ms:50}") long flushIntervalMillis,
+                            @Value("${skyhigh.seats.write-behind.max-pending:50000}") int maxPending,
+                            @Value("${skyhigh.seats.atomic-hold-enabled:false}") boolean holdLogEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.seatMapCache = seatMapCache;
+        this.seatInventory = seatInventory;
+        this.transactionOperations = transactionOperations;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.holdLogEnabled = holdLogEnabled;
+        this.pending = new LinkedBlockingQueue<>(maxPending);
+    }
+
+    /**
+     * Queues a hold claimed in Redis. If the queue is full the hold is written
+     * on the caller's thread — backpressure instead of unbounded memory.
+     */
+    public void persistHold(Long flightId, String seatNumber, String userId) {
+        PendingHold hold = new PendingHold(new SeatRef(flightId, seatNumber), userId, LocalDateTime.now());
+        if (!pending.offer(hold)) {
+            log.warn("Write-behind queue full — writing hold on seat {} (flight {}) inline", seatNumber, flightId);
+            writeHolds(List.of(hold));
+        }
+    }
+
+    /**
+     * Batch-releases expired holds in one transaction.
+     *
+     * @return the seats that were actually moved from HELD to AVAILABLE
+     */
+    public List<SeatRef> releaseHolds(List<SeatRef> seats) {
+        return releaseHolds(seats, null);
+    }
+
+    /**
+     * Batch-releases holds whose Redis key has expired, skipping rows updated
+     * at or after {@code heldBefore} — a new hold that claimed the seat
+     * between the expiry check and this write.
+     *
+     * @return the seats that were actually moved from HELD to AVAILABLE
+     */
+    public List<SeatRef> releaseHolds(List<SeatRef> seats, LocalDateTime heldBefore) {
+        if (seats.isEmpty()) {
+            return List.of();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String sql = heldBefore != null ? MARK_EXPIRED_AVAILABLE_SQL : MARK_AVAILABLE_SQL;
+        return transactionOperations.execute(status -> {
+            int[][] counts = jdbcTemplate.batchUpdate(sql, seats, seats.size(), (ps, seat) -> {
+                ps.setTimestamp(1, now);
+                ps.setLong(2, seat.flightId());
+                ps.setString(3, seat.seatNumber());
+                if (heldBefore != null) {
+                    ps.setTimestamp(4, Timestamp.valueOf(heldBefore));
+                }
+            });
+            List<SeatRef> released = new ArrayList<>(seats.size());
+            for (int i = 0; i < seats.size(); i++) {
+                if (counts[0][i] > 0) {
+                    SeatRef seat = seats.get(i);
+                    released.add(seat);
+                    seatMapCache.markAvailable(seat.flightId(), seat.seatNumber());
+                }
+            }
+            return released;
+        });
+    }
+
+    /**
+     * Releases up to {@code limit} seats that have been HELD since before
+     * {@code heldBefore}, in one statement and one transaction.
+     *
+     * @return the released seats; fewer than {@code limit} means none are left
+     */
+    public List<SeatRef> releaseStaleHolds(LocalDateTime heldBefore, int limit) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String sql = releaseStaleHoldsSql();
+        return transactionOperations.execute(status -> {
+            List<SeatRef> released = jdbcTemplate.query(sql,
+                    (rs, rowNum) -> new SeatRef(rs.getLong("flight_id"), rs.getString("seat_number")),
+                    now, Timestamp.valueOf(heldBefore), limit);
+            for (SeatRef seat : released) {
+                seatMapCache.markAvailable(seat.flightId(), seat.seatNumber());
+            }
+            return released;
+        });
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        // Parks in poll() and JDBC most of the time — no need to hold a platform thread
+        flusher = Thread.ofVirtual().name("seat-write-behind").start(this::runFlusher);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        Thread thread = flusher;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(5_000);
+        }
+        // Drain whatever is left so no claimed hold is lost on a clean shutdown
+        flushPending();
+    }
+
+    private void runFlusher() {
+        while (running) {
+            try {
+                PendingHold first = pending.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingHold> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                pending.drainTo(batch, batchSize - 1);
+                writeHolds(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // The Redis holds stay valid; the zombie sweep reconciles these rows
+                log.error("Write-behind flush failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued so far, in batches. Called by the flusher thread
+     * and on shutdown.
+     */
+    void flushPending() {
+        List<PendingHold> batch = new ArrayList<>(batchSize);
+        while (pending.drainTo(batch, batchSize) > 0) {
+            writeHolds(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeHolds(List<PendingHold> holds) {
+        if (holdLogEnabled) {
+            List<SeatRef> seats = new ArrayList<>(holds.size());
+            for (PendingHold hold : holds) {
+                seats.add(hold.seat());
+            }
+            // Log first: a crash after this point leaves at most a harmless log entry,
+            // never a HELD row that nothing will release
+            seatInventory.logHolds(seats);
+        }
+
+        int[][] counts = transactionOperations.execute(status -> {
+            int[][] result = jdbcTemplate.batchUpdate(MARK_HELD_SQL, holds, holds.size(), (ps, hold) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(hold.heldAt()));
+                ps.setLong(2, hold.seat().flightId());
+                ps.setString(3, hold.seat().seatNumber());
+            });
+            for (int i = 0; i < holds.size(); i++) {
+                if (result[0][i] > 0) {
+                    seatMapCache.markHeld(holds.get(i).seat().flightId(), holds.get(i).seat().seatNumber());
+                }
+            }
+            return result;
+        });
+
+        for (int i = 0; i < holds.size(); i++) {
+            if (counts == null || counts[0][i] == 0) {
+                PendingHold hold = holds.get(i);
+                if (seatInventory.revokeHold(hold.seat().flightId(), hold.seat().seatNumber(), hold.userId())) {
+                    log.warn("Seat {} (flight {}) is confirmed or missing in DB — revoked Redis hold of user {}",
+                            hold.seat().seatNumber(), hold.seat().flightId(), hold.userId());
+                } else {
+                    log.debug("Seat {} (flight {}) was confirmed before its hold was written",
+                            hold.seat().seatNumber(), hold.seat().flightId());
+                }
+            }
+        }
+        log.debug("Flushed {} seat holds", holds.size());
+    }
+
+    private String releaseStaleHoldsSql() {
+        String sql = releaseStaleHoldsSql;
+        if (sql == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            sql = "H2".equals(product) ? RELEASE_STALE_HOLDS_H2_SQL : RELEASE_STALE_HOLDS_SQL;
+            releaseStaleHoldsSql = sql;
+        }
+        return sql;
+    }
+
+    private record PendingHold(SeatRef seat, String userId, LocalDateTime heldAt) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.skyhigh.core.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-min sketch over a sliding time window, for counting events per key
+ * without a map entry per key.
+ *
+ * The window is split into {@code slots} sub-windows, each its own
+ * {@code depth} x {@code width} sketch of atomic int counters. Adding hits one
+ * counter per row of the current slot; estimating sums each row across the
+ * live slots and takes the minimum. Memory is fixed however many distinct
+ * keys are counted, and both operations are O(depth x slots).
+ *
+ * Increments use conservative update: a row is only raised as far as the
+ * key's new estimate needs, so rows already inflated by other keys absorb
+ * the add instead of growing further. This cuts the collision noise that
+ * would otherwise push light keys over a threshold.
+ *
+ * Slots rotate lazily: the first add in a new sub-window clears the slot it
+ * reuses. Counts may go down (see {@link #add}); a decrement hits every row,
+ * so it can take a colliding key's estimate below its true count — the error
+ * stays on the low side rather than overcounting.
+ */
+final class SlidingCountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int slots;
+    private final long slotMillis;
+    private final AtomicIntegerArray[] counters;
+    private final AtomicLong[] slotEpochs;
+    /** Keys are client-supplied: a per-instance seed keeps collisions with a victim's key unpredictable. */
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    SlidingCountMinSketch(int depth, int width, int slots, long windowMillis) {
+        if (depth < 1 || width < 1 || slots < 1 || windowMillis < slots) {
+            throw new IllegalArgumentException("depth, width and slots must be >= 1 and windowMillis >= slots");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.slots = slots;
+        this.slotMillis = windowMillis / slots;
+        this.counters = new AtomicIntegerArray[slots];
+        this.slotEpochs = new AtomicLong[slots];
+        for (int i = 0; i < slots; i++) {
+            counters[i] = new AtomicIntegerArray(depth * width);
+            slotEpochs[i] = new AtomicLong(-1);
+        }
+    }
+
+    /** Adds {@code delta} (may be negative) to the key's count at {@code nowMillis}. */
+    void add(String key, long delta, long nowMillis) {
+        long epoch = nowMillis / slotMillis;
+        int slot = (int) (epoch % slots);
+        if (slotEpochs[slot].get() != epoch) {
+            rotate(slot, epoch);
+        }
+        AtomicIntegerArray slotCounters = counters[slot];
+        long hash = hash(key);
+        if (delta <= 0) {
+            for (int row = 0; row < depth; row++) {
+                slotCounters.addAndGet(row * width + column(hash, row), (int) delta);
+            }
+            return;
+        }
+        // Conservative update: lift each row to (current estimate + delta), never past it
+        long[] totals = new long[depth];
+        long target = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + column(hash, row);
+            totals[row] = sumOtherSlots(index, epoch, slot) + slotCounters.get(index);
+            target = Math.min(target, totals[row]);
+        }
+        target += delta;
+        for (int row = 0; row < depth; row++) {
+            // Adding the shortfall (not setting a max) means concurrent adds overcount, never undercount
+            if (totals[row] < target) {
+                slotCounters.addAndGet(row * width + column(hash, row), (int) (target - totals[row]));
+            }
+        }
+    }
+
+    /** Upper-bound estimate of the key's count over the window ending at {@code nowMillis}. */
+    long estimate(String key, long nowMillis) {
+        long epoch = nowMillis / slotMillis;
+        long hash = hash(key);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + column(hash, row);
+            min = Math.min(min, sumOtherSlots(index, epoch, -1));
+        }
+        return Math.max(min, 0);
+    }
+
+    /** Sums one counter across the slots live at {@code epoch}, leaving out {@code skipSlot}. */
+    private long sumOtherSlots(int index, long epoch, int skipSlot) {
+        long sum = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            long slotEpoch = slotEpochs[slot].get();
+            if (slot != skipSlot && slotEpoch > epoch - slots && slotEpoch <= epoch) {
+                sum += counters[slot].get(index);
+            }
+        }
+        return sum;
+    }
+
+    private void rotate(int slot, long epoch) {
+        synchronized (slotEpochs[slot]) {
+            if (slotEpochs[slot].get() >= epoch) {
+                return;
+            }
+            AtomicIntegerArray slotCounters = counters[slot];
+            for (int i = 0; i < slotCounters.length(); i++) {
+                slotCounters.set(i, 0);
+            }
+            slotEpochs[slot].set(epoch);
+        }
+    }
+
+    /** Row r uses h1 + r * h2 (Kirsch–Mitzenmacher), from one 64-bit mix of the key. */
+    private int column(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return Math.floorMod(h1 + row * h2, width);
+    }
+
+    private long hash(String key) {
+        // Seeded FNV-1a over the chars, then the SplitMix64 finalizer
+        long z = seed;
+        for (int i = 0; i < key.length(); i++) {
+            z = (z ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,119 @@
+package com.skyhigh.core.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (Varghese &amp; Lauck; the layout Kafka uses for its
+ * delayed operations).
+ *
+ * The lowest level has {@code wheelSize} buckets of {@code tickMillis} each.
+ * Deadlines beyond its span go to an overflow level, created on demand, whose
+ * tick is the whole span of the level below — so with 100 ms ticks and 64
+ * buckets, level 0 covers 6.4 s and level 1 covers 6.8 min. Adding is O(1).
+ * Advancing visits one bucket per elapsed tick per level; when a coarse bucket
+ * comes due its entries cascade down to the finer level.
+ *
+ * Level 0 rounds deadlines up to the next tick, so an entry never fires early
+ * and at most one tick late. Not thread-safe: one driver thread owns it.
+ */
+final class TimingWheel<T> {
+
+    record Entry<T>(long deadlineMillis, T item) {
+    }
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final boolean lowest;
+    private final ArrayDeque<Entry<T>>[] buckets;
+    private long currentTime;
+    private TimingWheel<T> overflow;
+
+    TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this(tickMillis, wheelSize, startMillis, true);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private TimingWheel(long tickMillis, int wheelSize, long startMillis, boolean lowest) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMillis must be > 0 and wheelSize >= 2");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.lowest = lowest;
+        this.buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.currentTime = startMillis - Math.floorMod(startMillis, tickMillis);
+    }
+
+    /**
+     * @return false if the deadline is not after the wheel's current time —
+     *         the entry is due and the caller handles it now
+     */
+    boolean add(long deadlineMillis, T item) {
+        return add(new Entry<>(deadlineMillis, item));
+    }
+
+    /**
+     * Moves the clock to {@code nowMillis}; every entry that comes due is
+     * passed to {@code expired}.
+     */
+    void advance(long nowMillis, Consumer<Entry<T>> expired) {
+        advanceClock(nowMillis, entry -> {
+            if (!add(entry)) {
+                expired.accept(entry);
+            }
+        });
+    }
+
+    private boolean add(Entry<T> entry) {
+        long deadline = entry.deadlineMillis();
+        long currentTick = currentTime / tickMillis;
+        if (lowest) {
+            if (deadline <= currentTime) {
+                return false;
+            }
+            long tick = Math.ceilDiv(deadline, tickMillis);
+            // tick == currentTick + wheelSize shares the bucket just drained, which comes round again exactly then
+            if (tick <= currentTick + wheelSize) {
+                buckets[(int) (tick % wheelSize)].add(entry);
+                return true;
+            }
+        } else {
+            // Coarse levels round down: the entry cascades to the finer level before its deadline
+            long tick = deadline / tickMillis;
+            if (tick < currentTick + wheelSize) {
+                buckets[(int) (tick % wheelSize)].add(entry);
+                return true;
+            }
+        }
+        return overflow().add(entry);
+    }
+
+    private void advanceClock(long nowMillis, Consumer<Entry<T>> reinsert) {
+        while (nowMillis >= currentTime + tickMillis) {
+            currentTime += tickMillis;
+            ArrayDeque<Entry<T>> bucket = buckets[(int) ((currentTime / tickMillis) % wheelSize)];
+            if (!bucket.isEmpty()) {
+                // Re-adding may target this level again; never while iterating the bucket
+                List<Entry<T>> due = new ArrayList<>(bucket);
+                bucket.clear();
+                due.forEach(reinsert);
+            }
+            if (overflow != null) {
+                overflow.advanceClock(currentTime, reinsert);
+            }
+        }
+    }
+
+    private TimingWheel<T> overflow() {
+        if (overflow == null) {
+            overflow = new TimingWheel<>(tickMillis * wheelSize, wheelSize, currentTime, false);
+        }
+        return overflow;
+    }
+}
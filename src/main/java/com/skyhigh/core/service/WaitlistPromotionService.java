@@ -0,0 +1,106 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.service.SeatInventoryService.Offer;
+import com.skyhigh.core.service.WaitlistService.Waiter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns released seats into offers for waitlisted users.
+ *
+ * Each released seat that nobody has re-held is held — for the normal hold
+ * duration — in the name of the earliest user on the flight's waitlist. The
+ * user claims it through the usual confirmBooking path. An offer that is not
+ * confirmed expires like any hold, and its release offers the seat to the
+ * next user in line.
+ *
+ * All seats released together are offered in two steps: one candidate per
+ * seat is popped from each flight's (sharded) waitlist, then one Lua script
+ * per flight (SeatInventoryService.offerToWaitlist), pipelined, turns seats
+ * into holds for them. Candidates a seat turned out not to need — it was
+ * confirmed or re-held meanwhile — go back to the waitlist with their original
+ * join time. Offers are persisted through the write-behind writer like an
+ * atomic hold; callers schedule their expiry. Each offer is also recorded
+ * for its user (WaitlistService#recordOffers), which is how they learn of it:
+ * GET /waitlist/offers.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WaitlistPromotionService {
+
+    private final SeatInventoryService seatInventory;
+    private final WaitlistService waitlistService;
+    private final SeatStatusWriter seatStatusWriter;
+
+    /**
+     * Offers seats whose DB row has just been moved to AVAILABLE. Seats not
+     * offered are marked available in the Redis inventory.
+     *
+     * @return the offers made
+     */
+    public List<Offer> promote(List<SeatRef> releasedSeats) {
+        if (releasedSeats.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<String>> seatsByFlight = new LinkedHashMap<>();
+        for (SeatRef seat : releasedSeats) {
+            seatsByFlight.computeIfAbsent(seat.flightId(), id -> new ArrayList<>()).add(seat.seatNumber());
+        }
+
+        Map<Long, Integer> wanted = new LinkedHashMap<>();
+        seatsByFlight.forEach((flightId, seats) -> wanted.put(flightId, seats.size()));
+        Map<Long, List<Waiter>> candidates = waitlistService.popNextUsers(wanted);
+        Map<Long, List<String>> candidateIds = new LinkedHashMap<>();
+        candidates.forEach((flightId, waiters) ->
+                candidateIds.put(flightId, waiters.stream().map(Waiter::userId).toList()));
+
+        List<Offer> offers;
+        try {
+            offers = seatInventory.offerToWaitlist(seatsByFlight, candidateIds, SeatService.HOLD_DURATION_SECONDS);
+        } catch (RuntimeException e) {
+            waitlistService.requeue(candidates);
+            throw e;
+        }
+        requeueUnused(candidates, offers);
+
+        for (Offer offer : offers) {
+            seatStatusWriter.persistHold(offer.seat().flightId(), offer.seat().seatNumber(), offer.userId());
+            log.info("Waitlist: seat {} (flight {}) offered to user {} for {}s",
+                    offer.seat().seatNumber(), offer.seat().flightId(), offer.userId(),
+                    SeatService.HOLD_DURATION_SECONDS);
+        }
+        try {
+            waitlistService.recordOffers(offers, SeatService.HOLD_DURATION_SECONDS);
+        } catch (RuntimeException e) {
+            // The holds stand; only their listing in GET /waitlist/offers is missing
+            log.warn("Could not record {} waitlist offers: {}", offers.size(), e.getMessage());
+        }
+        return offers;
+    }
+
+    /** The script uses each flight's candidates in order; the ones after its last offer go back. */
+    private void requeueUnused(Map<Long, List<Waiter>> candidates, List<Offer> offers) {
+        Map<Long, Integer> offered = new HashMap<>();
+        for (Offer offer : offers) {
+            offered.merge(offer.seat().flightId(), 1, Integer::sum);
+        }
+        Map<Long, List<Waiter>> unused = new LinkedHashMap<>();
+        candidates.forEach((flightId, waiters) -> {
+            int used = offered.getOrDefault(flightId, 0);
+            if (used < waiters.size()) {
+                unused.put(flightId, waiters.subList(used, waiters.size()));
+            }
+        });
+        if (!unused.isEmpty()) {
+            waitlistService.requeue(unused);
+        }
+    }
+}
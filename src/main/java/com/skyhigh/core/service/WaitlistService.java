@@ -1,19 +1,234 @@
 package com.skyhigh.core.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * FIFO waitlists in Redis sorted sets, score = join time.
+ *
+ * Each flight's waitlist is split across {@code skyhigh.waitlist.shards}
+ * sorted sets, {@code waitlist:{flightId:shard}}. The hash tag puts every
+ * shard in its own cluster slot, so joins for one popular flight spread over
+ * the cluster instead of queueing on one key. A user always lands in the same
+ * shard (hash of the user id), which keeps ZADD NX a complete duplicate check.
+ *
+ * Dequeueing merges the shards by score (see {@link #popNextUsers}), so the
+ * earliest joiner still goes first.
+ *
+ * {@link #join} adds and ranks in one round trip: a Lua script on the user's
+ * shard does ZADD NX + ZRANK + ZCARD. The shards ahead in other slots are not
+ * ranked per join; their sizes come from a per-shard ZCARD cache, refreshed
+ * (in the same pipeline) at most every {@code skyhigh.waitlist.size-cache-ms},
+ * so positions are approximate across shards and exact with one shard.
+ *
+ * Waitlists created before sharding live in one unsharded sorted set,
+ * {@code waitlist:{flightId}} without a hash tag. {@link #drainLegacyWaitlists}
+ * moves their entries into the shards, keeping join times, on startup and
+ * then on a retry schedule until one pass succeeds.
+ *
+ * Seats offered to waitlisted users are recorded per user in
+ * {@code waitlist_offer:{userId}} (flight id -> seat and deadline), expiring
+ * with the offer's hold, so clients can find them with {@link #offersFor}.
+ *
+ * Every {@code skyhigh.waitlist.depth-refresh-ms} the sizes of all flights in
+ * that cache are re-read in one pipelined round trip and published as the
+ * {@code waitlist.depth} gauge, tagged by flight. A flight leaves the cache,
+ * and its gauge row is dropped, once its waitlist is empty or has seen no
+ * activity on this node for {@code skyhigh.waitlist.depth-idle-ms} (which
+ * also covers departed flights).
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class WaitlistService {
+public class WaitlistService implements MeterBinder {
+
+    /**
+     * Adds users to one shard if absent, then ranks them.
+     * KEYS[1] = shard, ARGV[1] = join score, ARGV[2..] = user ids
+     * Returns {ZCARD, added, rank, added, rank, ...} in user order.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> JOIN_SCRIPT = new DefaultRedisScript<>("""
+            local added = {}
+            for i = 2, #ARGV do
+                added[i] = redis.call('ZADD', KEYS[1], 'NX', ARGV[1], ARGV[i])
+            end
+            local result = {redis.call('ZCARD', KEYS[1])}
+            for i = 2, #ARGV do
+                table.insert(result, added[i])
+                table.insert(result, redis.call('ZRANK', KEYS[1], ARGV[i]))
+            end
+            return result
+            """, List.class);
+
+    private static final String LEGACY_KEY_PREFIX = "waitlist:";
+    private static final int LEGACY_DRAIN_BATCH = 500;
+
+    private static final Comparator<Waiter> FIFO =
+            Comparator.comparingDouble(Waiter::joinedAt).thenComparing(Waiter::userId);
 
     private final StringRedisTemplate redisTemplate;
+    private final int shards;
+    private final long sizeCacheMillis;
+    private final long depthIdleMillis;
+    private final Map<Long, ShardSizes> sizes = new ConcurrentHashMap<>();
+    private volatile MultiGauge depthGauge;
+    private volatile boolean legacyDrained;
+
+    public WaitlistService(StringRedisTemplate redisTemplate,
+                           @Value("${skyhigh.waitlist.shards:8}") int shards,
+                           @Value("${skyhigh.waitlist.size-cache-ms:1000}") long sizeCacheMillis,
+                           @Value("${skyhigh.waitlist.depth-idle-ms:3600000}") long depthIdleMillis) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("skyhigh.waitlist.shards must be >= 1");
+        }
+        this.redisTemplate = redisTemplate;
+        this.shards = shards;
+        this.sizeCacheMillis = sizeCacheMillis;
+        this.depthIdleMillis = depthIdleMillis;
+    }
+
+    /**
+     * @param added    false if the user was already on the waitlist
+     * @param position 0-based place in line (approximate across shards)
+     */
+    public record JoinResult(String userId, boolean added, long position) {
+    }
+
+    /** A dequeued user and the score they joined with, for putting them back in place. */
+    public record Waiter(String userId, double joinedAt) {
+    }
+
+    /** A seat held in a waitlisted user's name until {@code expiresAtMillis}. */
+    public record PendingOffer(Long flightId, String seatNumber, long expiresAtMillis) {
+    }
+
+    /**
+     * Adds the user unless already waiting and returns their position, in one
+     * Redis round trip.
+     */
+    public JoinResult join(Long flightId, String userId) {
+        return joinAll(flightId, List.of(userId)).get(0);
+    }
+
+    /**
+     * Admits many users at once, e.g. a partner import: one join script per
+     * shard, all in one pipelined round trip. The users get the same join
+     * time, so among themselves they are served in user id order.
+     *
+     * @return one result per distinct user, in the order given
+     */
+    public List<JoinResult> joinAll(Long flightId, List<String> userIdList) {
+        if (userIdList.isEmpty()) {
+            return List.of();
+        }
+        List<String> userIds = List.copyOf(new LinkedHashSet<>(userIdList));
+        Map<Integer, List<String>> usersByShard = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            usersByShard.computeIfAbsent(shardOf(userId), shard -> new ArrayList<>()).add(userId);
+        }
+        String score = String.valueOf(System.currentTimeMillis());
+        ShardSizes cached = sizesOf(flightId);
+        List<Integer> refreshed = new ArrayList<>();
+        long loadedAt = cached.loadedAt.get();
+        long now = System.currentTimeMillis();
+        // One caller refreshes the other shards' sizes; the rest use the counts they have
+        if (now - loadedAt >= sizeCacheMillis && cached.loadedAt.compareAndSet(loadedAt, now)) {
+            for (int i = 0; i < shards; i++) {
+                if (!usersByShard.containsKey(i)) {
+                    refreshed.add(i);
+                }
+            }
+        }
+
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                usersByShard.forEach((shard, users) -> {
+                    List<String> args = new ArrayList<>(users.size() + 1);
+                    args.add(score);
+                    args.addAll(users);
+                    redisTemplate.execute(JOIN_SCRIPT, List.of(buildWaitlistKey(flightId, shard)), args.toArray());
+                });
+                ZSetOperations<String, String> zSet = (ZSetOperations<String, String>) operations.opsForZSet();
+                for (int shard : refreshed) {
+                    zSet.zCard(buildWaitlistKey(flightId, shard));
+                }
+                return null;
+            }
+        });
+
+        List<Integer> shardOrder = new ArrayList<>(usersByShard.keySet());
+        for (int i = 0; i < shardOrder.size(); i++) {
+            cached.counts.set(shardOrder.get(i), asLong(((List<?>) results.get(i)).get(0)));
+        }
+        for (int i = 0; i < refreshed.size(); i++) {
+            cached.counts.set(refreshed.get(i), asLong(results.get(shardOrder.size() + i)));
+        }
+        long total = cached.total();
+
+        Map<String, JoinResult> byUser = new HashMap<>();
+        int added = 0;
+        for (int i = 0; i < shardOrder.size(); i++) {
+            int shard = shardOrder.get(i);
+            List<?> ranks = (List<?>) results.get(i);
+            long shardSize = cached.counts.get(shard);
+            long otherShards = total - shardSize;
+            List<String> users = usersByShard.get(shard);
+            for (int j = 0; j < users.size(); j++) {
+                boolean newlyAdded = asLong(ranks.get(1 + 2 * j)) == 1;
+                long rank = asLong(ranks.get(2 + 2 * j));
+                // A new joiner is behind everyone in the other shards; an earlier
+                // joiner is assumed to be as far along in them as in their own
+                long ahead = newlyAdded || shardSize == 0 ? otherShards : otherShards * rank / shardSize;
+                byUser.put(users.get(j), new JoinResult(users.get(j), newlyAdded, rank + ahead));
+                added += newlyAdded ? 1 : 0;
+            }
+        }
+        if (userIds.size() == 1) {
+            JoinResult result = byUser.get(userIds.get(0));
+            if (result.added()) {
+                log.info("User {} joined waitlist for flight {} at position {}",
+                        result.userId(), flightId, result.position());
+            } else {
+                log.debug("User {} is already on waitlist for flight {}", result.userId(), flightId);
+            }
+        } else {
+            log.info("Admitted {} of {} users to waitlist for flight {}", added, userIds.size(), flightId);
+        }
+        return userIds.stream().map(byUser::get).toList();
+    }
 
     /**
      * FIX (HIGH): Atomic check-and-add using Redis ZADD NX flag.
@@ -23,16 +238,17 @@ public class WaitlistService {
      *
      * ZADD NX is a single atomic Redis command: it adds the member ONLY if
      * it does not already exist in the sorted set. Returns true if added.
+     * Use {@link #join} when the caller needs the position as well.
      */
     public boolean joinWaitlistIfAbsent(Long flightId, String userId) {
-        String key = "waitlist:" + flightId;
+        int shard = shardOf(userId);
         double score = System.currentTimeMillis();
 
         // addIfAbsent maps to ZADD NX — atomic, no race condition
-        Boolean added = redisTemplate.opsForZSet().addIfAbsent(key, userId, score);
+        Boolean added = redisTemplate.opsForZSet().addIfAbsent(buildWaitlistKey(flightId, shard), userId, score);
         if (Boolean.TRUE.equals(added)) {
-            log.info("User {} joined waitlist for flight {} at position {}",
-                    userId, flightId, getWaitlistPosition(flightId, userId));
+            sizesOf(flightId).counts.incrementAndGet(shard);
+            log.info("User {} joined waitlist for flight {} (shard {})", userId, flightId, shard);
             return true;
         }
         log.debug("User {} is already on waitlist for flight {}", userId, flightId);
@@ -44,29 +260,446 @@ public class WaitlistService {
      * External callers should use joinWaitlistIfAbsent().
      */
     public void joinWaitlist(Long flightId, String userId) {
-        String key = "waitlist:" + flightId;
-        redisTemplate.opsForZSet().add(key, userId, System.currentTimeMillis());
+        int shard = shardOf(userId);
+        redisTemplate.opsForZSet().add(buildWaitlistKey(flightId, shard), userId, System.currentTimeMillis());
+        sizesOf(flightId).counts.incrementAndGet(shard);
         log.info("User {} joined waitlist for flight {}", userId, flightId);
     }
 
     /**
      * Pops the next user from the waitlist (lowest score = earliest joiner).
-     * Called by CleanupScheduler when a seat is released.
+     * Released seats are offered by WaitlistPromotionService, which pops
+     * through {@link #popNextUsers}.
      */
     public String popNextUser(Long flightId) {
-        String key = "waitlist:" + flightId;
-        Set<ZSetOperations.TypedTuple<String>> popped = redisTemplate.opsForZSet().popMin(key, 1);
-        if (popped == null || popped.isEmpty()) {
-            return null;
+        List<Waiter> popped = popNextUsers(Map.of(flightId, 1)).getOrDefault(flightId, List.of());
+        return popped.isEmpty() ? null : popped.get(0).userId();
+    }
+
+    /**
+     * Pops up to {@code count} users per flight in FIFO order across shards.
+     *
+     * With one shard this is a plain ZPOPMIN. Otherwise the first
+     * {@code count} entries of every shard are peeked in one pipelined round
+     * trip, merged by score to find how many the global head takes from each
+     * shard, and exactly that many are popped from each in a second. A
+     * concurrent pop of the same flight can make a shard yield different
+     * entries than were peeked; every user is still popped exactly once.
+     *
+     * @return the popped users per flight, earliest joiner first
+     */
+    public Map<Long, List<Waiter>> popNextUsers(Map<Long, Integer> countsByFlight) {
+        List<ShardKey> targets = new ArrayList<>();
+        if (shards == 1) {
+            countsByFlight.forEach((flightId, count) -> {
+                if (count > 0) {
+                    targets.add(new ShardKey(flightId, buildWaitlistKey(flightId, 0), count));
+                }
+            });
+        } else {
+            targets.addAll(mergeHeads(countsByFlight));
+        }
+
+        Map<Long, List<Waiter>> popped = new LinkedHashMap<>();
+        if (!targets.isEmpty()) {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (ShardKey target : targets) {
+                    connection.zSetCommands().zPopMin(bytes(target.key()), target.count());
+                }
+                return null;
+            });
+            for (int i = 0; i < targets.size(); i++) {
+                List<Waiter> waiters = popped.computeIfAbsent(targets.get(i).flightId(), id -> new ArrayList<>());
+                if (results.get(i) instanceof Collection<?> tuples) {
+                    for (Object tuple : tuples) {
+                        ZSetOperations.TypedTuple<?> typed = (ZSetOperations.TypedTuple<?>) tuple;
+                        waiters.add(new Waiter(String.valueOf(typed.getValue()), typed.getScore()));
+                    }
+                }
+            }
+            popped.values().forEach(waiters -> waiters.sort(FIFO));
+            popped.keySet().forEach(this::invalidateSizes);
+        }
+        return popped;
+    }
+
+    /**
+     * Puts popped users back with their original join time, so they keep
+     * their place. Used for candidates the offer did not need.
+     */
+    public void requeue(Map<Long, List<Waiter>> waitersByFlight) {
+        if (waitersByFlight.values().stream().allMatch(List::isEmpty)) {
+            return;
         }
-        return popped.iterator().next().getValue();
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                ZSetOperations<String, String> zSet = (ZSetOperations<String, String>) operations.opsForZSet();
+                waitersByFlight.forEach((flightId, waiters) -> {
+                    for (Waiter waiter : waiters) {
+                        zSet.add(buildWaitlistKey(flightId, shardOf(waiter.userId())), waiter.userId(),
+                                waiter.joinedAt());
+                    }
+                });
+                return null;
+            }
+        });
+        waitersByFlight.keySet().forEach(this::invalidateSizes);
     }
 
     /**
-     * Returns the 0-based rank of a user in the waitlist, or null if not present.
+     * Returns the 0-based position of a user in the waitlist, or null if not
+     * present. Across shards this is the user's rank in their shard plus the
+     * entries of the other shards that joined no later; ties within the same
+     * millisecond may be counted either way.
      */
     public Long getWaitlistPosition(Long flightId, String userId) {
-        String key = "waitlist:" + flightId;
-        return redisTemplate.opsForZSet().rank(key, userId);
+        int shard = shardOf(userId);
+        String key = buildWaitlistKey(flightId, shard);
+        if (shards == 1) {
+            return redisTemplate.opsForZSet().rank(key, userId);
+        }
+        Double score = redisTemplate.opsForZSet().score(key, userId);
+        if (score == null) {
+            return null;
+        }
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                ZSetOperations<String, String> zSet = (ZSetOperations<String, String>) operations.opsForZSet();
+                for (int i = 0; i < shards; i++) {
+                    if (i == shard) {
+                        zSet.rank(key, userId);
+                    } else {
+                        zSet.count(buildWaitlistKey(flightId, i), Double.NEGATIVE_INFINITY, score);
+                    }
+                }
+                return null;
+            }
+        });
+        if (results.get(shard) == null) {
+            return null; // popped in between
+        }
+        long position = 0;
+        for (Object result : results) {
+            position += asLong(result);
+        }
+        return position;
+    }
+
+    /**
+     * Records offers just made, one hash field per flight in the user's offer
+     * key, in one pipelined round trip. The key expires with the latest offer.
+     */
+    public void recordOffers(List<SeatInventoryService.Offer> offers, long holdSeconds) {
+        if (offers.isEmpty()) {
+            return;
+        }
+        long holdMillis = holdSeconds * 1000;
+        long expiresAt = System.currentTimeMillis() + holdMillis;
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (SeatInventoryService.Offer offer : offers) {
+                    String key = buildOfferKey(offer.userId());
+                    ops.opsForHash().put(key, offer.seat().flightId().toString(),
+                            offer.seat().seatNumber() + ":" + expiresAt);
+                    ops.expire(key, Duration.ofMillis(holdMillis));
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * The user's open offers: recorded, not yet expired, and whose hold is
+     * still in the user's name (a confirmed offer drops out once its hold key
+     * is deleted).
+     */
+    public List<PendingOffer> offersFor(String userId) {
+        Map<Object, Object> recorded = redisTemplate.opsForHash().entries(buildOfferKey(userId));
+        if (recorded.isEmpty()) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        List<PendingOffer> candidates = new ArrayList<>(recorded.size());
+        recorded.forEach((flight, value) -> {
+            String offer = value.toString();
+            int separator = offer.lastIndexOf(':');
+            try {
+                long expiresAt = Long.parseLong(offer.substring(separator + 1));
+                if (expiresAt > now) {
+                    candidates.add(new PendingOffer(Long.valueOf(flight.toString()),
+                            offer.substring(0, separator), expiresAt));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Ignoring malformed waitlist offer '{}' for user {}", offer, userId);
+            }
+        });
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        // Pipelined GETs, not MGET: the hold keys of different flights live in different slots
+        List<Object> holders = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (PendingOffer offer : candidates) {
+                    ops.opsForValue().get(SeatService.buildHoldKey(offer.flightId(), offer.seatNumber()));
+                }
+                return null;
+            }
+        });
+        List<PendingOffer> open = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            if (userId.equals(holders.get(i))) {
+                open.add(candidates.get(i));
+            }
+        }
+        open.sort(Comparator.comparingLong(PendingOffer::expiresAtMillis));
+        return open;
+    }
+
+    public static String buildOfferKey(String userId) {
+        return "waitlist_offer:{" + userId + "}";
+    }
+
+    public static String buildWaitlistKey(Long flightId, int shard) {
+        return "waitlist:{" + flightId + ":" + shard + "}";
+    }
+
+    int shardOf(String userId) {
+        return Math.floorMod(userId.hashCode(), shards);
+    }
+
+    /**
+     * Peeks the head of every shard of every flight and returns how many
+     * entries to pop from each so that, together, they are the flight's
+     * {@code count} earliest joiners.
+     */
+    private List<ShardKey> mergeHeads(Map<Long, Integer> countsByFlight) {
+        List<ShardKey> peeks = new ArrayList<>();
+        countsByFlight.forEach((flightId, count) -> {
+            for (int i = 0; count > 0 && i < shards; i++) {
+                peeks.add(new ShardKey(flightId, buildWaitlistKey(flightId, i), count));
+            }
+        });
+        if (peeks.isEmpty()) {
+            return List.of();
+        }
+        List<Object> heads = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                ZSetOperations<String, String> zSet = (ZSetOperations<String, String>) operations.opsForZSet();
+                for (ShardKey peek : peeks) {
+                    zSet.rangeWithScores(peek.key(), 0, peek.count() - 1);
+                }
+                return null;
+            }
+        });
+
+        Map<Long, List<Map.Entry<Waiter, String>>> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < peeks.size(); i++) {
+            ShardKey peek = peeks.get(i);
+            List<Map.Entry<Waiter, String>> flightCandidates =
+                    candidates.computeIfAbsent(peek.flightId(), id -> new ArrayList<>());
+            if (heads.get(i) instanceof Set<?> tuples) {
+                for (Object tuple : tuples) {
+                    ZSetOperations.TypedTuple<?> typed = (ZSetOperations.TypedTuple<?>) tuple;
+                    flightCandidates.add(Map.entry(
+                            new Waiter(String.valueOf(typed.getValue()), typed.getScore()), peek.key()));
+                }
+            }
+        }
+
+        List<ShardKey> pops = new ArrayList<>();
+        candidates.forEach((flightId, flightCandidates) -> {
+            flightCandidates.sort(Map.Entry.comparingByKey(FIFO));
+            Map<String, Integer> takeByKey = new HashMap<>();
+            for (Map.Entry<Waiter, String> candidate
+                    : flightCandidates.subList(0, Math.min(countsByFlight.get(flightId), flightCandidates.size()))) {
+                takeByKey.merge(candidate.getValue(), 1, Integer::sum);
+            }
+            takeByKey.forEach((key, take) -> pops.add(new ShardKey(flightId, key, take)));
+        });
+        return pops;
+    }
+
+    /**
+     * Moves every pre-sharding waitlist ({@code waitlist:<flightId>}) into its
+     * flight's shards. Entries are copied with ZADD LT, so a user who has
+     * since re-joined keeps the earlier of the two join times, and only then
+     * removed from the legacy key. Copy-then-remove is safe to repeat and to
+     * run on several nodes at once; a crash in between leaves the entries in
+     * the legacy key for the next pass.
+     */
+    @Scheduled(fixedDelayString = "${skyhigh.waitlist.legacy-drain-retry-ms:60000}")
+    public void drainLegacyWaitlists() {
+        if (legacyDrained) {
+            return;
+        }
+        try {
+            List<String> legacyKeys = new ArrayList<>();
+            // Digits right after the prefix: never matches a sharded "waitlist:{...}" key
+            ScanOptions options = ScanOptions.scanOptions().match(LEGACY_KEY_PREFIX + "[0-9]*").count(1_000).build();
+            try (Cursor<String> keys = redisTemplate.scan(options)) {
+                keys.forEachRemaining(legacyKeys::add);
+            }
+            long moved = 0;
+            for (String key : legacyKeys) {
+                moved += drainLegacyWaitlist(key);
+            }
+            legacyDrained = true;
+            if (moved > 0) {
+                log.info("Moved {} users from {} unsharded waitlists into shards", moved, legacyKeys.size());
+            }
+        } catch (Exception e) {
+            log.warn("Draining unsharded waitlists failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    private long drainLegacyWaitlist(String key) {
+        Long flightId;
+        try {
+            flightId = Long.valueOf(key.substring(LEGACY_KEY_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+        RedisZSetCommands.ZAddArgs keepEarliest = RedisZSetCommands.ZAddArgs.empty().lt();
+        long moved = 0;
+        Set<ZSetOperations.TypedTuple<String>> batch;
+        while (!(batch = redisTemplate.opsForZSet().rangeWithScores(key, 0, LEGACY_DRAIN_BATCH - 1)).isEmpty()) {
+            List<ZSetOperations.TypedTuple<String>> entries = new ArrayList<>(batch);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (ZSetOperations.TypedTuple<String> entry : entries) {
+                    connection.zSetCommands().zAdd(bytes(buildWaitlistKey(flightId, shardOf(entry.getValue()))),
+                            entry.getScore(), bytes(entry.getValue()), keepEarliest);
+                }
+                return null;
+            });
+            redisTemplate.opsForZSet().remove(key, entries.stream().map(ZSetOperations.TypedTuple::getValue).toArray());
+            moved += entries.size();
+        }
+        invalidateSizes(flightId);
+        return moved;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        depthGauge = MultiGauge.builder("waitlist.depth")
+                .description("Users on the waitlist per flight (flights with waitlist activity on this node)")
+                .register(registry);
+    }
+
+    /**
+     * Re-reads every shard of the flights in the size cache (one pipelined
+     * ZCARD each) and republishes {@code waitlist.depth}. Idle and empty
+     * flights are evicted; overwriting the gauge rows drops theirs.
+     */
+    @Scheduled(fixedDelayString = "${skyhigh.waitlist.depth-refresh-ms:15000}")
+    public void refreshDepths() {
+        long idleBefore = System.currentTimeMillis() - depthIdleMillis;
+        sizes.values().removeIf(cached -> cached.touchedAt.get() <= idleBefore);
+        if (sizes.isEmpty()) {
+            publishDepths(List.of());
+            return;
+        }
+        List<Long> flights = new ArrayList<>(sizes.keySet());
+        List<Object> counts;
+        try {
+            counts = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    ZSetOperations<String, String> zSet = (ZSetOperations<String, String>) operations.opsForZSet();
+                    for (Long flightId : flights) {
+                        for (int shard = 0; shard < shards; shard++) {
+                            zSet.zCard(buildWaitlistKey(flightId, shard));
+                        }
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Waitlist depth refresh failed: {}", e.getMessage());
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<MultiGauge.Row<?>> rows = new ArrayList<>(flights.size());
+        for (int i = 0; i < flights.size(); i++) {
+            ShardSizes cached = sizes.get(flights.get(i));
+            if (cached == null) {
+                continue;
+            }
+            for (int shard = 0; shard < shards; shard++) {
+                cached.counts.set(shard, asLong(counts.get(i * shards + shard)));
+            }
+            cached.loadedAt.set(now);
+            if (cached.total() == 0) {
+                // A join racing this removal just starts a fresh entry
+                sizes.remove(flights.get(i), cached);
+                continue;
+            }
+            rows.add(MultiGauge.Row.of(Tags.of("flight", flights.get(i).toString()), cached, ShardSizes::total));
+        }
+        publishDepths(rows);
+    }
+
+    private void publishDepths(List<MultiGauge.Row<?>> rows) {
+        MultiGauge gauge = depthGauge;
+        if (gauge != null) {
+            gauge.register(rows, true);
+        }
+    }
+
+    /** Also marks the flight active, which keeps it in the depth refresh. */
+    private ShardSizes sizesOf(Long flightId) {
+        ShardSizes cached = sizes.computeIfAbsent(flightId, id -> new ShardSizes(shards));
+        cached.touchedAt.set(System.currentTimeMillis());
+        return cached;
+    }
+
+    private void invalidateSizes(Long flightId) {
+        ShardSizes cached = sizes.get(flightId);
+        if (cached != null) {
+            cached.loadedAt.set(0);
+            cached.touchedAt.set(System.currentTimeMillis());
+        }
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record ShardKey(Long flightId, String key, int count) {
+    }
+
+    /** Last known ZCARD of each shard of one flight, plus local joins since. */
+    private static final class ShardSizes {
+        final AtomicLongArray counts;
+        final AtomicLong loadedAt = new AtomicLong();
+        final AtomicLong touchedAt = new AtomicLong(System.currentTimeMillis());
+
+        ShardSizes(int shards) {
+            this.counts = new AtomicLongArray(shards);
+        }
+
+        long total() {
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                total += counts.get(i);
+            }
+            return total;
+        }
     }
 }
@@ -0,0 +1,137 @@
+package com.skyhigh.core.config;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.AsyncProxyManager;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteAsyncBucketBuilder;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NearCacheRateLimiterTest {
+
+    private static final String KEY = "10.0.0.1";
+    private static final BucketConfiguration CONFIG = BucketConfiguration.builder()
+            .addLimit(Bandwidth.classic(5, Refill.intervally(5, Duration.ofHours(1))))
+            .build();
+    private static final RateLimitPolicy POLICY = new RateLimitPolicy("hold", "standard", CONFIG);
+
+    @Mock
+    private ProxyManager<byte[]> proxyManager;
+
+    @Mock
+    private AsyncProxyManager<byte[]> asyncProxyManager;
+
+    @Mock
+    private RemoteAsyncBucketBuilder<byte[]> asyncBuilder;
+
+    @Mock
+    private AsyncBucketProxy remoteBucket;
+
+    private NearCacheRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new NearCacheRateLimiter(proxyManager, true, 60_000, 100, 100);
+        lenient().when(proxyManager.asAsync()).thenReturn(asyncProxyManager);
+        lenient().when(asyncProxyManager.builder()).thenReturn(asyncBuilder);
+        lenient().when(asyncBuilder.build(any(byte[].class), eq(CONFIG))).thenReturn(remoteBucket);
+    }
+
+    @Test
+    void tryConsume_DecidesInProcessWithoutRedis() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryConsume(POLICY, KEY));
+        }
+
+        assertFalse(limiter.tryConsume(POLICY, KEY), "Local bucket is empty — rejected without a network hop");
+        verifyNoInteractions(proxyManager);
+    }
+
+    @Test
+    void sync_PushesLocalConsumptionAndBlocksKeyOverdrawnClusterWide() {
+        limiter.tryConsume(POLICY, KEY);
+        limiter.tryConsume(POLICY, KEY);
+        // Other nodes have used the bucket up: Redis is 2 tokens in debt
+        when(remoteBucket.consumeIgnoringRateLimits(2))
+                .thenReturn(CompletableFuture.completedFuture(TimeUnit.SECONDS.toNanos(30)));
+
+        limiter.sync();
+
+        assertFalse(limiter.tryConsume(POLICY, KEY), "Blocked locally until the shared bucket is back in credit");
+        verify(remoteBucket, times(1)).consumeIgnoringRateLimits(anyLong());
+    }
+
+    @Test
+    void sync_FailedPush_IsRetriedOnNextRun() {
+        limiter.tryConsume(POLICY, KEY);
+        when(remoteBucket.consumeIgnoringRateLimits(1))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("redis down")))
+                .thenReturn(CompletableFuture.completedFuture(0L));
+
+        limiter.sync();
+        limiter.sync();
+
+        verify(remoteBucket, times(2)).consumeIgnoringRateLimits(1);
+        verify(asyncBuilder, times(1)).build(any(byte[].class), eq(CONFIG));
+        assertTrue(limiter.tryConsume(POLICY, KEY));
+    }
+
+    @Test
+    void sync_EvictsIdleKeys() {
+        NearCacheRateLimiter shortLived = new NearCacheRateLimiter(proxyManager, true, 0, 100, 100);
+        shortLived.tryConsume(POLICY, KEY);
+        when(remoteBucket.consumeIgnoringRateLimits(1)).thenReturn(CompletableFuture.completedFuture(0L));
+
+        shortLived.sync(); // pushes the token
+        shortLived.sync(); // nothing left to push, idle → evicted
+
+        assertEquals(0, shortLived.trackedClients());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void tryConsume_Disabled_GoesToRedisPerRequest() {
+        NearCacheRateLimiter disabled = new NearCacheRateLimiter(proxyManager, false, 60_000, 100, 100);
+        RemoteBucketBuilder<byte[]> builder = mock(RemoteBucketBuilder.class);
+        BucketProxy bucket = mock(BucketProxy.class);
+        when(proxyManager.builder()).thenReturn(builder);
+        when(builder.build(any(byte[].class), eq(CONFIG))).thenReturn(bucket);
+        when(bucket.tryConsume(1)).thenReturn(true, false);
+
+        assertTrue(disabled.tryConsume(POLICY, KEY));
+        assertFalse(disabled.tryConsume(POLICY, KEY));
+        assertEquals(0, disabled.trackedClients());
+        // The proxy and its key bytes are built once and reused from the LRU
+        verify(builder, times(1)).build(aryEq("rate_limit:hold:standard:10.0.0.1".getBytes()), eq(CONFIG));
+    }
+
+    @Test
+    void tryConsume_PoliciesHaveSeparateBuckets() {
+        RateLimitPolicy confirm = new RateLimitPolicy("confirm", "standard", CONFIG);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryConsume(POLICY, KEY));
+        }
+
+        assertFalse(limiter.tryConsume(POLICY, KEY));
+        assertTrue(limiter.tryConsume(confirm, KEY), "Holding does not use up the confirm budget");
+        assertEquals(2, limiter.trackedClients());
+    }
+}
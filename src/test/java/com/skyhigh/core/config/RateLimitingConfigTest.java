@@ -0,0 +1,95 @@
+package com.skyhigh.core.config;
+
+import com.skyhigh.core.service.AbuseDetector;
+import com.skyhigh.core.service.RequestTracer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitingConfigTest {
+
+    private final RateLimitPolicies policies = new RateLimitPolicies(50, 25, 20, 10, 10, 5, 20, 10, 5, true);
+    private final RateLimitPolicies.EndpointPolicies hold = policies.endpoints().get(0);
+    private final RequestTracer tracer = new RequestTracer(true, 1.0, 4);
+
+    @Mock
+    private NearCacheRateLimiter rateLimiter;
+
+    @Test
+    void getClientIp_SingleForwardedAddress_ReturnsHeaderAsIs() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        String header = "203.0.113.7";
+        request.addHeader("X-Forwarded-For", header);
+
+        assertSame(header, RateLimitingConfig.getClientIp(request));
+    }
+
+    @Test
+    void getClientIp_ProxyChain_ReturnsFirstAddressTrimmed() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Forwarded-For", "  203.0.113.7 , 10.0.0.1, 10.0.0.2");
+
+        assertEquals("203.0.113.7", RateLimitingConfig.getClientIp(request));
+    }
+
+    @Test
+    void getClientIp_BlankOrEmptyFirstEntry_FallsBackToPeerAddress() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("198.51.100.1");
+        request.addHeader("X-Forwarded-For", " , 10.0.0.1");
+
+        assertEquals("198.51.100.1", RateLimitingConfig.getClientIp(request));
+    }
+
+    @Test
+    void preHandle_PartnerTier_UsesPartnerPolicy() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("198.51.100.1");
+        request.addHeader(RateLimitPolicies.TIER_HEADER, "Partner");
+        when(rateLimiter.tryConsume(hold.partner(), "198.51.100.1")).thenReturn(true);
+
+        assertTrue(new RateLimitingConfig.RateLimitInterceptor(rateLimiter, hold, tracer)
+                .preHandle(request, new MockHttpServletResponse(), new Object()));
+        assertEquals("198.51.100.1", request.getAttribute(AbuseDetector.CLIENT_IP_ATTRIBUTE));
+        assertEquals(250, hold.partner().capacity());
+    }
+
+    @Test
+    void preHandle_TierHeaderNotTrusted_PartnerClaimGetsStandardPolicy() {
+        RateLimitPolicies.EndpointPolicies untrusted =
+                new RateLimitPolicies(50, 25, 20, 10, 10, 5, 20, 10, 5, false).endpoints().get(0);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("198.51.100.1");
+        request.addHeader(RateLimitPolicies.TIER_HEADER, "partner");
+        when(rateLimiter.tryConsume(untrusted.standard(), "198.51.100.1")).thenReturn(true);
+
+        assertTrue(new RateLimitingConfig.RateLimitInterceptor(rateLimiter, untrusted, tracer)
+                .preHandle(request, new MockHttpServletResponse(), new Object()));
+        verify(rateLimiter, never()).tryConsume(same(untrusted.partner()), anyString());
+    }
+
+    @Test
+    void preHandle_Rejected_CountedUnderItsPolicy() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(RateLimitPolicies.TIER_HEADER, "unknown");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(rateLimiter.tryConsume(same(hold.standard()), anyString())).thenReturn(false);
+
+        assertFalse(new RateLimitingConfig.RateLimitInterceptor(rateLimiter, hold, tracer)
+                .preHandle(request, response, new Object()));
+        assertEquals(429, response.getStatus());
+        assertEquals(1, hold.standard().rejectedCount());
+        assertEquals(0, hold.partner().rejectedCount());
+        assertEquals(Map.of("policy", "hold/standard", "allowed", "false"), tracer.slowest(1).get(0).get("tags"));
+    }
+}
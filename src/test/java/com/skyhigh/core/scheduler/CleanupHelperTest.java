@@ -0,0 +1,105 @@
+package com.skyhigh.core.scheduler;
+
+import com.skyhigh.core.model.Flight;
+import com.skyhigh.core.model.Seat;
+import com.skyhigh.core.repository.SeatRepository;
+import com.skyhigh.core.service.HoldExpiryWheel;
+import com.skyhigh.core.service.RequestTracer;
+import com.skyhigh.core.service.SeatInventoryService;
+import com.skyhigh.core.service.SeatMapCache;
+import com.skyhigh.core.service.SeatRef;
+import com.skyhigh.core.service.WaitlistPromotionService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CleanupHelperTest {
+
+    @Mock
+    private SeatRepository seatRepository;
+
+    @Mock
+    private WaitlistPromotionService waitlistPromotion;
+
+    @Mock
+    private HoldExpiryWheel holdExpiry;
+
+    @Mock
+    private SeatMapCache seatMapCache;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Spy
+    private RequestTracer tracer = new RequestTracer(false, 0, 1);
+
+    @InjectMocks
+    private CleanupHelper cleanupHelper;
+
+    @Test
+    void releaseExpiredHold_HeldWithoutLiveKey_ReleasesAndPopsWaitlist() {
+        Seat seat = seat(Seat.SeatStatus.HELD);
+        when(seatRepository.findByFlightIdAndSeatNumberWithLock(1L, "1A")).thenReturn(Optional.of(seat));
+        when(redisTemplate.hasKey("seat_hold:{1}:1A")).thenReturn(false);
+
+        assertTrue(cleanupHelper.releaseExpiredHold(1L, "1A"));
+
+        assertEquals(Seat.SeatStatus.AVAILABLE, seat.getStatus());
+        verify(seatRepository).save(seat);
+        verify(seatMapCache).markAvailable(1L, "1A");
+        verify(waitlistPromotion).promote(List.of(new SeatRef(1L, "1A")));
+    }
+
+    @Test
+    void releaseExpiredHold_ReHeldBeforeEventArrived_KeepsSeat() {
+        Seat seat = seat(Seat.SeatStatus.HELD);
+        when(seatRepository.findByFlightIdAndSeatNumberWithLock(1L, "1A")).thenReturn(Optional.of(seat));
+        when(redisTemplate.hasKey("seat_hold:{1}:1A")).thenReturn(true);
+
+        assertFalse(cleanupHelper.releaseExpiredHold(1L, "1A"));
+
+        assertEquals(Seat.SeatStatus.HELD, seat.getStatus());
+        verify(seatRepository, never()).save(any());
+        verifyNoInteractions(waitlistPromotion);
+    }
+
+    @Test
+    void releaseExpiredHold_AlreadyConfirmed_DoesNothing() {
+        when(seatRepository.findByFlightIdAndSeatNumberWithLock(1L, "1A"))
+                .thenReturn(Optional.of(seat(Seat.SeatStatus.CONFIRMED)));
+
+        assertFalse(cleanupHelper.releaseExpiredHold(1L, "1A"));
+
+        verify(seatRepository, never()).save(any());
+        verifyNoInteractions(redisTemplate, waitlistPromotion);
+    }
+
+    @Test
+    void onSeatsReleased_TracksExpiryOfEachOffer() {
+        List<SeatRef> seats = List.of(new SeatRef(1L, "1A"), new SeatRef(2L, "7C"));
+        when(waitlistPromotion.promote(seats))
+                .thenReturn(List.of(new SeatInventoryService.Offer(new SeatRef(1L, "1A"), "u1")));
+
+        assertEquals(1, cleanupHelper.onSeatsReleased(seats));
+
+        verify(holdExpiry).track(1L, "1A");
+        verify(holdExpiry, never()).track(2L, "7C");
+    }
+
+    private static Seat seat(Seat.SeatStatus status) {
+        Flight flight = Flight.builder().id(1L).flightNumber("SH-101").build();
+        return Seat.builder().id(10L).flight(flight).seatNumber("1A").status(status).build();
+    }
+}
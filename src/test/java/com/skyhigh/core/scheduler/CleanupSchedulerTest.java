@@ -0,0 +1,108 @@
+package com.skyhigh.core.scheduler;
+
+import com.skyhigh.core.repository.SeatRepository;
+import com.skyhigh.core.service.SeatInventoryService;
+import com.skyhigh.core.service.SeatRef;
+import com.skyhigh.core.service.SeatStatusWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CleanupSchedulerTest {
+
+    @Mock
+    private SeatRepository seatRepository;
+    @Mock
+    private CleanupHelper cleanupHelper;
+    @Mock
+    private SeatInventoryService seatInventory;
+    @Mock
+    private SeatStatusWriter seatStatusWriter;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CleanupScheduler scheduler;
+
+    private static final List<SeatRef> FULL_CHUNK = List.of(new SeatRef(1L, "1A"), new SeatRef(1L, "1B"));
+    private static final List<SeatRef> LAST_CHUNK = List.of(new SeatRef(2L, "7C"));
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new CleanupScheduler(seatRepository, cleanupHelper, seatInventory, seatStatusWriter, meterRegistry);
+        ReflectionTestUtils.setField(scheduler, "bulkEnabled", true);
+        ReflectionTestUtils.setField(scheduler, "bulkChunkSize", 2);
+    }
+
+    @Test
+    void bulk_ReleasesChunksUntilOneComesBackShort() {
+        when(seatStatusWriter.releaseStaleHolds(any(LocalDateTime.class), eq(2))).thenReturn(FULL_CHUNK, LAST_CHUNK);
+        when(cleanupHelper.onSeatsReleased(FULL_CHUNK)).thenReturn(1);
+
+        scheduler.cleanupExpiredHolds();
+
+        verify(cleanupHelper).onSeatsReleased(FULL_CHUNK);
+        verify(cleanupHelper).onSeatsReleased(LAST_CHUNK);
+        verify(cleanupHelper, never()).cleanupSingleSeat(any());
+        verifyNoInteractions(seatRepository);
+        assertEquals(2, meterRegistry.get("seat.cleanup.batch").timer().count());
+        assertEquals(3, meterRegistry.get("seat.cleanup.batch.released").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("seat.cleanup.batch.promoted").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("seat.cleanup.released").summary().count(), "One sample per run");
+        assertEquals(3, meterRegistry.get("seat.cleanup.released").summary().totalAmount());
+    }
+
+    @Test
+    void bulk_RedisStepFails_StillMovesOnToNextChunk() {
+        when(seatStatusWriter.releaseStaleHolds(any(LocalDateTime.class), eq(2))).thenReturn(FULL_CHUNK, List.of());
+        when(cleanupHelper.onSeatsReleased(FULL_CHUNK)).thenThrow(new IllegalStateException("redis down"));
+
+        scheduler.cleanupExpiredHolds();
+
+        verify(seatStatusWriter, times(2)).releaseStaleHolds(any(LocalDateTime.class), eq(2));
+    }
+
+    @Test
+    void writeBehind_ReleasesLoggedHoldsAndOffersEachChunkInOneCall() {
+        ReflectionTestUtils.setField(scheduler, "writeBehindEnabled", true);
+        ReflectionTestUtils.setField(scheduler, "batchSize", 2);
+        when(seatInventory.pollExpiredHolds(2)).thenReturn(FULL_CHUNK, LAST_CHUNK);
+        when(seatStatusWriter.releaseHolds(eq(FULL_CHUNK), any(LocalDateTime.class))).thenReturn(FULL_CHUNK);
+        when(seatStatusWriter.releaseHolds(eq(LAST_CHUNK), any(LocalDateTime.class))).thenReturn(LAST_CHUNK);
+        when(cleanupHelper.onSeatsReleased(FULL_CHUNK)).thenReturn(2);
+
+        scheduler.cleanupExpiredHolds();
+
+        verify(cleanupHelper).onSeatsReleased(FULL_CHUNK);
+        verify(cleanupHelper).onSeatsReleased(LAST_CHUNK);
+        verify(cleanupHelper, never()).onSeatReleased(any(), any());
+        verify(seatStatusWriter, never()).releaseStaleHolds(any(), anyInt());
+        // Only the guarded release: a seat re-held after the poll keeps its row
+        verify(seatStatusWriter, never()).releaseHolds(anyList());
+        assertEquals(2, meterRegistry.get("seat.cleanup.batch").timer().count());
+        assertEquals(2, meterRegistry.get("seat.cleanup.batch.promoted").summary().totalAmount());
+        assertEquals(3, meterRegistry.get("seat.cleanup.released").summary().totalAmount());
+    }
+
+    @Test
+    void bulk_DbFailure_StopsTheRun() {
+        when(seatStatusWriter.releaseStaleHolds(any(LocalDateTime.class), eq(2)))
+                .thenThrow(new IllegalStateException("db down"));
+
+        scheduler.cleanupExpiredHolds();
+
+        verify(seatStatusWriter, times(1)).releaseStaleHolds(any(LocalDateTime.class), eq(2));
+        verifyNoInteractions(cleanupHelper);
+    }
+}
@@ -0,0 +1,100 @@
+package com.skyhigh.core.scheduler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HoldExpiryListenerTest {
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private CleanupHelper cleanupHelper;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private HoldExpiryListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new HoldExpiryListener(listenerContainer, cleanupHelper, redisTemplate);
+    }
+
+    @Test
+    void expiredHoldKey_ReleasesThatSeat() {
+        claimWins();
+        when(cleanupHelper.releaseExpiredHold(42L, "12C")).thenReturn(true);
+
+        listener.doHandleMessage(expired("seat_hold:{42}:12C"));
+
+        verify(valueOperations).setIfAbsent(eq("seat_hold_expired:{42}:12C"), anyString(), any(Duration.class));
+        verify(cleanupHelper).releaseExpiredHold(42L, "12C");
+    }
+
+    @Test
+    void expiredHoldKey_ClaimedByAnotherNode_NotReleasedHere() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+
+        listener.doHandleMessage(expired("seat_hold:{42}:12C"));
+
+        verifyNoInteractions(cleanupHelper);
+    }
+
+    @Test
+    void expiredUntaggedHoldKey_FromBeforeHashTags_StillReleased() {
+        claimWins();
+        listener.doHandleMessage(expired("seat_hold:42:12C"));
+
+        verify(cleanupHelper).releaseExpiredHold(42L, "12C");
+    }
+
+    @Test
+    void otherExpiredKeys_AreIgnored() {
+        listener.doHandleMessage(expired("payment_intent:pi_123"));
+        listener.doHandleMessage(expired("seat_hold:malformed"));
+        listener.doHandleMessage(expired("seat_hold:{42}12C"));
+        listener.doHandleMessage(expired("seat_hold_owner:{42}"));
+        listener.doHandleMessage(expired("seat_hold_expired:{42}:12C"));
+
+        verifyNoInteractions(cleanupHelper);
+    }
+
+    @Test
+    void releaseFailure_IsSwallowedForTheSweep() {
+        claimWins();
+        when(cleanupHelper.releaseExpiredHold(anyLong(), anyString())).thenThrow(new IllegalStateException("db down"));
+
+        listener.doHandleMessage(expired("seat_hold:{1}:1A"));
+
+        verify(cleanupHelper).releaseExpiredHold(1L, "1A");
+    }
+
+    private void claimWins() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+    }
+
+    private static DefaultMessage expired(String key) {
+        return new DefaultMessage("__keyevent@0__:expired".getBytes(StandardCharsets.UTF_8),
+                key.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,159 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.exception.AbuseBlockedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AbuseDetectorTest {
+
+    private static final Long FLIGHT_ID = 1L;
+    private static final String USER_ID = "bot-1";
+    private static final String IP = "10.0.0.1";
+    private static final long NOW = 1_000_000_000L;
+    private static final long WINDOW = 600_000;
+    private static final long BLOCK = 60_000;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private AbuseDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        // 5 per user, 8 per IP, 3 per user on a flight (1 while the flight has more than 4)
+        detector = new AbuseDetector(redisTemplate, true, WINDOW, BLOCK, 5, 8, 3, 4, 100, 1_000);
+    }
+
+    @Test
+    void recordHold_UnderLimits_DoesNotBlock() {
+        for (long flight = 1; flight <= 5; flight++) {
+            detector.recordHold(flight, USER_ID, IP, 1, NOW);
+        }
+
+        assertDoesNotThrow(() -> detector.checkHold(FLIGHT_ID, USER_ID, IP, NOW));
+        assertEquals(0, detector.blockedCount());
+    }
+
+    @Test
+    void recordHold_UserOverLimitAcrossFlights_BlocksUserOnEveryFlight() {
+        for (long flight = 1; flight <= 6; flight++) {
+            detector.recordHold(flight, USER_ID, null, 1, NOW);
+        }
+
+        AbuseBlockedException ex = assertThrows(AbuseBlockedException.class,
+                () -> detector.checkHold(99L, USER_ID, null, NOW + 1_000));
+        assertEquals(59, ex.getRetryAfterSeconds());
+        assertDoesNotThrow(() -> detector.checkHold(99L, "someone-else", null, NOW + 1_000));
+    }
+
+    @Test
+    void recordHold_ManyUsersFromOneIp_BlocksTheIp() {
+        for (int i = 0; i < 9; i++) {
+            detector.recordHold((long) i, "user-" + i, IP, 1, NOW);
+        }
+
+        assertThrows(AbuseBlockedException.class, () -> detector.checkHold(FLIGHT_ID, "fresh-user", IP, NOW));
+        assertDoesNotThrow(() -> detector.checkHold(FLIGHT_ID, "fresh-user", "10.0.0.2", NOW));
+    }
+
+    @Test
+    void recordHold_HotFlight_HalvesPerUserFlightLimit() {
+        for (int i = 0; i < 4; i++) {
+            detector.recordHold(FLIGHT_ID, "other-" + i, null, 1, NOW);
+        }
+        assertDoesNotThrow(() -> detector.checkHold(FLIGHT_ID, USER_ID, null, NOW));
+
+        detector.recordHold(FLIGHT_ID, USER_ID, null, 2, NOW);
+
+        assertThrows(AbuseBlockedException.class, () -> detector.checkHold(FLIGHT_ID, USER_ID, null, NOW));
+        assertDoesNotThrow(() -> detector.checkHold(2L, USER_ID, null, NOW), "only that flight is blocked");
+    }
+
+    @Test
+    void recordHold_ManyDistinctUsersAtExpectedLoad_NoneFalselyBlocked() {
+        // Production limits; 60k users x 2 seats = the 120k unconfirmed the detector is sized for,
+        // spread over 100 flights so every flight is hot and the user-on-flight limit is 5
+        AbuseDetector sized = new AbuseDetector(redisTemplate, true, WINDOW, BLOCK, 30, 100, 10, 500, 10_000, 120_000);
+        int users = 60_000;
+        for (int i = 0; i < users; i++) {
+            sized.recordHold((long) (i % 100), "user-" + i, "10." + (i >> 16) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF),
+                    2, NOW + i);
+        }
+
+        assertEquals(0, sized.blockedCount());
+        for (int i = 0; i < users; i++) {
+            String ip = "10." + (i >> 16) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+            sized.checkHold((long) (i % 100), "user-" + i, ip, NOW + users);
+        }
+    }
+
+    @Test
+    void recordHold_HotFlightCountedExactly_AndDroppedOnceEmpty() {
+        detector.recordHold(FLIGHT_ID, "other", null, 5, NOW);
+        detector.recordHold(2L, USER_ID, null, 2, NOW);
+
+        assertDoesNotThrow(() -> detector.checkHold(2L, USER_ID, null, NOW), "flight 2 is not hot");
+        assertEquals(2, detector.trackedFlights());
+
+        detector.sync();
+
+        assertEquals(0, detector.trackedFlights(), "window elapsed long ago by the wall clock");
+    }
+
+    @Test
+    void recordConfirm_OffsetsHolds() {
+        for (int i = 0; i < 10; i++) {
+            detector.recordHold((long) i, USER_ID, null, 1, NOW);
+            detector.recordConfirm((long) i, USER_ID, null, NOW);
+        }
+
+        assertDoesNotThrow(() -> detector.checkHold(FLIGHT_ID, USER_ID, null, NOW));
+    }
+
+    @Test
+    void checkHold_BlockExpires() {
+        detector.recordHold(FLIGHT_ID, USER_ID, null, 4, NOW);
+        assertThrows(AbuseBlockedException.class, () -> detector.checkHold(FLIGHT_ID, USER_ID, null, NOW));
+
+        assertDoesNotThrow(() -> detector.checkHold(FLIGHT_ID, USER_ID, null, NOW + BLOCK));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sync_AdoptsBlocksFromOtherNodes() {
+        long until = System.currentTimeMillis() + BLOCK;
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(1L,
+                Set.of(ZSetOperations.TypedTuple.of("u:" + USER_ID, (double) until))));
+
+        detector.sync();
+
+        assertEquals(1, detector.blockedCount());
+        assertThrows(AbuseBlockedException.class, () -> detector.checkHold(FLIGHT_ID, USER_ID, null,
+                System.currentTimeMillis()));
+    }
+
+    @Test
+    void disabled_NeverBlocksOrTouchesRedis() {
+        AbuseDetector off = new AbuseDetector(redisTemplate, false, WINDOW, BLOCK, 0, 0, 0, 0, 100, 1_000);
+
+        off.recordHold(FLIGHT_ID, USER_ID, 10);
+        off.checkHold(FLIGHT_ID, USER_ID);
+        off.sync();
+
+        verifyNoInteractions(redisTemplate);
+    }
+}
@@ -6,6 +6,11 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -85,4 +90,39 @@ class BaggageServiceTest {
         assertDoesNotThrow(() -> baggageService.processPayment("tok_zero", BigDecimal.ZERO),
                 "processPayment with $0 amount should not throw");
     }
+
+    // ─── processPaymentAsync() ───────────────────────────────────────────────
+
+    @Test
+    void processPaymentAsync_CompletesAndReleasesBulkheadSlot() {
+        BaggageService fast = new BaggageService(1, 1_000, 10);
+
+        Boolean approved = fast.processPaymentAsync("tok_async", new BigDecimal("75.00")).join();
+
+        assertNotNull(approved);
+        assertEquals(0, fast.paymentsInFlight(), "Slot must be released once the gateway answers");
+    }
+
+    @Test
+    void processPaymentAsync_BulkheadFull_FailsFastWithRejection() {
+        BaggageService slow = new BaggageService(5_000, 10_000, 1);
+        CompletableFuture<Boolean> first = slow.processPaymentAsync("tok_1", new BigDecimal("15.00"));
+
+        CompletableFuture<Boolean> second = slow.processPaymentAsync("tok_2", new BigDecimal("15.00"));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        assertFalse(first.isDone(), "The first payment is still outstanding");
+    }
+
+    @Test
+    void processPaymentAsync_GatewaySlowerThanTimeout_FailsWithTimeout() {
+        BaggageService slow = new BaggageService(5_000, 50, 10);
+
+        CompletableFuture<Boolean> payment = slow.processPaymentAsync("tok_slow", new BigDecimal("15.00"));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> payment.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, ex.getCause());
+        assertEquals(0, slow.paymentsInFlight(), "A timed-out payment must give its slot back");
+    }
 }
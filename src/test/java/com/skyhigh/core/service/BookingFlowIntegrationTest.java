@@ -5,6 +5,7 @@ import com.skyhigh.core.model.Flight;
 import com.skyhigh.core.model.Seat;
 import com.skyhigh.core.repository.BookingRepository;
 import com.skyhigh.core.repository.FlightRepository;
+import com.skyhigh.core.repository.PassengerRepository;
 import com.skyhigh.core.repository.SeatRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -47,6 +48,9 @@ class BookingFlowIntegrationTest {
     @Autowired
     private BookingRepository bookingRepository;
 
+    @Autowired
+    private PassengerRepository passengerRepository;
+
     @MockBean
     private StringRedisTemplate redisTemplate;
 
@@ -118,5 +122,9 @@ class BookingFlowIntegrationTest {
 
         // Assert: DB state is correct
         assertEquals(1, bookingRepository.count());
+        // Both confirms resolved the new passenger concurrently; the upsert left one row
+        assertEquals(1, passengerRepository.findAll().stream()
+                .filter(passenger -> passenger.getEmail().equals("test@test.com"))
+                .count());
     }
 }
@@ -0,0 +1,202 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.repository.FlightRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HoldExpiryWheelTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private FlightRepository flightRepository;
+    @Mock
+    private SeatStatusWriter seatStatusWriter;
+    @Mock
+    private WaitlistPromotionService waitlistPromotion;
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    private HoldExpiryWheel expiryWheel;
+
+    private static final Long FLIGHT_ID = 1L;
+    private static final String SEAT_NO = "1A";
+    private static final SeatRef SEAT = new SeatRef(FLIGHT_ID, SEAT_NO);
+    private static final long HOLD_MILLIS = SeatService.HOLD_DURATION_SECONDS * 1000;
+
+    @BeforeEach
+    void setUp() {
+        expiryWheel = new HoldExpiryWheel(redisTemplate, flightRepository, seatStatusWriter, waitlistPromotion,
+                listenerContainer, true, 100, 64, 30_000);
+        expiryWheel.own(FLIGHT_ID);
+    }
+
+    @Test
+    void tick_HoldKeyExpired_ReleasesSeatAndOffersItToWaitlist() {
+        expiryWheel.track(FLIGHT_ID, SEAT_NO);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(-2L));
+        when(seatStatusWriter.releaseHolds(eq(List.of(SEAT)), any(LocalDateTime.class))).thenReturn(List.of(SEAT));
+        when(waitlistPromotion.promote(List.of(SEAT)))
+                .thenReturn(List.of(new SeatInventoryService.Offer(SEAT, "waitlisted_user")))
+                .thenReturn(List.of());
+
+        long due = System.currentTimeMillis() + HOLD_MILLIS + 200;
+        expiryWheel.tick(due);
+        verify(waitlistPromotion).promote(List.of(SEAT));
+
+        // The unclaimed offer expires through the wheel and cascades to the next user
+        expiryWheel.tick(due + HOLD_MILLIS + 200);
+        verify(seatStatusWriter, times(2)).releaseHolds(eq(List.of(SEAT)), any(LocalDateTime.class));
+        verify(waitlistPromotion, times(2)).promote(List.of(SEAT));
+    }
+
+    @Test
+    void tick_NotYetDue_DoesNothing() {
+        expiryWheel.track(FLIGHT_ID, SEAT_NO);
+
+        expiryWheel.tick(System.currentTimeMillis() + HOLD_MILLIS / 2);
+
+        verifyNoInteractions(redisTemplate, seatStatusWriter);
+    }
+
+    @Test
+    void tick_HoldKeyStillAlive_ReschedulesInsteadOfReleasing() {
+        expiryWheel.track(FLIGHT_ID, SEAT_NO);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(5_000L));
+
+        long due = System.currentTimeMillis() + HOLD_MILLIS + 200;
+        expiryWheel.tick(due);
+        verifyNoInteractions(seatStatusWriter);
+
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(-2L));
+        when(seatStatusWriter.releaseHolds(eq(List.of(SEAT)), any(LocalDateTime.class))).thenReturn(List.of(SEAT));
+        expiryWheel.tick(due + 5_200);
+
+        verify(waitlistPromotion).promote(List.of(SEAT));
+    }
+
+    @Test
+    void tick_CancelledHold_IsSkipped() {
+        expiryWheel.track(FLIGHT_ID, SEAT_NO);
+        expiryWheel.cancel(FLIGHT_ID, SEAT_NO);
+
+        expiryWheel.tick(System.currentTimeMillis() + HOLD_MILLIS + 200);
+
+        verifyNoInteractions(redisTemplate, seatStatusWriter, waitlistPromotion);
+    }
+
+    @Test
+    void track_FlightOwnedElsewhere_ForwardsToOwner() {
+        expiryWheel.track(2L, "7C");
+
+        verify(redisTemplate).convertAndSend(eq(HoldExpiryWheel.SCHEDULE_CHANNEL), startsWith("+"));
+    }
+
+    @Test
+    void onMessage_ForwardedHoldForOwnedFlight_IsScheduled() {
+        long deadline = System.currentTimeMillis() + 1_000;
+        expiryWheel.onMessage(message("+" + deadline + ":1:1A"), null);
+        expiryWheel.onMessage(message("+" + deadline + ":2:7C"), null); // not ours
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(-2L));
+        when(seatStatusWriter.releaseHolds(eq(List.of(SEAT)), any(LocalDateTime.class))).thenReturn(List.of(SEAT));
+
+        expiryWheel.tick(deadline + 200);
+
+        verify(seatStatusWriter).releaseHolds(eq(List.of(SEAT)), any(LocalDateTime.class));
+    }
+
+    @Test
+    void tick_ReleaseFails_RetriesLater() {
+        expiryWheel.track(FLIGHT_ID, SEAT_NO);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(-2L));
+        when(seatStatusWriter.releaseHolds(eq(List.of(SEAT)), any(LocalDateTime.class)))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(List.of(SEAT));
+
+        long due = System.currentTimeMillis() + HOLD_MILLIS + 200;
+        expiryWheel.tick(due);
+        verifyNoInteractions(waitlistPromotion);
+
+        expiryWheel.tick(due + 5_500);
+        verify(waitlistPromotion).promote(List.of(SEAT));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void renewLeases_TopsUpOnlyToFairShare() {
+        when(flightRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.zCard("seat_hold_nodes")).thenReturn(2L);
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(mock(Cursor.class));
+        // renew flight 1, then one SET NX for the single missing flight
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenReturn(List.of(1L))
+                .thenReturn(List.of(true));
+
+        expiryWheel.renewLeases();
+
+        assertEquals(2, expiryWheel.ownedFlights().size(), "ceil(4 flights / 2 nodes)");
+        assertTrue(expiryWheel.ownedFlights().contains(FLIGHT_ID));
+        verify(redisTemplate, times(2)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void renewLeases_MoreThanFairShare_HandsBackTheExcess() {
+        expiryWheel.own(2L);
+        expiryWheel.own(3L);
+        when(flightRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L));
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.zCard("seat_hold_nodes")).thenReturn(3L);
+        // renew all three, then relinquish two
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenReturn(List.of(1L, 1L, 1L))
+                .thenReturn(List.of(1L, 1L));
+
+        expiryWheel.renewLeases();
+
+        assertEquals(1, expiryWheel.ownedFlights().size());
+        verify(redisTemplate, times(2)).executePipelined(any(RedisCallback.class));
+        verify(redisTemplate, never()).scan(any(ScanOptions.class));
+    }
+
+    @Test
+    void renewLeases_LeaseLost_ForgetsFlight() {
+        when(flightRepository.findAllIds()).thenReturn(List.of(1L));
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.zCard("seat_hold_nodes")).thenReturn(2L);
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenReturn(List.of(0L))   // renew: another node holds it now
+                .thenReturn(List.of(false)); // acquire attempt fails too
+
+        expiryWheel.renewLeases();
+
+        assertEquals(Set.of(), expiryWheel.ownedFlights());
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(HoldExpiryWheel.SCHEDULE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,79 @@
+package com.skyhigh.core.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class PassengerDirectoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+    }
+
+    @Test
+    void idFor_SameEmail_UpsertsOnceThenServesFromCache() {
+        PassengerDirectory directory = new PassengerDirectory(jdbcTemplate, 10, 60_000);
+        when(jdbcTemplate.queryForObject(contains("ON CONFLICT (email)"), eq(Long.class), eq("Alice@Example.com"),
+                any())).thenReturn(7L);
+
+        assertEquals(7L, directory.idFor("Alice@Example.com"));
+        assertEquals(7L, directory.idFor("Alice@Example.com"));
+
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Long.class), any(), any());
+    }
+
+    @Test
+    void idFor_EmailsDifferingInCase_ResolvedSeparatelyLikeTheUniqueIndex() {
+        PassengerDirectory directory = new PassengerDirectory(jdbcTemplate, 10, 60_000);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("Alice@Example.com"), any())).thenReturn(7L);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("alice@example.com"), any())).thenReturn(9L);
+
+        assertEquals(7L, directory.idFor("Alice@Example.com"));
+        assertEquals(9L, directory.idFor("alice@example.com"), "not the other spelling's cached id");
+        assertEquals(7L, directory.idFor("Alice@Example.com"));
+
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Long.class), any(), any());
+    }
+
+    @Test
+    void idFor_EntryExpired_UpsertsAgain() {
+        PassengerDirectory directory = new PassengerDirectory(jdbcTemplate, 10, 0);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("bob@example.com"), any())).thenReturn(8L);
+
+        directory.idFor("bob@example.com");
+        directory.idFor("bob@example.com");
+
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Long.class), any(), any());
+    }
+
+    @Test
+    void idFor_CacheFull_EvictsLeastRecentlyUsed() {
+        PassengerDirectory directory = new PassengerDirectory(jdbcTemplate, 2, 60_000);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), anyString(), any())).thenReturn(1L, 2L, 3L, 4L);
+
+        directory.idFor("a@example.com");
+        directory.idFor("b@example.com");
+        directory.idFor("a@example.com");
+        directory.idFor("c@example.com");
+
+        assertEquals(2, directory.cachedCount());
+        assertEquals(1L, directory.idFor("a@example.com"));
+        assertEquals(4L, directory.idFor("b@example.com"));
+    }
+}
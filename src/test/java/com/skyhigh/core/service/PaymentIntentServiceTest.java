@@ -0,0 +1,194 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.service.PaymentIntentService.PaymentIntent;
+import com.skyhigh.core.service.PaymentIntentService.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentIntentServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private BaggageService baggageService;
+
+    @InjectMocks
+    private PaymentIntentService paymentIntentService;
+
+    private static final Long FLIGHT_ID = 1L;
+    private static final String SEAT_NUMBER = "10A";
+    private static final String USER_ID = "user_002";
+    private static final String INTENT_ID = "pi_existing";
+    private static final String INTENT_KEY = "payment_intent:pi_existing";
+    private static final BigDecimal FEE = new BigDecimal("225.00");
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        lenient().when(baggageService.calculateExcessBaggageFee(40.0)).thenReturn(FEE);
+    }
+
+    // ─── createIntent() ──────────────────────────────────────────────────────
+
+    @Test
+    void createIntent_NewKey_StoresIntentForFee() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenAnswer(inv -> inv.getArgument(2)); // script returns the new intent id
+
+        PaymentIntentService.Created created =
+                paymentIntentService.createIntent("key-1", FLIGHT_ID, SEAT_NUMBER, USER_ID, 40.0);
+
+        assertFalse(created.replayed());
+        assertEquals(Status.REQUIRES_PAYMENT, created.intent().status());
+        assertEquals(0, created.intent().amount().compareTo(FEE));
+        assertTrue(created.intent().id().startsWith("pi_"));
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("payment_idempotency:user_002:key-1", "payment_intent:" + created.intent().id())),
+                any(Object[].class));
+    }
+
+    @Test
+    void createIntent_ReplayedKey_ReturnsStoredIntent() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(INTENT_ID);
+        when(hashOperations.entries(INTENT_KEY)).thenReturn(storedIntent(Status.SUCCEEDED));
+
+        PaymentIntentService.Created created =
+                paymentIntentService.createIntent("key-1", FLIGHT_ID, SEAT_NUMBER, USER_ID, 40.0);
+
+        assertTrue(created.replayed());
+        assertEquals(INTENT_ID, created.intent().id());
+        assertEquals(Status.SUCCEEDED, created.intent().status(), "Replay must return the cached outcome");
+    }
+
+    @Test
+    void createIntent_KeyReusedForOtherSeat_ThrowsIllegalState() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(INTENT_ID);
+        when(hashOperations.entries(INTENT_KEY)).thenReturn(storedIntent(Status.REQUIRES_PAYMENT));
+
+        assertThrows(IllegalStateException.class,
+                () -> paymentIntentService.createIntent("key-1", FLIGHT_ID, "11B", USER_ID, 40.0));
+    }
+
+    @Test
+    void createIntent_NoFeeDue_ThrowsIllegalState() {
+        when(baggageService.calculateExcessBaggageFee(20.0)).thenReturn(BigDecimal.ZERO);
+
+        assertThrows(IllegalStateException.class,
+                () -> paymentIntentService.createIntent("key-1", FLIGHT_ID, SEAT_NUMBER, USER_ID, 20.0));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    // ─── executeIntent() ─────────────────────────────────────────────────────
+
+    @Test
+    void executeIntent_Claimed_ChargesGatewayOnceAndStoresOutcome() {
+        when(hashOperations.entries(INTENT_KEY)).thenReturn(storedIntent(Status.REQUIRES_PAYMENT));
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(INTENT_KEY)))).thenReturn("CLAIMED");
+        when(baggageService.processPaymentAsync("tok_visa", FEE)).thenReturn(CompletableFuture.completedFuture(true));
+
+        PaymentIntent intent = paymentIntentService.executeIntent(INTENT_ID, USER_ID, "tok_visa").join();
+
+        assertEquals(Status.SUCCEEDED, intent.status());
+        verify(baggageService, times(1)).processPaymentAsync("tok_visa", FEE);
+        verify(hashOperations).putAll(INTENT_KEY, Map.of("status", "SUCCEEDED"));
+    }
+
+    @Test
+    void executeIntent_AlreadyExecuted_ReturnsCachedResultWithoutGateway() {
+        when(hashOperations.entries(INTENT_KEY)).thenReturn(storedIntent(Status.DECLINED));
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(INTENT_KEY)))).thenReturn("DECLINED");
+
+        PaymentIntent intent = paymentIntentService.executeIntent(INTENT_ID, USER_ID, "tok_visa").join();
+
+        assertEquals(Status.DECLINED, intent.status());
+        verify(baggageService, never()).processPaymentAsync(any(), any());
+    }
+
+    @Test
+    void executeIntent_BulkheadRejected_ReturnsIntentToRequiresPayment() {
+        when(hashOperations.entries(INTENT_KEY)).thenReturn(storedIntent(Status.REQUIRES_PAYMENT));
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(INTENT_KEY)))).thenReturn("CLAIMED");
+        when(baggageService.processPaymentAsync("tok_visa", FEE))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("saturated")));
+
+        CompletableFuture<PaymentIntent> result = paymentIntentService.executeIntent(INTENT_ID, USER_ID, "tok_visa");
+
+        CompletionException ex = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        verify(hashOperations).putAll(INTENT_KEY, Map.of("status", "REQUIRES_PAYMENT"));
+    }
+
+    @Test
+    void executeIntent_GatewayTimeout_MarksFailedNotRetryable() {
+        when(hashOperations.entries(INTENT_KEY)).thenReturn(storedIntent(Status.REQUIRES_PAYMENT));
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(INTENT_KEY)))).thenReturn("CLAIMED");
+        when(baggageService.processPaymentAsync("tok_visa", FEE))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+
+        PaymentIntent intent = paymentIntentService.executeIntent(INTENT_ID, USER_ID, "tok_visa").join();
+
+        assertEquals(Status.FAILED, intent.status());
+        assertEquals("GATEWAY_TIMEOUT", intent.failureReason());
+    }
+
+    @Test
+    void executeIntent_OtherUsersIntent_ThrowsNotFound() {
+        when(hashOperations.entries(INTENT_KEY)).thenReturn(storedIntent(Status.REQUIRES_PAYMENT));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentIntentService.executeIntent(INTENT_ID, "someone_else", "tok_visa"));
+        verify(baggageService, never()).processPaymentAsync(any(), any());
+    }
+
+    // ─── PaymentIntent.covers() ──────────────────────────────────────────────
+
+    @Test
+    void covers_OnlySucceededIntentForSameSeatAndUser() {
+        PaymentIntent paid = new PaymentIntent(INTENT_ID, FLIGHT_ID, SEAT_NUMBER, USER_ID, FEE, "USD",
+                Status.SUCCEEDED, null);
+
+        assertTrue(paid.covers(FLIGHT_ID, SEAT_NUMBER, USER_ID, FEE));
+        assertFalse(paid.covers(FLIGHT_ID, "11B", USER_ID, FEE), "Intent is bound to its seat");
+        assertFalse(paid.covers(FLIGHT_ID, SEAT_NUMBER, "other", FEE), "Intent is bound to its user");
+        assertFalse(paid.covers(FLIGHT_ID, SEAT_NUMBER, USER_ID, new BigDecimal("300.00")),
+                "Intent must cover the full fee");
+        assertFalse(new PaymentIntent(INTENT_ID, FLIGHT_ID, SEAT_NUMBER, USER_ID, FEE, "USD", Status.DECLINED, null)
+                .covers(FLIGHT_ID, SEAT_NUMBER, USER_ID, FEE));
+    }
+
+    private static Map<Object, Object> storedIntent(Status status) {
+        Map<Object, Object> fields = new HashMap<>();
+        fields.put("flightId", "1");
+        fields.put("seatNumber", SEAT_NUMBER);
+        fields.put("userId", USER_ID);
+        fields.put("amount", "225.00");
+        fields.put("currency", "USD");
+        fields.put("status", status.name());
+        return fields;
+    }
+}
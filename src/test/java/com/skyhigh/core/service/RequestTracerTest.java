@@ -0,0 +1,64 @@
+package com.skyhigh.core.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTracerTest {
+
+    @Test
+    void start_NotSampled_ReturnsSharedNoopAndRecordsNothing() {
+        RequestTracer tracer = new RequestTracer(true, 0.0, 4);
+
+        RequestTracer.Trace trace = tracer.start("seat.hold");
+        trace.stage("redis.claim");
+        tracer.finish(trace, null);
+
+        assertSame(RequestTracer.Trace.NOOP, trace);
+        assertTrue(tracer.slowest(10).isEmpty());
+        assertSame(RequestTracer.Trace.NOOP, new RequestTracer(false, 1.0, 4).start("seat.hold"));
+    }
+
+    @Test
+    void slowest_SlowestFirst_OldestOverwrittenWhenRingFull() {
+        RequestTracer tracer = new RequestTracer(true, 1.0, 2);
+        finish(tracer, "first", 0);
+        finish(tracer, "fast", 0);
+        finish(tracer, "slow", 5);
+
+        List<Map<String, Object>> traces = tracer.slowest(10);
+
+        assertEquals(List.of("slow", "fast"), traces.stream().map(trace -> trace.get("operation")).toList());
+        assertEquals("slow", tracer.slowest(1).get(0).get("operation"));
+    }
+
+    @Test
+    void finish_ReportsStagesTagsAndOutcome() {
+        RequestTracer tracer = new RequestTracer(true, 1.0, 4);
+        RequestTracer.Trace trace = tracer.start("seat.confirm");
+        trace.tag("flight", 1L);
+        for (int i = 0; i < RequestTracer.Trace.MAX_STAGES + 4; i++) {
+            trace.stage("stage" + i);
+        }
+        tracer.finish(trace, new IllegalStateException("Seat hold has expired or belongs to another user."));
+
+        Map<String, Object> view = tracer.slowest(1).get(0);
+        assertEquals("hold_expired", view.get("outcome"));
+        assertEquals(Map.of("flight", "1"), view.get("tags"));
+        assertEquals(RequestTracer.Trace.MAX_STAGES, ((List<?>) view.get("stages")).size());
+    }
+
+    private static void finish(RequestTracer tracer, String operation, long millis) {
+        RequestTracer.Trace trace = tracer.start(operation);
+        if (millis > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        trace.stage("work");
+        tracer.finish(trace, null);
+    }
+}
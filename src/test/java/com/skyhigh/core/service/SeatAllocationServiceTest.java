@@ -0,0 +1,112 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.model.Seat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class SeatAllocationServiceTest {
+
+    @Mock
+    private SeatMapCache seatMapCache;
+    @Mock
+    private SeatService seatService;
+
+    @InjectMocks
+    private SeatAllocationService allocationService;
+
+    private static final Long FLIGHT_ID = 1L;
+    private static final String USER_ID = "family_1";
+
+    /** Row 1: business A-D; rows 10 and 20: economy A-F. */
+    private static FlightSeatMap cabin(Set<String> taken) {
+        List<Seat> seats = new ArrayList<>();
+        long id = 1;
+        for (String letter : List.of("A", "B", "C", "D")) {
+            seats.add(seat(id++, "1" + letter, Seat.SeatClass.BUSINESS, taken));
+        }
+        for (int row : List.of(10, 20)) {
+            for (String letter : List.of("A", "B", "C", "D", "E", "F")) {
+                seats.add(seat(id++, row + letter, Seat.SeatClass.ECONOMY, taken));
+            }
+        }
+        return FlightSeatMap.of(FLIGHT_ID, seats);
+    }
+
+    private static Seat seat(long id, String number, Seat.SeatClass seatClass, Set<String> taken) {
+        return Seat.builder().id(id).seatNumber(number).seatClass(seatClass)
+                .status(taken.contains(number) ? Seat.SeatStatus.CONFIRMED : Seat.SeatStatus.AVAILABLE)
+                .build();
+    }
+
+    @Test
+    void findAdjacentBlock_PrefersTightestFittingRun() {
+        // Row 10 has a free run of exactly 3 (D-F); row 20 is fully free (run of 6)
+        FlightSeatMap map = cabin(Set.of("10A", "10B", "10C"));
+
+        assertEquals(List.of("10D", "10E", "10F"),
+                map.findAdjacentBlock(3, Seat.SeatClass.ECONOMY, Set.of()));
+    }
+
+    @Test
+    void findAdjacentBlock_RespectsSeatClassAndTracksUpdates() {
+        FlightSeatMap map = cabin(Set.of());
+        assertEquals(List.of("1A", "1B"), map.findAdjacentBlock(2, Seat.SeatClass.BUSINESS, Set.of()));
+
+        map.updateStatus("1B", Seat.SeatStatus.HELD);
+        map.updateStatus("1D", Seat.SeatStatus.HELD);
+
+        assertTrue(map.findAdjacentBlock(2, Seat.SeatClass.BUSINESS, Set.of()).isEmpty(),
+                "1A and 1C are free but not adjacent");
+
+        map.updateStatus("1B", Seat.SeatStatus.AVAILABLE);
+        assertEquals(List.of("1A", "1B", "1C"), map.findAdjacentBlock(3, Seat.SeatClass.BUSINESS, Set.of()));
+    }
+
+    @Test
+    void allocateAdjacent_HoldsBestBlock() {
+        when(seatMapCache.getSnapshot(FLIGHT_ID)).thenReturn(cabin(Set.of("10A", "10B", "10C")));
+        when(seatService.holdSeats(FLIGHT_ID, List.of("10D", "10E", "10F"), USER_ID)).thenReturn("ref-1");
+
+        SeatAllocationService.Allocation allocation =
+                allocationService.allocateAdjacent(FLIGHT_ID, 3, Seat.SeatClass.ECONOMY, USER_ID);
+
+        assertEquals("ref-1", allocation.holdReference());
+        assertEquals(List.of("10D", "10E", "10F"), allocation.seatNumbers());
+    }
+
+    @Test
+    void allocateAdjacent_LostRace_TriesNextBlock() {
+        when(seatMapCache.getSnapshot(FLIGHT_ID)).thenReturn(cabin(Set.of("10A", "10B", "10C")));
+        when(seatService.holdSeats(FLIGHT_ID, List.of("10D", "10E", "10F"), USER_ID))
+                .thenThrow(new IllegalStateException("Seat 10E is currently held by another user."));
+        when(seatService.holdSeats(FLIGHT_ID, List.of("20A", "20B", "20C"), USER_ID)).thenReturn("ref-2");
+
+        SeatAllocationService.Allocation allocation =
+                allocationService.allocateAdjacent(FLIGHT_ID, 3, Seat.SeatClass.ECONOMY, USER_ID);
+
+        assertEquals(List.of("20A", "20B", "20C"), allocation.seatNumbers());
+    }
+
+    @Test
+    void allocateAdjacent_NoBlockLeft_Throws() {
+        when(seatMapCache.getSnapshot(FLIGHT_ID)).thenReturn(cabin(Set.of()));
+
+        assertThrows(IllegalStateException.class,
+                () -> allocationService.allocateAdjacent(FLIGHT_ID, 5, Seat.SeatClass.BUSINESS, USER_ID));
+        verifyNoInteractions(seatService);
+    }
+}
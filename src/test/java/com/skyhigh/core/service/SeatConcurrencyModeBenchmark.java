@@ -0,0 +1,205 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.model.Flight;
+import com.skyhigh.core.model.Seat;
+import com.skyhigh.core.repository.BookingRepository;
+import com.skyhigh.core.repository.FlightRepository;
+import com.skyhigh.core.repository.SeatRepository;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pessimistic (SELECT ... FOR UPDATE) vs optimistic (version-checked UPDATE)
+ * seat writes under contention: many threads racing for a few hot seats.
+ *
+ * Redis and the in-process seat guard are stubbed to let every contender
+ * through, so all of the contention lands on the database. Each round must
+ * still produce exactly one winner per seat.
+ *
+ * Runs on the test profile (H2) without Redis. Excluded from the default
+ * build; run with
+ * {@code mvn test -Dtest=SeatConcurrencyModeBenchmark -Dtest.excludedGroups=}
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class SeatConcurrencyModeBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int HOT_SEATS = 4;
+    private static final int ROUNDS = 50;
+    private static final String USER_ID = "bench-user";
+
+    @Autowired
+    private SeatService seatService;
+
+    @Autowired
+    private SeatRepository seatRepository;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @MockBean
+    private StringRedisTemplate redisTemplate;
+
+    @MockBean
+    private ValueOperations<String, String> valueOperations;
+
+    @MockBean
+    private SeatLockStripes seatLocks;
+
+    // Redis-backed infrastructure the measured paths never touch
+    @MockBean
+    private ProxyManager<byte[]> proxyManager;
+
+    @MockBean
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private Long flightId;
+
+    @BeforeEach
+    void setup() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        when(valueOperations.get(anyString())).thenReturn(USER_ID);
+        when(seatLocks.tryAcquire(anyLong(), anyString())).thenReturn(true);
+
+        bookingRepository.deleteAll();
+        seatRepository.deleteAll();
+        flightRepository.deleteAll();
+
+        Flight flight = flightRepository.save(Flight.builder()
+                .flightNumber("SH-BENCH")
+                .departureTime(LocalDateTime.now().plusDays(1))
+                .arrivalTime(LocalDateTime.now().plusDays(1).plusHours(2))
+                .aircraftType("TestPlane")
+                .build());
+        flightId = flight.getId();
+        List<Seat> seats = new ArrayList<>();
+        for (int i = 0; i < HOT_SEATS; i++) {
+            seats.add(Seat.builder()
+                    .flight(flight)
+                    .seatNumber("1" + (char) ('A' + i))
+                    .seatClass(Seat.SeatClass.ECONOMY)
+                    .build());
+        }
+        seatRepository.saveAll(seats);
+
+        SeatService target = AopTestUtils.getUltimateTargetObject(seatService);
+        ReflectionTestUtils.setField(target, "atomicHoldEnabled", false);
+    }
+
+    @Test
+    void holdStorm_PessimisticVsOptimistic() throws InterruptedException {
+        for (boolean optimistic : new boolean[] {false, true}) {
+            Result result = run(optimistic, Seat.SeatStatus.AVAILABLE,
+                    seat -> seatService.holdSeat(flightId, seat, USER_ID));
+            report("hold", optimistic, result);
+        }
+    }
+
+    @Test
+    void confirmStorm_PessimisticVsOptimistic() throws InterruptedException {
+        for (boolean optimistic : new boolean[] {false, true}) {
+            Result result = run(optimistic, Seat.SeatStatus.HELD,
+                    seat -> seatService.confirmBooking(flightId, seat, USER_ID, "bench@skyhigh.com"));
+            report("confirm", optimistic, result);
+        }
+    }
+
+    private Result run(boolean optimistic, Seat.SeatStatus startStatus, SeatOperation operation)
+            throws InterruptedException {
+        SeatService target = AopTestUtils.getUltimateTargetObject(seatService);
+        ReflectionTestUtils.setField(target, "optimisticLocking", optimistic);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger wins = new AtomicInteger();
+        AtomicInteger losses = new AtomicInteger();
+        long elapsedNanos = 0;
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                resetSeats(startStatus);
+                CountDownLatch start = new CountDownLatch(1);
+                CountDownLatch done = new CountDownLatch(THREADS);
+                for (int t = 0; t < THREADS; t++) {
+                    String seat = "1" + (char) ('A' + t % HOT_SEATS);
+                    executor.submit(() -> {
+                        try {
+                            start.await();
+                            operation.apply(seat);
+                            wins.incrementAndGet();
+                        } catch (Exception e) {
+                            losses.incrementAndGet();
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+                }
+                long begin = System.nanoTime();
+                start.countDown();
+                done.await(30, TimeUnit.SECONDS);
+                elapsedNanos += System.nanoTime() - begin;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Correctness first: exactly one winner per hot seat per round
+        assertEquals(HOT_SEATS * ROUNDS, wins.get());
+        return new Result(wins.get(), losses.get(), elapsedNanos);
+    }
+
+    private void resetSeats(Seat.SeatStatus status) {
+        bookingRepository.deleteAll();
+        List<Seat> seats = seatRepository.findByFlightId(flightId);
+        seats.forEach(seat -> seat.setStatus(status));
+        seatRepository.saveAll(seats);
+    }
+
+    private static void report(String operation, boolean optimistic, Result result) {
+        int attempts = result.wins() + result.losses();
+        double millis = result.elapsedNanos() / 1_000_000.0;
+        System.out.printf("%-8s %-11s attempts=%d wins=%d losses=%d total=%.1fms throughput=%.0f ops/s "
+                        + "mean/round=%.2fms%n",
+                operation, optimistic ? "optimistic" : "pessimistic", attempts, result.wins(), result.losses(),
+                millis, attempts / (millis / 1000.0), millis / ROUNDS);
+    }
+
+    @FunctionalInterface
+    private interface SeatOperation {
+        void apply(String seatNumber);
+    }
+
+    private record Result(int wins, int losses, long elapsedNanos) {
+    }
+}
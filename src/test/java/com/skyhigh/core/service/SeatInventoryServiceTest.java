@@ -0,0 +1,182 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.repository.SeatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class SeatInventoryServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+    @Mock
+    private SeatRepository seatRepository;
+
+    private SeatInventoryService seatInventory;
+    /** The hold log as the fake Redis below sees it: member -> score. */
+    private final Map<String, Double> holdLog = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        seatInventory = new SeatInventoryService(redisTemplate, seatRepository);
+    }
+
+    @Test
+    void pollExpiredHolds_ReturnsOnlyExpiredEntriesThisPollerRemoved() {
+        holdLog.put("1:1A", 1_000d);
+        holdLog.put("1:1B", 1_000d);
+        holdLog.put("1:1C", 1_000d);
+        stubDueEntries();
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(inv -> {
+            inv.getArgument(0, SessionCallback.class).execute(redisTemplate);
+            // 1C was removed by a concurrent poller first
+            holdLog.remove("1:1C");
+            return List.of(-2L, 30_000L, -2L);
+        });
+        stubSettlePipeline();
+
+        List<SeatRef> expired = seatInventory.pollExpiredHolds(10);
+
+        assertEquals(List.of(new SeatRef(1L, "1A")), expired);
+        verify(redisTemplate).getExpire(SeatService.buildHoldKey(1L, "1B"), TimeUnit.MILLISECONDS);
+        assertEquals(Set.of("1:1B"), holdLog.keySet());
+        assertTrue(holdLog.get("1:1B") > 1_000, "live hold pushed back to its real expiry");
+    }
+
+    @Test
+    void pollExpiredHolds_SeatReHeldAfterTtlRead_KeepsTheNewLogEntry() {
+        holdLog.put("1:1A", 1_000d);
+        stubDueEntries();
+        when(zSetOperations.add(eq("seat_hold_log"), anySet())).thenAnswer(inv -> {
+            Set<ZSetOperations.TypedTuple<String>> entries = inv.getArgument(1);
+            entries.forEach(entry -> holdLog.put(entry.getValue(), entry.getScore()));
+            return (long) entries.size();
+        });
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(inv -> {
+            inv.getArgument(0, SessionCallback.class).execute(redisTemplate);
+            // The old hold key is gone, then a new hold on 1A is flushed and logged before the removal
+            seatInventory.logHolds(List.of(new SeatRef(1L, "1A")));
+            return List.of(-2L);
+        });
+        stubSettlePipeline();
+
+        List<SeatRef> expired = seatInventory.pollExpiredHolds(10);
+
+        assertTrue(expired.isEmpty(), "the new hold's seat must not be released");
+        assertTrue(holdLog.containsKey("1:1A"), "the new hold's log entry survives");
+    }
+
+    @Test
+    void pollExpiredHolds_NothingDue_NoPipelines() {
+        when(zSetOperations.rangeByScoreWithScores(anyString(), anyDouble(), anyDouble(), anyLong(), anyLong()))
+                .thenReturn(new LinkedHashSet<>());
+
+        assertTrue(seatInventory.pollExpiredHolds(10).isEmpty());
+
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    void tryHold_InLegacyHoldKeyWindow_ScriptAlsoChecksTheUntaggedKey() {
+        List<String> keys = List.of("seat_status:{1}", SeatService.buildHoldKey(1L, "1A"),
+                SeatService.legacyHoldKey(1L, "1A"));
+        when(redisTemplate.execute(any(RedisScript.class), eq(keys), eq("1A"), eq("u1"), eq("120")))
+                .thenReturn(2L);
+
+        assertEquals(SeatInventoryService.HoldOutcome.ALREADY_HELD, seatInventory.tryHold(1L, "1A", "u1", 120));
+    }
+
+    @Test
+    void tryHold_OnRedisClusterOrAfterWindow_OnlyTheTaggedKey() {
+        List<String> keys = List.of("seat_status:{1}", SeatService.buildHoldKey(1L, "1A"));
+        when(redisTemplate.execute(any(RedisScript.class), eq(keys), eq("1A"), eq("u1"), eq("120")))
+                .thenReturn(1L);
+
+        // Untagged keys live in other cluster slots; the scripts cannot touch them there
+        ReflectionTestUtils.setField(seatInventory, "clusterNodes", "redis-0:6379");
+        assertEquals(SeatInventoryService.HoldOutcome.CLAIMED, seatInventory.tryHold(1L, "1A", "u1", 120));
+
+        ReflectionTestUtils.setField(seatInventory, "clusterNodes", "");
+        ReflectionTestUtils.setField(seatInventory, "legacyHoldKeyWindowMillis", 0L);
+        assertFalse(seatInventory.inLegacyHoldKeyWindow());
+        assertEquals(SeatInventoryService.HoldOutcome.CLAIMED, seatInventory.tryHold(1L, "1A", "u1", 120));
+    }
+
+    private void stubDueEntries() {
+        when(zSetOperations.rangeByScoreWithScores(eq("seat_hold_log"), eq(Double.NEGATIVE_INFINITY), anyDouble(),
+                eq(0L), eq(10L))).thenAnswer(inv -> {
+                    Set<ZSetOperations.TypedTuple<String>> due = new LinkedHashSet<>();
+                    new TreeMap<>(holdLog).forEach((member, score) -> due.add(new DefaultTypedTuple<>(member, score)));
+                    return due;
+                });
+    }
+
+    /** Runs the settle pipeline against {@link #holdLog}, doing what the Lua script does. */
+    private void stubSettlePipeline() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(inv -> {
+            List<Object> results = new ArrayList<>();
+            RedisConnection connection = mock(RedisConnection.class);
+            RedisScriptingCommands scripting = mock(RedisScriptingCommands.class);
+            when(connection.scriptingCommands()).thenReturn(scripting);
+            when(scripting.eval(any(byte[].class), eq(ReturnType.INTEGER), eq(1), any(byte[][].class)))
+                    .thenAnswer(eval -> {
+                        byte[][] keysAndArgs = (byte[][]) eval.getRawArguments()[3];
+                        results.add(settle(text(keysAndArgs[1]), Long.parseLong(text(keysAndArgs[2])),
+                                text(keysAndArgs[3])));
+                        return null;
+                    });
+            inv.getArgument(0, RedisCallback.class).doInRedis(connection);
+            return results;
+        });
+    }
+
+    private long settle(String member, long polledScore, String newScore) {
+        Double score = holdLog.get(member);
+        if (score == null || score.longValue() != polledScore) {
+            return 0;
+        }
+        if (newScore.isEmpty()) {
+            holdLog.remove(member);
+            return 1;
+        }
+        holdLog.put(member, Double.parseDouble(newScore));
+        return 0;
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
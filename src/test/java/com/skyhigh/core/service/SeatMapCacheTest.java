@@ -0,0 +1,171 @@
+package com.skyhigh.core.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skyhigh.core.model.Seat;
+import com.skyhigh.core.repository.SeatRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class SeatMapCacheTest {
+
+    @Mock
+    private SeatRepository seatRepository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private SeatMapCache seatMapCache;
+
+    private static final Long FLIGHT_ID = 1L;
+
+    private static Seat seat(long id, String number, Seat.SeatClass seatClass, Seat.SeatStatus status) {
+        return Seat.builder().id(id).seatNumber(number).seatClass(seatClass).status(status).build();
+    }
+
+    private static Seat versioned(long id, String number, Seat.SeatStatus status, long version) {
+        return Seat.builder().id(id).seatNumber(number).seatClass(Seat.SeatClass.ECONOMY).status(status)
+                .version(version).build();
+    }
+
+    @Test
+    void getSnapshot_LoadsOnceThenServesFromMemory() {
+        when(seatRepository.findByFlightId(FLIGHT_ID)).thenReturn(List.of(
+                seat(2L, "1B", Seat.SeatClass.BUSINESS, Seat.SeatStatus.HELD),
+                seat(1L, "1A", Seat.SeatClass.BUSINESS, Seat.SeatStatus.AVAILABLE)));
+
+        FlightSeatMap first = seatMapCache.getSnapshot(FLIGHT_ID);
+        FlightSeatMap second = seatMapCache.getSnapshot(FLIGHT_ID);
+
+        assertSame(first, second, "Second read must be served from the cached snapshot");
+        verify(seatRepository, times(1)).findByFlightId(FLIGHT_ID);
+
+        assertEquals(0, first.indexOf("1A"), "Seats must be ordered by id");
+        assertEquals(Seat.SeatStatus.HELD, first.statusAt(first.indexOf("1B")));
+    }
+
+    @Test
+    void getSnapshot_UnknownFlight_ReturnsNull() {
+        when(seatRepository.findByFlightId(99L)).thenReturn(Collections.emptyList());
+
+        assertNull(seatMapCache.getSnapshot(99L));
+    }
+
+    @Test
+    void markTransitions_UpdateSnapshotIncrementally() {
+        when(seatRepository.findByFlightId(FLIGHT_ID)).thenReturn(List.of(
+                seat(1L, "1A", Seat.SeatClass.ECONOMY, Seat.SeatStatus.AVAILABLE)));
+        FlightSeatMap snapshot = seatMapCache.getSnapshot(FLIGHT_ID);
+        int index = snapshot.indexOf("1A");
+
+        seatMapCache.markHeld(FLIGHT_ID, "1A");
+        assertEquals(Seat.SeatStatus.HELD, snapshot.statusAt(index));
+
+        seatMapCache.markConfirmed(FLIGHT_ID, "1A");
+        assertEquals(Seat.SeatStatus.CONFIRMED, snapshot.statusAt(index));
+
+        seatMapCache.markAvailable(FLIGHT_ID, "1A");
+        assertEquals(Seat.SeatStatus.AVAILABLE, snapshot.statusAt(index));
+
+        verify(seatRepository, times(1)).findByFlightId(FLIGHT_ID);
+    }
+
+    @Test
+    void getRendered_SameRevision_ReusesBodyAndEtag() throws Exception {
+        when(seatRepository.findByFlightId(FLIGHT_ID)).thenReturn(List.of(
+                Seat.builder().id(1L).seatNumber("1A").seatClass(Seat.SeatClass.ECONOMY)
+                        .status(Seat.SeatStatus.AVAILABLE).version(3L).build()));
+
+        FlightSeatMap.RenderedSeatMap first = seatMapCache.getRendered(FLIGHT_ID);
+        FlightSeatMap.RenderedSeatMap second = seatMapCache.getRendered(FLIGHT_ID);
+
+        assertSame(first.body(), second.body(), "Body must be rendered once per revision");
+        assertTrue(first.etag().matches("\"1-[0-9a-f]{16}\""), first.etag());
+        JsonNode json = objectMapper.readTree(first.body());
+        assertEquals("1A", json.get(0).get("seatNumber").asText());
+        assertEquals("AVAILABLE", json.get(0).get("status").asText());
+    }
+
+    @Test
+    void getRendered_AfterTransition_ChangesEtag() {
+        when(seatRepository.findByFlightId(FLIGHT_ID)).thenReturn(List.of(
+                seat(1L, "1A", Seat.SeatClass.ECONOMY, Seat.SeatStatus.AVAILABLE)));
+        FlightSeatMap.RenderedSeatMap before = seatMapCache.getRendered(FLIGHT_ID);
+
+        seatMapCache.markHeld(FLIGHT_ID, "1A");
+        FlightSeatMap.RenderedSeatMap after = seatMapCache.getRendered(FLIGHT_ID);
+
+        assertNotEquals(before.etag(), after.etag());
+        assertEquals(before.revision() + 1, after.revision());
+    }
+
+    @Test
+    void render_EtagFollowsContentNotTheVersionSum() {
+        ObjectMapper mapper = new ObjectMapper();
+        // Same version sum (8), different seat maps — e.g. two nodes that saw different deltas
+        FlightSeatMap nodeA = FlightSeatMap.of(FLIGHT_ID, List.of(
+                versioned(1L, "1A", Seat.SeatStatus.HELD, 3), versioned(2L, "1B", Seat.SeatStatus.AVAILABLE, 5)));
+        FlightSeatMap nodeB = FlightSeatMap.of(FLIGHT_ID, List.of(
+                versioned(1L, "1A", Seat.SeatStatus.AVAILABLE, 4), versioned(2L, "1B", Seat.SeatStatus.AVAILABLE, 4)));
+        FlightSeatMap nodeC = FlightSeatMap.of(FLIGHT_ID, List.of(
+                versioned(1L, "1A", Seat.SeatStatus.HELD, 3), versioned(2L, "1B", Seat.SeatStatus.AVAILABLE, 5)));
+
+        assertEquals(nodeA.getRevision(), nodeB.getRevision());
+        assertNotEquals(nodeA.render(mapper).etag(), nodeB.render(mapper).etag());
+        assertEquals(nodeA.render(mapper).etag(), nodeC.render(mapper).etag(), "same content, same ETag on any node");
+    }
+
+    @Test
+    void markHeld_SnapshotNotLoaded_DoesNotQueryDbButPublishes() {
+        seatMapCache.markHeld(FLIGHT_ID, "1A");
+
+        verifyNoInteractions(seatRepository);
+        verify(redisTemplate).convertAndSend(SeatMapCache.DELTA_CHANNEL, "1:1A:HELD:0");
+    }
+
+    @Test
+    void markHeld_PublishesDeltaWithNewVersion() {
+        when(seatRepository.findByFlightId(FLIGHT_ID)).thenReturn(List.of(
+                Seat.builder().id(1L).seatNumber("1A").seatClass(Seat.SeatClass.ECONOMY)
+                        .status(Seat.SeatStatus.AVAILABLE).version(4L).build()));
+        seatMapCache.getSnapshot(FLIGHT_ID);
+
+        seatMapCache.markHeld(FLIGHT_ID, "1A");
+
+        verify(redisTemplate).convertAndSend(SeatMapCache.DELTA_CHANNEL, "1:1A:HELD:5");
+    }
+
+    @Test
+    void applyDelta_IgnoresStaleAndDuplicateVersions() {
+        when(seatRepository.findByFlightId(FLIGHT_ID)).thenReturn(List.of(
+                Seat.builder().id(1L).seatNumber("1A").seatClass(Seat.SeatClass.ECONOMY)
+                        .status(Seat.SeatStatus.AVAILABLE).version(4L).build()));
+        FlightSeatMap snapshot = seatMapCache.getSnapshot(FLIGHT_ID);
+
+        assertTrue(seatMapCache.applyDelta(new SeatMapDelta(FLIGHT_ID, "1A", Seat.SeatStatus.HELD, 5L)));
+        assertFalse(seatMapCache.applyDelta(new SeatMapDelta(FLIGHT_ID, "1A", Seat.SeatStatus.HELD, 5L)));
+        assertFalse(seatMapCache.applyDelta(new SeatMapDelta(FLIGHT_ID, "1A", Seat.SeatStatus.AVAILABLE, 3L)));
+
+        assertEquals(Seat.SeatStatus.HELD, snapshot.statusAt(0));
+        assertEquals(5L, snapshot.getRevision());
+    }
+}
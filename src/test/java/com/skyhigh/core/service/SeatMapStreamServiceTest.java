@@ -0,0 +1,66 @@
+package com.skyhigh.core.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class SeatMapStreamServiceTest {
+
+    @Mock
+    private SeatMapCache seatMapCache;
+
+    private SeatMapStreamService streamService;
+
+    @BeforeEach
+    void setUp() {
+        streamService = new SeatMapStreamService(seatMapCache, new ObjectMapper());
+        ReflectionTestUtils.setField(streamService, "maxSubscribers", 3);
+        ReflectionTestUtils.setField(streamService, "maxSubscribersPerFlight", 2);
+    }
+
+    @Test
+    void subscribe_FlightAtLimit_RejectsWithoutTakingANodeSlot() {
+        when(seatMapCache.getRendered(anyLong())).thenReturn(new FlightSeatMap.RenderedSeatMap(1, "\"1-1\"", new byte[0]));
+
+        assertNotNull(streamService.subscribe(1L));
+        assertNotNull(streamService.subscribe(1L));
+        assertThrows(RejectedExecutionException.class, () -> streamService.subscribe(1L));
+
+        assertEquals(2, streamService.subscriberCount());
+        assertNotNull(streamService.subscribe(2L), "Another flight still has room on this node");
+    }
+
+    @Test
+    void subscribe_NodeAtLimit_Rejects() {
+        when(seatMapCache.getRendered(anyLong())).thenReturn(new FlightSeatMap.RenderedSeatMap(1, "\"1-1\"", new byte[0]));
+
+        streamService.subscribe(1L);
+        streamService.subscribe(2L);
+        streamService.subscribe(3L);
+
+        assertThrows(RejectedExecutionException.class, () -> streamService.subscribe(4L));
+        assertEquals(3, streamService.subscriberCount());
+    }
+
+    @Test
+    void subscribe_UnknownFlight_ReturnsNull() {
+        when(seatMapCache.getRendered(9L)).thenReturn(null);
+
+        assertNull(streamService.subscribe(9L));
+        assertEquals(0, streamService.subscriberCount());
+    }
+}
@@ -0,0 +1,57 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.exception.AbuseBlockedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.skyhigh.core.service.SeatMetrics.Outcome.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatMetricsTest {
+
+    @Test
+    void outcomeOf_ClassifiesSeatServiceFailures() {
+        assertEquals(SUCCESS, SeatMetrics.outcomeOf(null));
+        assertEquals(CONTENDED, SeatMetrics.outcomeOf(
+                new IllegalStateException("Seat 1A is currently held by another user.")));
+        assertEquals(CONTENDED, SeatMetrics.outcomeOf(new IllegalStateException("Seat 1A is already being confirmed.")));
+        assertEquals(ALREADY_BOOKED, SeatMetrics.outcomeOf(new IllegalStateException("Seat 1A is already booked.")));
+        assertEquals(ALREADY_BOOKED, SeatMetrics.outcomeOf(
+                new IllegalStateException("Seat already confirmed (concurrent booking detected).")));
+        assertEquals(HOLD_EXPIRED, SeatMetrics.outcomeOf(
+                new IllegalStateException("Seat hold has expired or belongs to another user.")));
+        assertEquals(CONFLICT, SeatMetrics.outcomeOf(
+                new IllegalStateException("Seat 1A was modified concurrently, please retry.")));
+        assertEquals(NOT_FOUND, SeatMetrics.outcomeOf(new IllegalArgumentException("Seat 9Z not found.")));
+        assertEquals(BLOCKED, SeatMetrics.outcomeOf(new AbuseBlockedException("Too many unconfirmed holds", 60)));
+        assertEquals(ERROR, SeatMetrics.outcomeOf(new RuntimeException("connection refused")));
+    }
+
+    @Test
+    void recordOutcome_RegistersEveryOutcomeUpFront() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SeatMetrics metrics = new SeatMetrics(registry);
+
+        metrics.recordOutcome(SeatMetrics.Operation.CONFIRM, System.nanoTime(), null);
+
+        assertEquals(SeatMetrics.Outcome.values().length, registry.get("seat.confirm").timers().size());
+        assertEquals(1, registry.get("seat.confirm").tag("outcome", "success").timer().count());
+        assertEquals(0, registry.get("seat.confirm").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void timers_ArePublishedAsPrometheusHistograms() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        SeatMetrics metrics = new SeatMetrics(registry);
+
+        metrics.setnx().record(Duration.ofMillis(3));
+
+        String scrape = registry.scrape();
+        assertTrue(scrape.contains("seat_hold_redis_seconds_bucket{command=\"setnx\""), scrape);
+        assertTrue(scrape.contains("seat_db_lock_wait_seconds_bucket{operation=\"confirm\""));
+    }
+}
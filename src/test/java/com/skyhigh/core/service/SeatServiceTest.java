@@ -1,12 +1,15 @@
 package com.skyhigh.core.service;
 
+import com.skyhigh.core.exception.AbuseBlockedException;
 import com.skyhigh.core.model.*;
 import com.skyhigh.core.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
@@ -14,7 +17,11 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -32,6 +39,8 @@ import static org.mockito.Mockito.*;
 @MockitoSettings(strictness = Strictness.STRICT_STUBS)
 class SeatServiceTest {
 
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
         @Mock
         private SeatRepository seatRepository;
         @Mock
@@ -39,9 +48,29 @@ class SeatServiceTest {
         @Mock
         private PassengerRepository passengerRepository;
         @Mock
+        private PassengerDirectory passengerDirectory;
+        @Mock
         private StringRedisTemplate redisTemplate;
         @Mock
         private ValueOperations<String, String> valueOperations;
+        @Mock
+        private SeatMapCache seatMapCache;
+        @Mock
+        private SeatInventoryService seatInventory;
+        @Mock
+        private SeatStatusWriter seatStatusWriter;
+        @Spy
+        private TransactionOperations transactionOperations = TransactionOperations.withoutTransaction();
+        @Spy
+        private SeatLockStripes seatLocks = new SeatLockStripes(4);
+        @Mock
+        private HoldExpiryWheel holdExpiry;
+        @Mock
+        private AbuseDetector abuseDetector;
+        @Spy
+        private SeatMetrics seatMetrics = new SeatMetrics(meterRegistry);
+        @Spy
+        private RequestTracer tracer = new RequestTracer(true, 1.0, 16);
 
         @InjectMocks
         private SeatService seatService;
@@ -49,7 +78,7 @@ class SeatServiceTest {
         private static final Long FLIGHT_ID = 1L;
         private static final String SEAT_NO = "1A";
         private static final String USER_ID = "user123";
-        private static final String HOLD_KEY = "seat_hold:1:1A";
+        private static final String HOLD_KEY = "seat_hold:{1}:1A";
         private static final String EMAIL = "test@skyhigh.com";
 
         @BeforeEach
@@ -139,6 +168,159 @@ class SeatServiceTest {
                 verify(redisTemplate).delete(HOLD_KEY);
         }
 
+        @Test
+        void holdSeat_DuplicateInFlight_RejectedBeforeRedisAndDb() {
+                assertTrue(seatLocks.tryAcquire(FLIGHT_ID, SEAT_NO), "simulate a request already in flight");
+
+                IllegalStateException ex = assertThrows(IllegalStateException.class,
+                                () -> seatService.holdSeat(FLIGHT_ID, SEAT_NO, USER_ID));
+
+                assertTrue(ex.getMessage().contains("currently held"));
+                verifyNoInteractions(seatRepository, valueOperations);
+                verify(transactionOperations, never()).execute(any());
+        }
+
+        // ─── holdSeat() — atomic Lua path ────────────────────────────────────────
+
+        @Test
+        void holdSeat_AtomicClaim_DefersDbWriteAndSkipsRowLock() {
+                ReflectionTestUtils.setField(seatService, "atomicHoldEnabled", true);
+                when(seatInventory.tryHold(FLIGHT_ID, SEAT_NO, USER_ID, 120L))
+                                .thenReturn(SeatInventoryService.HoldOutcome.CLAIMED);
+
+                String ref = seatService.holdSeat(FLIGHT_ID, SEAT_NO, USER_ID);
+
+                assertNotNull(ref);
+                verify(seatStatusWriter).persistHold(FLIGHT_ID, SEAT_NO, USER_ID);
+                verify(holdExpiry).track(FLIGHT_ID, SEAT_NO);
+                verify(abuseDetector).recordHold(FLIGHT_ID, USER_ID, 1);
+                verifyNoInteractions(seatRepository, valueOperations);
+                assertEquals(1, meterRegistry.get("seat.hold").tag("outcome", "success").timer().count());
+                assertEquals(1, meterRegistry.get("seat.hold.redis").tag("command", "lua").timer().count());
+        }
+
+        @Test
+        void holdSeat_ClientBlockedForAbuse_RejectedBeforeRedisAndDb() {
+                ReflectionTestUtils.setField(seatService, "atomicHoldEnabled", true);
+                doThrow(new AbuseBlockedException("Too many unconfirmed holds, try again later.", 60))
+                                .when(abuseDetector).checkHold(FLIGHT_ID, USER_ID);
+
+                assertThrows(AbuseBlockedException.class, () -> seatService.holdSeat(FLIGHT_ID, SEAT_NO, USER_ID));
+
+                verifyNoInteractions(seatInventory, seatRepository, valueOperations, seatStatusWriter);
+                verify(abuseDetector, never()).recordHold(any(), any(), anyInt());
+                assertEquals(1, meterRegistry.get("seat.hold").tag("outcome", "blocked").timer().count());
+        }
+
+        @Test
+        void holdSeat_AtomicLosesRace_RejectedWithoutTouchingDb() {
+                ReflectionTestUtils.setField(seatService, "atomicHoldEnabled", true);
+                when(seatInventory.tryHold(FLIGHT_ID, SEAT_NO, USER_ID, 120L))
+                                .thenReturn(SeatInventoryService.HoldOutcome.ALREADY_HELD);
+
+                IllegalStateException ex = assertThrows(IllegalStateException.class,
+                                () -> seatService.holdSeat(FLIGHT_ID, SEAT_NO, USER_ID));
+
+                assertTrue(ex.getMessage().contains("currently held"));
+                verifyNoInteractions(seatRepository, seatStatusWriter, holdExpiry);
+                verify(abuseDetector, never()).recordHold(any(), any(), anyInt());
+                assertEquals(1, meterRegistry.get("seat.hold").tag("outcome", "contended").timer().count());
+                Map<String, Object> trace = tracer.slowest(1).get(0);
+                assertEquals("contended", trace.get("outcome"));
+                assertEquals(Map.of("flight", "1", "seat", SEAT_NO), trace.get("tags"));
+                assertEquals(List.of("abuse.check", "redis.claim"), stageNames(trace).subList(0, 2));
+        }
+
+        @Test
+        void holdSeat_AtomicSeatBooked_ThrowsAlreadyBooked() {
+                ReflectionTestUtils.setField(seatService, "atomicHoldEnabled", true);
+                when(seatInventory.tryHold(FLIGHT_ID, SEAT_NO, USER_ID, 120L))
+                                .thenReturn(SeatInventoryService.HoldOutcome.ALREADY_BOOKED);
+
+                IllegalStateException ex = assertThrows(IllegalStateException.class,
+                                () -> seatService.holdSeat(FLIGHT_ID, SEAT_NO, USER_ID));
+
+                assertTrue(ex.getMessage().contains("already booked"));
+                verifyNoInteractions(seatRepository, seatStatusWriter);
+        }
+
+        // ─── holdSeats() — group hold ────────────────────────────────────────────
+
+        @Test
+        void holdSeats_AllAvailable_LocksInOrderAndUpdatesOnce() {
+                List<String> seats = List.of("1B", "1A");
+                List<String> ordered = List.of("1A", "1B");
+                when(seatInventory.tryHoldAll(FLIGHT_ID, ordered, USER_ID, 120L))
+                                .thenReturn(new SeatInventoryService.BatchHoldResult(
+                                                SeatInventoryService.HoldOutcome.CLAIMED, null));
+                when(seatRepository.findByFlightIdAndSeatNumberInWithLock(FLIGHT_ID, ordered))
+                                .thenReturn(List.of(
+                                                Seat.builder().id(1L).seatNumber("1A").status(Seat.SeatStatus.AVAILABLE).build(),
+                                                Seat.builder().id(2L).seatNumber("1B").status(Seat.SeatStatus.AVAILABLE).build()));
+
+                String ref = seatService.holdSeats(FLIGHT_ID, seats, USER_ID);
+
+                assertNotNull(ref);
+                verify(seatRepository).markHeldByIds(eq(List.of(1L, 2L)), any());
+                verify(seatMapCache).markHeld(FLIGHT_ID, "1A");
+                verify(seatMapCache).markHeld(FLIGHT_ID, "1B");
+                verify(holdExpiry).track(FLIGHT_ID, "1A");
+                verify(holdExpiry).track(FLIGHT_ID, "1B");
+                verify(seatInventory, never()).releaseHolds(any(), any(), any());
+        }
+
+        @Test
+        void holdSeats_AtomicMode_StaleHeldRowIsLeftUntouched() {
+                ReflectionTestUtils.setField(seatService, "atomicHoldEnabled", true);
+                List<String> seats = List.of("1A", "1B");
+                when(seatInventory.tryHoldAll(FLIGHT_ID, seats, USER_ID, 120L))
+                                .thenReturn(new SeatInventoryService.BatchHoldResult(
+                                                SeatInventoryService.HoldOutcome.CLAIMED, null));
+                when(seatRepository.findByFlightIdAndSeatNumberInWithLock(FLIGHT_ID, seats))
+                                .thenReturn(List.of(
+                                                Seat.builder().id(1L).seatNumber("1A").status(Seat.SeatStatus.AVAILABLE).build(),
+                                                Seat.builder().id(2L).seatNumber("1B").status(Seat.SeatStatus.HELD).build()));
+
+                seatService.holdSeats(FLIGHT_ID, seats, USER_ID);
+
+                // Bumping 1B's version would drift from the snapshot, which skips unchanged statuses
+                verify(seatRepository).markHeldByIds(eq(List.of(1L)), any());
+                verify(seatMapCache).markHeld(FLIGHT_ID, "1A");
+                verify(seatMapCache, never()).markHeld(FLIGHT_ID, "1B");
+                verify(holdExpiry).track(FLIGHT_ID, "1B");
+        }
+
+        @Test
+        void holdSeats_OneSeatHeldInRedis_NothingHeld() {
+                when(seatInventory.tryHoldAll(FLIGHT_ID, List.of("1A", "1B"), USER_ID, 120L))
+                                .thenReturn(new SeatInventoryService.BatchHoldResult(
+                                                SeatInventoryService.HoldOutcome.ALREADY_HELD, "1B"));
+
+                IllegalStateException ex = assertThrows(IllegalStateException.class,
+                                () -> seatService.holdSeats(FLIGHT_ID, List.of("1A", "1B"), USER_ID));
+
+                assertTrue(ex.getMessage().contains("1B"));
+                verifyNoInteractions(seatRepository);
+        }
+
+        @Test
+        void holdSeats_SeatConfirmedInDb_ReleasesAllRedisHolds() {
+                List<String> seats = List.of("1A", "1B");
+                when(seatInventory.tryHoldAll(FLIGHT_ID, seats, USER_ID, 120L))
+                                .thenReturn(new SeatInventoryService.BatchHoldResult(
+                                                SeatInventoryService.HoldOutcome.CLAIMED, null));
+                when(seatRepository.findByFlightIdAndSeatNumberInWithLock(FLIGHT_ID, seats))
+                                .thenReturn(List.of(
+                                                Seat.builder().id(1L).seatNumber("1A").status(Seat.SeatStatus.AVAILABLE).build(),
+                                                Seat.builder().id(2L).seatNumber("1B").status(Seat.SeatStatus.CONFIRMED).build()));
+
+                assertThrows(IllegalStateException.class,
+                                () -> seatService.holdSeats(FLIGHT_ID, seats, USER_ID));
+
+                verify(seatInventory).releaseHolds(FLIGHT_ID, seats, USER_ID);
+                verify(seatRepository, never()).markHeldByIds(any(), any());
+        }
+
         // ─── confirmBooking() ────────────────────────────────────────────────────
 
         @Test
@@ -157,7 +339,8 @@ class SeatServiceTest {
                 // FIX: stub the single locked-query method used by confirmBooking()
                 when(seatRepository.findByFlightIdAndSeatNumberWithLock(FLIGHT_ID, SEAT_NO))
                                 .thenReturn(Optional.of(heldSeat));
-                when(passengerRepository.findByEmail(EMAIL)).thenReturn(Optional.of(passenger));
+                when(passengerDirectory.idFor(EMAIL)).thenReturn(1L);
+                when(passengerRepository.getReferenceById(1L)).thenReturn(passenger);
 
                 // SeatService.confirmBooking() calls TransactionSynchronizationManager
                 // .registerSynchronization() which requires an active TX context.
@@ -178,6 +361,7 @@ class SeatServiceTest {
                 assertNotNull(result);
                 assertEquals(Booking.BookingStatus.CONFIRMED, result.getStatus());
                 assertNotNull(result.getBookingReference());
+                assertSame(passenger, result.getPassenger());
                 assertTrue(result.getBookingReference().startsWith("PNR-"),
                                 "Booking reference must start with PNR-");
                 assertEquals(Seat.SeatStatus.CONFIRMED, heldSeat.getStatus(),
@@ -185,6 +369,16 @@ class SeatServiceTest {
 
                 // Verify the afterCommit hook called Redis delete
                 verify(redisTemplate).delete(HOLD_KEY);
+                verify(seatInventory).markConfirmed(FLIGHT_ID, SEAT_NO);
+                verify(holdExpiry).cancel(FLIGHT_ID, SEAT_NO);
+                verify(abuseDetector).recordConfirm(FLIGHT_ID, USER_ID);
+                assertEquals(1, meterRegistry.get("seat.confirm").tag("outcome", "success").timer().count());
+                assertEquals(1, meterRegistry.get("seat.db.lock.wait").tag("operation", "confirm").timer().count());
+                Map<String, Object> trace = tracer.slowest(1).get(0);
+                assertEquals("seat.confirm", trace.get("operation"));
+                assertEquals("success", trace.get("outcome"));
+                assertEquals(List.of("redis.get", "seat.guard", "passenger.resolve", "db.lock", "booking.insert",
+                                "seat.update", "commit"), stageNames(trace).subList(0, 7));
         }
 
     @Test
@@ -195,9 +389,40 @@ class SeatServiceTest {
                 () -> seatService.confirmBooking(FLIGHT_ID, SEAT_NO, USER_ID, EMAIL));
 
         assertTrue(ex.getMessage().contains("expired") || ex.getMessage().contains("another user"));
-        verifyNoInteractions(seatRepository, bookingRepository, passengerRepository);
+        verifyNoInteractions(seatRepository, bookingRepository, passengerRepository, passengerDirectory);
     }
 
+        @Test
+        void confirmBooking_UntaggedHoldDuringTransitionWindow_ConfirmsAndDeletesThatKey() {
+                String legacyKey = SeatService.legacyHoldKey(FLIGHT_ID, SEAT_NO);
+                Seat heldSeat = Seat.builder()
+                                .id(10L)
+                                .seatNumber(SEAT_NO)
+                                .flight(Flight.builder().id(FLIGHT_ID).build())
+                                .status(Seat.SeatStatus.HELD)
+                                .build();
+                when(valueOperations.get(HOLD_KEY)).thenReturn(null);
+                when(seatInventory.inLegacyHoldKeyWindow()).thenReturn(true);
+                // Held by a node not yet on the hash-tagged key format
+                when(valueOperations.get(legacyKey)).thenReturn(USER_ID);
+                when(seatRepository.findByFlightIdAndSeatNumberWithLock(FLIGHT_ID, SEAT_NO))
+                                .thenReturn(Optional.of(heldSeat));
+                when(passengerDirectory.idFor(EMAIL)).thenReturn(1L);
+
+                TransactionSynchronizationManager.initSynchronization();
+                try {
+                        seatService.confirmBooking(FLIGHT_ID, SEAT_NO, USER_ID, EMAIL);
+                        TransactionSynchronizationManager.getSynchronizations()
+                                        .forEach(s -> s.afterCommit());
+                } finally {
+                        TransactionSynchronizationManager.clearSynchronization();
+                }
+
+                assertEquals(Seat.SeatStatus.CONFIRMED, heldSeat.getStatus());
+                verify(redisTemplate).delete(legacyKey);
+                verify(redisTemplate, never()).delete(HOLD_KEY);
+        }
+
     @Test
     void confirmBooking_HoldExpired_ThrowsIllegalState() {
         // Redis key TTL elapsed — key is gone
@@ -206,9 +431,35 @@ class SeatServiceTest {
         assertThrows(IllegalStateException.class,
                 () -> seatService.confirmBooking(FLIGHT_ID, SEAT_NO, USER_ID, EMAIL));
 
-        verifyNoInteractions(seatRepository, bookingRepository, passengerRepository);
+        // Outside the transition window the untagged key is not consulted
+        verify(valueOperations, never()).get(SeatService.legacyHoldKey(FLIGHT_ID, SEAT_NO));
+        verifyNoInteractions(seatRepository, bookingRepository, passengerRepository, passengerDirectory);
     }
 
+        @Test
+        void confirmBooking_DuplicateInFlight_RejectedWithoutTransaction() {
+                when(valueOperations.get(HOLD_KEY)).thenReturn(USER_ID);
+                assertTrue(seatLocks.tryAcquire(FLIGHT_ID, SEAT_NO), "simulate a confirm already in flight");
+
+                assertThrows(IllegalStateException.class,
+                                () -> seatService.confirmBooking(FLIGHT_ID, SEAT_NO, USER_ID, EMAIL));
+
+                verify(transactionOperations, never()).execute(any());
+                verifyNoInteractions(seatRepository, bookingRepository, passengerRepository, passengerDirectory);
+        }
+
+        @Test
+        void confirmBooking_ReleasesSeatGuardAfterFailure() {
+                when(valueOperations.get(HOLD_KEY)).thenReturn(USER_ID);
+                when(seatRepository.findByFlightIdAndSeatNumberWithLock(FLIGHT_ID, SEAT_NO))
+                                .thenReturn(Optional.empty());
+
+                assertThrows(IllegalArgumentException.class,
+                                () -> seatService.confirmBooking(FLIGHT_ID, SEAT_NO, USER_ID, EMAIL));
+
+                assertTrue(seatLocks.tryAcquire(FLIGHT_ID, SEAT_NO), "guard must be released in finally");
+        }
+
         @Test
         void confirmBooking_SeatAlreadyConfirmedInDb_ThrowsIllegalState() {
                 // Concurrent confirmation race: two users bypassed Redis; DB lock detects it
@@ -229,4 +480,115 @@ class SeatServiceTest {
                 assertTrue(ex.getMessage().contains("confirmed") || ex.getMessage().contains("concurrent"));
                 verifyNoInteractions(bookingRepository, passengerRepository);
         }
+
+        // ─── optimistic mode (version-checked UPDATE) ────────────────────────────
+
+        @Test
+        void holdSeat_Optimistic_ConditionalUpdateWithoutRowLock() {
+                ReflectionTestUtils.setField(seatService, "optimisticLocking", true);
+                Seat seat = Seat.builder().id(10L).seatNumber(SEAT_NO).version(4L)
+                                .status(Seat.SeatStatus.AVAILABLE).build();
+                when(valueOperations.setIfAbsent(eq(HOLD_KEY), eq(USER_ID), any(Duration.class))).thenReturn(true);
+                when(seatRepository.findByFlightIdAndSeatNumber(FLIGHT_ID, SEAT_NO)).thenReturn(Optional.of(seat));
+                when(seatRepository.compareAndSetStatus(eq(10L), eq(4L), eq(Seat.SeatStatus.AVAILABLE),
+                                eq(Seat.SeatStatus.HELD), any())).thenReturn(1);
+
+                assertNotNull(seatService.holdSeat(FLIGHT_ID, SEAT_NO, USER_ID));
+
+                verify(seatRepository, never()).findByFlightIdAndSeatNumberWithLock(any(), any());
+                verify(seatRepository, never()).save(any());
+                verify(seatMapCache).markHeld(FLIGHT_ID, SEAT_NO);
+        }
+
+        @Test
+        void holdSeat_Optimistic_VersionConflictIsRetriedWithFreshRead() {
+                ReflectionTestUtils.setField(seatService, "optimisticLocking", true);
+                Seat stale = Seat.builder().id(10L).seatNumber(SEAT_NO).version(4L)
+                                .status(Seat.SeatStatus.AVAILABLE).build();
+                Seat fresh = Seat.builder().id(10L).seatNumber(SEAT_NO).version(5L)
+                                .status(Seat.SeatStatus.AVAILABLE).build();
+                when(valueOperations.setIfAbsent(eq(HOLD_KEY), eq(USER_ID), any(Duration.class))).thenReturn(true);
+                when(seatRepository.findByFlightIdAndSeatNumber(FLIGHT_ID, SEAT_NO))
+                                .thenReturn(Optional.of(stale), Optional.of(fresh));
+                when(seatRepository.compareAndSetStatus(eq(10L), eq(4L), any(), any(), any())).thenReturn(0);
+                when(seatRepository.compareAndSetStatus(eq(10L), eq(5L), any(), any(), any())).thenReturn(1);
+
+                assertNotNull(seatService.holdSeat(FLIGHT_ID, SEAT_NO, USER_ID));
+
+                verify(transactionOperations, times(2)).execute(any());
+                verify(redisTemplate, never()).delete(HOLD_KEY);
+        }
+
+        @Test
+        void holdSeat_Optimistic_RetriesExhausted_ThrowsAndRollsBackRedisKey() {
+                ReflectionTestUtils.setField(seatService, "optimisticLocking", true);
+                ReflectionTestUtils.setField(seatService, "optimisticMaxAttempts", 2);
+                Seat seat = Seat.builder().id(10L).seatNumber(SEAT_NO).version(4L)
+                                .status(Seat.SeatStatus.AVAILABLE).build();
+                when(valueOperations.setIfAbsent(eq(HOLD_KEY), eq(USER_ID), any(Duration.class))).thenReturn(true);
+                when(seatRepository.findByFlightIdAndSeatNumber(FLIGHT_ID, SEAT_NO)).thenReturn(Optional.of(seat));
+                when(seatRepository.compareAndSetStatus(any(), any(), any(), any(), any())).thenReturn(0);
+
+                IllegalStateException ex = assertThrows(IllegalStateException.class,
+                                () -> seatService.holdSeat(FLIGHT_ID, SEAT_NO, USER_ID));
+
+                assertTrue(ex.getMessage().contains("modified concurrently"));
+                verify(seatRepository, times(2)).compareAndSetStatus(any(), any(), any(), any(), any());
+                verify(redisTemplate).delete(HOLD_KEY);
+        }
+
+        @Test
+        void confirmBooking_Optimistic_ConditionalUpdateThenBookingInsert() {
+                ReflectionTestUtils.setField(seatService, "optimisticLocking", true);
+                Seat heldSeat = Seat.builder().id(10L).seatNumber(SEAT_NO).version(7L)
+                                .flight(Flight.builder().id(FLIGHT_ID).build())
+                                .status(Seat.SeatStatus.HELD).build();
+                Passenger passenger = Passenger.builder().id(1L).email(EMAIL).build();
+                when(valueOperations.get(HOLD_KEY)).thenReturn(USER_ID);
+                when(seatRepository.findByFlightIdAndSeatNumber(FLIGHT_ID, SEAT_NO)).thenReturn(Optional.of(heldSeat));
+                when(seatRepository.compareAndSetStatus(eq(10L), eq(7L), eq(Seat.SeatStatus.HELD),
+                                eq(Seat.SeatStatus.CONFIRMED), any())).thenReturn(1);
+                when(passengerDirectory.idFor(EMAIL)).thenReturn(1L);
+                when(passengerRepository.getReferenceById(1L)).thenReturn(passenger);
+
+                TransactionSynchronizationManager.initSynchronization();
+                Booking result;
+                try {
+                        result = seatService.confirmBooking(FLIGHT_ID, SEAT_NO, USER_ID, EMAIL);
+                } finally {
+                        TransactionSynchronizationManager.clearSynchronization();
+                }
+
+                assertEquals(Booking.BookingStatus.CONFIRMED, result.getStatus());
+                assertEquals(Seat.SeatStatus.CONFIRMED, result.getSeat().getStatus());
+                assertEquals(8L, result.getSeat().getVersion());
+                verify(seatRepository, never()).findByFlightIdAndSeatNumberWithLock(any(), any());
+                verify(seatRepository, never()).save(any());
+                verify(bookingRepository).save(any(Booking.class));
+        }
+
+        @Test
+        void confirmBooking_Optimistic_LostToConcurrentConfirm_NoBookingInserted() {
+                ReflectionTestUtils.setField(seatService, "optimisticLocking", true);
+                Seat held = Seat.builder().id(10L).seatNumber(SEAT_NO).version(7L)
+                                .status(Seat.SeatStatus.HELD).build();
+                Seat confirmed = Seat.builder().id(10L).seatNumber(SEAT_NO).version(8L)
+                                .status(Seat.SeatStatus.CONFIRMED).build();
+                when(valueOperations.get(HOLD_KEY)).thenReturn(USER_ID);
+                when(seatRepository.findByFlightIdAndSeatNumber(FLIGHT_ID, SEAT_NO))
+                                .thenReturn(Optional.of(held), Optional.of(confirmed));
+                when(seatRepository.compareAndSetStatus(any(), any(), any(), any(), any())).thenReturn(0);
+
+                assertThrows(IllegalStateException.class,
+                                () -> seatService.confirmBooking(FLIGHT_ID, SEAT_NO, USER_ID, EMAIL));
+
+                verifyNoInteractions(bookingRepository, passengerRepository);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<String> stageNames(Map<String, Object> trace) {
+                return ((List<Map<String, Object>>) trace.get("stages")).stream()
+                                .map(stage -> (String) stage.get("name"))
+                                .toList();
+        }
 }
@@ -0,0 +1,132 @@
+package com.skyhigh.core.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class SeatStatusWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private SeatMapCache seatMapCache;
+    @Mock
+    private SeatInventoryService seatInventory;
+
+    private SeatStatusWriter writer;
+
+    private static final Long FLIGHT_ID = 1L;
+
+    @BeforeEach
+    void setUp() {
+        // The flusher thread is not started — flushPending() is driven directly
+        writer = new SeatStatusWriter(jdbcTemplate, seatMapCache, seatInventory,
+                TransactionOperations.withoutTransaction(), 2, 50, 10, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubBatch(String sqlPrefix, int... counts) {
+        when(jdbcTemplate.batchUpdate(startsWith(sqlPrefix), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][] { counts });
+    }
+
+    @Test
+    void flushPending_WritesQueuedHoldsInBatches() {
+        stubBatch("UPDATE seats SET status = 'HELD'", 1, 1);
+        writer.persistHold(FLIGHT_ID, "1A", "u1");
+        writer.persistHold(FLIGHT_ID, "1B", "u2");
+        writer.persistHold(FLIGHT_ID, "1C", "u3");
+        writer.persistHold(FLIGHT_ID, "1D", "u4");
+        assertEquals(4, writer.pendingCount());
+
+        writer.flushPending();
+
+        assertEquals(0, writer.pendingCount());
+        // batch-size=2 → two JDBC batches, each logged to Redis first
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), any(Collection.class), eq(2),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(seatInventory, times(2)).logHolds(anyList());
+        verify(seatMapCache).markHeld(FLIGHT_ID, "1A");
+        verify(seatMapCache).markHeld(FLIGHT_ID, "1D");
+        verify(seatInventory, never()).revokeHold(any(), any(), any());
+    }
+
+    @Test
+    void flushPending_ConfirmedRow_RevokesRedisHold() {
+        stubBatch("UPDATE seats SET status = 'HELD'", 1, 0);
+        writer.persistHold(FLIGHT_ID, "1A", "u1");
+        writer.persistHold(FLIGHT_ID, "1B", "u2");
+
+        writer.flushPending();
+
+        verify(seatInventory).revokeHold(FLIGHT_ID, "1B", "u2");
+        verify(seatMapCache, never()).markHeld(FLIGHT_ID, "1B");
+    }
+
+    @Test
+    void releaseHolds_ReturnsOnlyRowsThatWereStillHeld() {
+        stubBatch("UPDATE seats SET status = 'AVAILABLE'", 0, 1);
+
+        List<SeatRef> released = writer.releaseHolds(List.of(
+                new SeatRef(FLIGHT_ID, "1A"), new SeatRef(FLIGHT_ID, "1B")));
+
+        assertEquals(List.of(new SeatRef(FLIGHT_ID, "1B")), released);
+        verify(seatMapCache).markAvailable(FLIGHT_ID, "1B");
+        verify(seatMapCache, never()).markAvailable(FLIGHT_ID, "1A");
+    }
+
+    @Test
+    void releaseHolds_EmptyInput_SkipsDb() {
+        assertTrue(writer.releaseHolds(List.of()).isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void releaseStaleHolds_PostgreSql_ReleasesChunkWithOneReturningUpdate() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        List<SeatRef> rows = List.of(new SeatRef(FLIGHT_ID, "1A"), new SeatRef(2L, "7C"));
+        when(jdbcTemplate.query(contains("RETURNING flight_id, seat_number"), any(RowMapper.class),
+                any(), any(), eq(1000))).thenReturn(rows);
+
+        List<SeatRef> released = writer.releaseStaleHolds(LocalDateTime.now().minusSeconds(125), 1000);
+
+        assertEquals(rows, released);
+        verify(seatMapCache).markAvailable(FLIGHT_ID, "1A");
+        verify(seatMapCache).markAvailable(2L, "7C");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void releaseStaleHolds_H2_UsesDataChangeDeltaTable() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+        when(jdbcTemplate.query(startsWith("SELECT flight_id, seat_number FROM FINAL TABLE"), any(RowMapper.class),
+                any(), any(), eq(10))).thenReturn(List.of());
+
+        assertTrue(writer.releaseStaleHolds(LocalDateTime.now(), 10).isEmpty());
+        writer.releaseStaleHolds(LocalDateTime.now(), 10);
+
+        // Product name is looked up once
+        verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+    }
+}
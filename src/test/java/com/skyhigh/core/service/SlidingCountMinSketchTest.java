@@ -0,0 +1,64 @@
+package com.skyhigh.core.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingCountMinSketchTest {
+
+    private static final long WINDOW = 10_000;
+
+    @Test
+    void estimate_NeverBelowTrueCount() {
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(4, 64, 10, WINDOW);
+        for (int key = 0; key < 500; key++) {
+            sketch.add("k" + key, key % 7, 0);
+        }
+
+        for (int key = 0; key < 500; key++) {
+            assertTrue(sketch.estimate("k" + key, 0) >= key % 7);
+        }
+    }
+
+    @Test
+    void add_ConservativeUpdate_LightKeysStayNearTheirCount() {
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(4, 1024, 10, WINDOW);
+        for (int key = 0; key < 2_000; key++) {
+            sketch.add("k" + key, 1, 0);
+        }
+
+        int overcounted = 0;
+        for (int key = 0; key < 2_000; key++) {
+            long estimate = sketch.estimate("k" + key, 0);
+            assertTrue(estimate >= 1);
+            if (estimate > 3) {
+                overcounted++;
+            }
+        }
+        assertTrue(overcounted < 20, overcounted + " keys overcounted by more than 2");
+    }
+
+    @Test
+    void estimate_ExactWithoutCollisions() {
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(4, 4096, 10, WINDOW);
+        sketch.add("user", 3, 0);
+        sketch.add("user", -1, 500);
+
+        assertEquals(2, sketch.estimate("user", 500));
+        assertEquals(0, sketch.estimate("absent", 500));
+    }
+
+    @Test
+    void estimate_ForgetsCountsOlderThanTheWindow() {
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(4, 4096, 10, WINDOW);
+        sketch.add("user", 5, 0);
+        sketch.add("user", 1, 5_000);
+
+        assertEquals(6, sketch.estimate("user", 9_999));
+        assertEquals(1, sketch.estimate("user", 10_000));
+        // The slot holding the first add is reused and cleared
+        sketch.add("user", 2, 10_000);
+        assertEquals(3, sketch.estimate("user", 10_000));
+        assertEquals(0, sketch.estimate("user", 20_000));
+    }
+}
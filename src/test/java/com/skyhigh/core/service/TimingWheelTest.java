@@ -0,0 +1,75 @@
+package com.skyhigh.core.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long START = 1_000_000;
+
+    @Test
+    void entriesFireInDeadlineOrderWithinOneTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, START);
+        wheel.add(START + 350, "b");
+        wheel.add(START + 120, "a");
+        wheel.add(START + 700, "c");
+
+        List<String> fired = new ArrayList<>();
+        for (long now = START; now <= START + 1_000; now += 100) {
+            long tickEnd = now;
+            wheel.advance(now, entry -> {
+                assertTrue(entry.deadlineMillis() <= tickEnd, "Never fires early");
+                assertTrue(tickEnd - entry.deadlineMillis() < 100, "Fires within one tick");
+                fired.add(entry.item());
+            });
+        }
+
+        assertEquals(List.of("a", "b", "c"), fired);
+    }
+
+    @Test
+    void deadlinesBeyondTheWheelCascadeThroughOverflowLevels() {
+        // 8 x 100 ms: level 0 spans 0.8 s, level 1 6.4 s, level 2 51.2 s
+        TimingWheel<Long> wheel = new TimingWheel<>(100, 8, START);
+        List<Long> deadlines = List.of(START + 900, START + 7_250, START + 45_010, START + 120_000);
+        deadlines.forEach(deadline -> wheel.add(deadline, deadline));
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = START; now <= START + 121_000; now += 100) {
+            long tickEnd = now;
+            wheel.advance(now, entry -> {
+                assertTrue(entry.deadlineMillis() <= tickEnd, "Never fires early");
+                assertTrue(tickEnd - entry.deadlineMillis() < 100, "Fires within one tick");
+                fired.add(entry.item());
+            });
+        }
+
+        assertEquals(deadlines, fired);
+    }
+
+    @Test
+    void advancingPastManyTicksAtOnceFiresEverythingDue() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(100, 8, START);
+        for (int i = 1; i <= 50; i++) {
+            wheel.add(START + i * 1_000L, i);
+        }
+
+        List<Integer> fired = new ArrayList<>();
+        wheel.advance(START + 25_000, entry -> fired.add(entry.item()));
+
+        assertEquals(25, fired.size());
+        assertTrue(fired.stream().allMatch(i -> i <= 25));
+    }
+
+    @Test
+    void add_AlreadyDue_IsRejectedForTheCallerToHandle() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, START);
+
+        assertFalse(wheel.add(START - 5, "late"));
+        assertTrue(wheel.add(START + 1, "soon"));
+    }
+}
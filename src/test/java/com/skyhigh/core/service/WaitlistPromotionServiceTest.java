@@ -0,0 +1,72 @@
+package com.skyhigh.core.service;
+
+import com.skyhigh.core.service.SeatInventoryService.Offer;
+import com.skyhigh.core.service.WaitlistService.Waiter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WaitlistPromotionServiceTest {
+
+    @Mock
+    private SeatInventoryService seatInventory;
+
+    @Mock
+    private WaitlistService waitlistService;
+
+    @Mock
+    private SeatStatusWriter seatStatusWriter;
+
+    @InjectMocks
+    private WaitlistPromotionService promotionService;
+
+    @Test
+    void promote_OffersEachFlightsSeatsToPoppedCandidatesAndPersistsOffersAsHolds() {
+        List<SeatRef> released = List.of(new SeatRef(1L, "1A"), new SeatRef(2L, "7C"), new SeatRef(1L, "1B"));
+        Waiter first = new Waiter("waitlisted_user", 1.0);
+        Waiter second = new Waiter("next_user", 2.0);
+        when(waitlistService.popNextUsers(Map.of(1L, 2, 2L, 1))).thenReturn(Map.of(1L, List.of(first, second)));
+        Offer offer = new Offer(new SeatRef(1L, "1A"), "waitlisted_user");
+        when(seatInventory.offerToWaitlist(Map.of(1L, List.of("1A", "1B"), 2L, List.of("7C")),
+                Map.of(1L, List.of("waitlisted_user", "next_user")), SeatService.HOLD_DURATION_SECONDS))
+                .thenReturn(List.of(offer));
+
+        List<Offer> offers = promotionService.promote(released);
+
+        assertEquals(List.of(offer), offers);
+        verify(seatStatusWriter).persistHold(1L, "1A", "waitlisted_user");
+        verifyNoMoreInteractions(seatStatusWriter);
+        verify(waitlistService).recordOffers(List.of(offer), SeatService.HOLD_DURATION_SECONDS);
+        // 1B was re-held meanwhile: its candidate keeps their place in line
+        verify(waitlistService).requeue(Map.of(1L, List.of(second)));
+    }
+
+    @Test
+    void promote_OfferFails_RequeuesAllCandidates() {
+        Map<Long, List<Waiter>> candidates = Map.of(1L, List.of(new Waiter("waitlisted_user", 1.0)));
+        when(waitlistService.popNextUsers(Map.of(1L, 1))).thenReturn(candidates);
+        when(seatInventory.offerToWaitlist(anyMap(), anyMap(), anyLong()))
+                .thenThrow(new IllegalStateException("Redis down"));
+
+        assertThrows(IllegalStateException.class, () -> promotionService.promote(List.of(new SeatRef(1L, "1A"))));
+        verify(waitlistService).requeue(candidates);
+        verifyNoInteractions(seatStatusWriter);
+    }
+
+    @Test
+    void promote_NothingReleased_SkipsRedis() {
+        assertTrue(promotionService.promote(List.of()).isEmpty());
+
+        verifyNoInteractions(seatInventory, waitlistService, seatStatusWriter);
+    }
+}
@@ -1,21 +1,37 @@
 package com.skyhigh.core.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.data.redis.core.ZSetOperations;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -29,16 +45,22 @@ class WaitlistServiceTest {
     @Mock
     private ZSetOperations<String, String> zSetOperations;
 
-    @InjectMocks
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
     private WaitlistService waitlistService;
 
     private static final Long FLIGHT_ID = 1L;
     private static final String USER_ID = "user_001";
-    private static final String WAITLIST_KEY = "waitlist:1";
+    private static final String WAITLIST_KEY = "waitlist:{1:0}";
 
     @BeforeEach
     void setUp() {
         lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        waitlistService = new WaitlistService(redisTemplate, 1, 1_000, 3_600_000);
     }
 
     // ─── joinWaitlistIfAbsent() ──────────────────────────────────────────────
@@ -47,14 +69,13 @@ class WaitlistServiceTest {
     void joinWaitlistIfAbsent_NewUser_ReturnsTrue() {
         when(zSetOperations.addIfAbsent(eq(WAITLIST_KEY), eq(USER_ID), anyDouble()))
                 .thenReturn(true);
-        // getWaitlistPosition called internally for logging
-        when(zSetOperations.rank(eq(WAITLIST_KEY), eq(USER_ID)))
-                .thenReturn(0L);
 
         boolean result = waitlistService.joinWaitlistIfAbsent(FLIGHT_ID, USER_ID);
 
         assertTrue(result, "New user should be successfully added to waitlist");
         verify(zSetOperations).addIfAbsent(eq(WAITLIST_KEY), eq(USER_ID), anyDouble());
+        // No ZRANK per join — positions come from the shard size cache
+        verify(zSetOperations, never()).rank(any(), any());
     }
 
     @Test
@@ -96,11 +117,9 @@ class WaitlistServiceTest {
 
     @Test
     void popNextUser_WhenWaitlistHasUser_ReturnsUserId() {
-        ZSetOperations.TypedTuple<String> tuple = mock(ZSetOperations.TypedTuple.class);
-        when(tuple.getValue()).thenReturn(USER_ID);
-        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
-        tuples.add(tuple);
-        when(zSetOperations.popMin(WAITLIST_KEY, 1)).thenReturn(tuples);
+        Set<ZSetOperations.TypedTuple<String>> tuples = new LinkedHashSet<>();
+        tuples.add(new DefaultTypedTuple<>(USER_ID, 1_000.0));
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(tuples));
 
         String result = waitlistService.popNextUser(FLIGHT_ID);
 
@@ -109,7 +128,7 @@ class WaitlistServiceTest {
 
     @Test
     void popNextUser_WhenWaitlistIsEmpty_ReturnsNull() {
-        when(zSetOperations.popMin(WAITLIST_KEY, 1)).thenReturn(Collections.emptySet());
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(Collections.emptySet()));
 
         String result = waitlistService.popNextUser(FLIGHT_ID);
 
@@ -118,7 +137,7 @@ class WaitlistServiceTest {
 
     @Test
     void popNextUser_WhenRedisReturnsNull_ReturnsNull() {
-        when(zSetOperations.popMin(WAITLIST_KEY, 1)).thenReturn(null);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(Collections.singletonList(null));
 
         String result = waitlistService.popNextUser(FLIGHT_ID);
 
@@ -153,4 +172,296 @@ class WaitlistServiceTest {
 
         assertEquals(0L, rank, "First in queue should have rank 0");
     }
+
+    // ─── sharded waitlists ───────────────────────────────────────────────────
+
+    @Test
+    void buildWaitlistKey_HashTagsFlightAndShard() {
+        assertEquals("waitlist:{42:3}", WaitlistService.buildWaitlistKey(42L, 3),
+                "Each shard must hash to its own cluster slot");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void popNextUsers_Sharded_PopsGlobalHeadByJoinTime() {
+        WaitlistService sharded = new WaitlistService(redisTemplate, 2, 1_000, 3_600_000);
+        String early = userInShard(sharded, 0, 0);
+        String middle = userInShard(sharded, 1, 0);
+        String late = userInShard(sharded, 0, 1);
+        // Peek: shard 0 holds the earliest and the latest joiner, shard 1 the middle one
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(
+                tuples(early, 1.0, late, 3.0), tuples(middle, 2.0)));
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(
+                tuples(early, 1.0), tuples(middle, 2.0)));
+
+        Map<Long, List<WaitlistService.Waiter>> popped = sharded.popNextUsers(Map.of(FLIGHT_ID, 2));
+
+        assertEquals(List.of(new WaitlistService.Waiter(early, 1.0), new WaitlistService.Waiter(middle, 2.0)),
+                popped.get(FLIGHT_ID), "The two earliest joiners across shards, in join order");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void popNextUsers_ShardedAndEmpty_SkipsPop() {
+        WaitlistService sharded = new WaitlistService(redisTemplate, 2, 1_000, 3_600_000);
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(Collections.emptySet(), Collections.emptySet()));
+
+        assertTrue(sharded.popNextUsers(Map.of(FLIGHT_ID, 3)).isEmpty());
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void requeue_PutsUsersBackWithOriginalScore() {
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(inv -> {
+            inv.getArgument(0, SessionCallback.class).execute(redisTemplate);
+            return List.of(true);
+        });
+
+        waitlistService.requeue(Map.of(FLIGHT_ID, List.of(new WaitlistService.Waiter(USER_ID, 1_234.0))));
+
+        verify(zSetOperations).add(WAITLIST_KEY, USER_ID, 1_234.0);
+    }
+
+    // ─── join() / joinAll() ──────────────────────────────────────────────────
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void join_NewUser_AddsAndRanksInOneRoundTrip() {
+        // JOIN_SCRIPT result: {ZCARD, added, rank}
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(List.of(5L, 1L, 4L)));
+
+        WaitlistService.JoinResult result = waitlistService.join(FLIGHT_ID, USER_ID);
+
+        assertTrue(result.added());
+        assertEquals(4L, result.position());
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        verifyNoInteractions(zSetOperations);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void join_Sharded_NewUserIsBehindOtherShardsAndRefreshesTheirSizesOncePerInterval() {
+        WaitlistService sharded = new WaitlistService(redisTemplate, 2, 60_000, 3_600_000);
+        // Own shard {ZCARD 3, added, rank 2}, then the stale other shard's ZCARD
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(List.of(3L, 1L, 2L), 6L))
+                .thenReturn(List.of(List.of(4L, 1L, 3L)));
+
+        WaitlistService.JoinResult first = sharded.join(FLIGHT_ID, userInShard(sharded, 0, 0));
+        WaitlistService.JoinResult second = sharded.join(FLIGHT_ID, userInShard(sharded, 0, 1));
+
+        assertEquals(8L, first.position(), "2 ahead in its shard + 6 in the other");
+        assertEquals(9L, second.position(), "Other shard's size comes from the cache");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void join_AlreadyWaiting_ReturnsExistingPosition() {
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(List.of(5L, 0L, 1L)));
+
+        WaitlistService.JoinResult result = waitlistService.join(FLIGHT_ID, USER_ID);
+
+        assertFalse(result.added());
+        assertEquals(1L, result.position());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void joinAll_ReturnsOneResultPerUserInRequestOrder() {
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(List.of(3L, 1L, 1L, 0L, 0L, 1L, 2L)));
+
+        List<WaitlistService.JoinResult> results = waitlistService.joinAll(FLIGHT_ID, List.of("a", "b", "c"));
+
+        assertEquals(List.of(
+                new WaitlistService.JoinResult("a", true, 1L),
+                new WaitlistService.JoinResult("b", false, 0L),
+                new WaitlistService.JoinResult("c", true, 2L)), results);
+    }
+
+    // ─── refreshDepths() ─────────────────────────────────────────────────────
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refreshDepths_PublishesDepthPerFlightFromOnePipeline() {
+        WaitlistService sharded = new WaitlistService(redisTemplate, 2, 60_000, 3_600_000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sharded.bindTo(registry);
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(List.of(3L, 1L, 2L), 6L))
+                .thenReturn(List.of(4L, 7L));
+        sharded.join(FLIGHT_ID, userInShard(sharded, 0, 0));
+
+        sharded.refreshDepths();
+
+        assertEquals(11.0, registry.get("waitlist.depth").tag("flight", "1").gauge().value());
+        verify(redisTemplate, times(2)).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refreshDepths_EmptyWaitlist_EvictsFlightAndDropsItsRow() {
+        WaitlistService sharded = new WaitlistService(redisTemplate, 2, 60_000, 3_600_000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sharded.bindTo(registry);
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(List.of(1L, 1L, 0L), 0L))
+                .thenReturn(List.of(4L, 7L))
+                .thenReturn(List.of(0L, 0L));
+        sharded.join(FLIGHT_ID, userInShard(sharded, 0, 0));
+        sharded.refreshDepths();
+        assertNotNull(registry.find("waitlist.depth").tag("flight", "1").gauge());
+
+        sharded.refreshDepths(); // everyone was served meanwhile
+
+        assertNull(registry.find("waitlist.depth").tag("flight", "1").gauge());
+        sharded.refreshDepths();
+        verify(redisTemplate, times(3)).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refreshDepths_IdleFlight_IsEvictedWithoutAnotherZcard() {
+        WaitlistService sharded = new WaitlistService(redisTemplate, 2, 60_000, 0);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sharded.bindTo(registry);
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(List.of(1L, 1L, 0L), 5L));
+        sharded.join(FLIGHT_ID, userInShard(sharded, 0, 0));
+
+        sharded.refreshDepths();
+
+        assertNull(registry.find("waitlist.depth").tag("flight", "1").gauge());
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    void refreshDepths_NoWaitlistActivity_SkipsRedis() {
+        waitlistService.refreshDepths();
+
+        verifyNoInteractions(redisTemplate);
+    }
+
+    private static String userInShard(WaitlistService service, int shard, int skip) {
+        List<String> matches = new ArrayList<>();
+        for (int i = 0; matches.size() <= skip; i++) {
+            if (service.shardOf("user_" + i) == shard) {
+                matches.add("user_" + i);
+            }
+        }
+        return matches.get(skip);
+    }
+
+    private static Set<ZSetOperations.TypedTuple<String>> tuples(Object... memberScorePairs) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = new LinkedHashSet<>();
+        for (int i = 0; i < memberScorePairs.length; i += 2) {
+            tuples.add(new DefaultTypedTuple<>((String) memberScorePairs[i], (Double) memberScorePairs[i + 1]));
+        }
+        return tuples;
+    }
+
+    // ─── waitlist offers ─────────────────────────────────────────────────────
+
+    @Test
+    void recordOffers_StoresOneFieldPerFlightExpiringWithTheHold() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(inv -> {
+            inv.getArgument(0, SessionCallback.class).execute(redisTemplate);
+            return List.of();
+        });
+
+        waitlistService.recordOffers(List.of(new SeatInventoryService.Offer(new SeatRef(FLIGHT_ID, "1A"), USER_ID)), 120);
+
+        verify(hashOperations).put(eq("waitlist_offer:{user_001}"), eq("1"), startsWith("1A:"));
+        verify(redisTemplate).expire("waitlist_offer:{user_001}", Duration.ofSeconds(120));
+    }
+
+    @Test
+    void offersFor_ReturnsOnlyLiveOffersStillHeldForTheUser() {
+        long future = System.currentTimeMillis() + 60_000;
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries("waitlist_offer:{user_001}")).thenReturn(Map.of(
+                "1", "1A:" + future,
+                "2", "7C:" + future,              // already confirmed: hold key gone
+                "3", "9F:" + (future - 120_000))); // expired
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        // Pipelined GETs: each queued command's reply lands in the pipeline result
+        List<Object> holders = new ArrayList<>();
+        when(valueOperations.get(anyString())).thenAnswer(inv -> {
+            holders.add(SeatService.buildHoldKey(1L, "1A").equals(inv.getArgument(0)) ? USER_ID : null);
+            return null;
+        });
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(inv -> {
+            inv.getArgument(0, SessionCallback.class).execute(redisTemplate);
+            return holders;
+        });
+
+        List<WaitlistService.PendingOffer> offers = waitlistService.offersFor(USER_ID);
+
+        verify(valueOperations, times(2)).get(anyString());
+        assertEquals(1, offers.size());
+        assertEquals(new WaitlistService.PendingOffer(1L, "1A", future), offers.get(0));
+    }
+
+    @Test
+    void offersFor_NothingRecorded_NoHoldLookups() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries("waitlist_offer:{user_001}")).thenReturn(Map.of());
+
+        assertTrue(waitlistService.offersFor(USER_ID).isEmpty());
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    // ─── drainLegacyWaitlists() ──────────────────────────────────────────────
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void drainLegacyWaitlists_CopiesEntriesIntoShardsKeepingJoinTimeThenRemovesThem() {
+        Cursor<String> cursor = mock(Cursor.class);
+        doAnswer(inv -> {
+            inv.getArgument(0, Consumer.class).accept("waitlist:1");
+            return null;
+        }).when(cursor).forEachRemaining(any());
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        when(zSetOperations.rangeWithScores("waitlist:1", 0, 499))
+                .thenReturn(tuples("user_050", 100.0, "user_051", 200.0))
+                .thenReturn(new LinkedHashSet<>());
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisZSetCommands zSetCommands = mock(RedisZSetCommands.class);
+        when(connection.zSetCommands()).thenReturn(zSetCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(inv -> {
+            inv.getArgument(0, RedisCallback.class).doInRedis(connection);
+            return List.of(true, true);
+        });
+
+        waitlistService.drainLegacyWaitlists();
+        waitlistService.drainLegacyWaitlists(); // already done: no second scan
+
+        byte[] shard = WAITLIST_KEY.getBytes(StandardCharsets.UTF_8);
+        verify(zSetCommands).zAdd(aryEq(shard), eq(100.0), aryEq("user_050".getBytes(StandardCharsets.UTF_8)),
+                any(RedisZSetCommands.ZAddArgs.class));
+        verify(zSetCommands).zAdd(aryEq(shard), eq(200.0), aryEq("user_051".getBytes(StandardCharsets.UTF_8)),
+                any(RedisZSetCommands.ZAddArgs.class));
+        verify(zSetOperations).remove("waitlist:1", "user_050", "user_051");
+        verify(redisTemplate, times(1)).scan(any(ScanOptions.class));
+    }
+
+    @Test
+    void drainLegacyWaitlists_RedisDown_RetriesNextRun() {
+        when(redisTemplate.scan(any(ScanOptions.class)))
+                .thenThrow(new IllegalStateException("redis down"))
+                .thenReturn(emptyCursor());
+
+        waitlistService.drainLegacyWaitlists();
+        waitlistService.drainLegacyWaitlists();
+
+        verify(redisTemplate, times(2)).scan(any(ScanOptions.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cursor<String> emptyCursor() {
+        return mock(Cursor.class);
+    }
 }
@@ -70,7 +70,7 @@ check "POST /seats/hold $SEAT1 duplicate → conflict" "held by another" "$R"
 # ── 5. Confirm SEAT1 ─────────────────────────────────────────────────────────
 R=$(curl -s -X POST "$BASE/bookings/confirm" \
     -H "Content-Type: application/json" \
-    -d "{\"flightId\":1,\"seatNumber\":\"$SEAT1\",\"userId\":\"test_u1\",\"email\":\"u1@airline.com\",\"baggageWeight\":10,\"paymentProcessed\":false}")
+    -d "{\"flightId\":1,\"seatNumber\":\"$SEAT1\",\"userId\":\"test_u1\",\"email\":\"u1@airline.com\",\"baggageWeight\":10}")
 check "POST /bookings/confirm $SEAT1 → CONFIRMED" "CONFIRMED" "$R"
 PNR=$(echo "$R" | grep -o 'PNR-[A-Z0-9]*' | head -1)
 
@@ -98,14 +98,33 @@ check "POST /seats/hold $SEAT2 → HELD" "HELD" "$R"
 # ── 9. Confirm with excess baggage but no payment → 402 ──────────────────────
 R=$(curl -s -X POST "$BASE/bookings/confirm" \
     -H "Content-Type: application/json" \
-    -d "{\"flightId\":1,\"seatNumber\":\"$SEAT2\",\"userId\":\"test_u3\",\"email\":\"u3@airline.com\",\"baggageWeight\":30,\"paymentProcessed\":false}")
+    -d "{\"flightId\":1,\"seatNumber\":\"$SEAT2\",\"userId\":\"test_u3\",\"email\":\"u3@airline.com\",\"baggageWeight\":30}")
 check "POST /bookings/confirm excess baggage no payment → 402" "Excess baggage fee" "$R"
 
-# ── 10. Confirm with excess baggage and payment ───────────────────────────────
+# ── 10. Pay through a payment intent, then confirm ────────────────────────────
+# The mock gateway declines ~20% of charges; a declined intent is final, so
+# retry with a fresh intent (and Idempotency-Key).
+INTENT=""
+for ATTEMPT in 1 2 3 4 5; do
+    R=$(curl -s -X POST "$BASE/payments/intents" \
+        -H "Content-Type: application/json" \
+        -H "Idempotency-Key: test-$SEAT2-$(date +%s)-$ATTEMPT" \
+        -d "{\"flightId\":1,\"seatNumber\":\"$SEAT2\",\"userId\":\"test_u3\",\"baggageWeight\":30}")
+    ID=$(echo "$R" | grep -o 'pi_[a-f0-9]*' | head -1)
+    R=$(curl -s -X POST "$BASE/payments/intents/$ID/execute" \
+        -H "Content-Type: application/json" \
+        -d "{\"userId\":\"test_u3\",\"paymentToken\":\"tok_test\"}")
+    if echo "$R" | grep -q "SUCCEEDED"; then
+        INTENT="$ID"
+        break
+    fi
+done
+check "POST /payments/intents/{id}/execute → SUCCEEDED" "SUCCEEDED" "$R"
+
 R=$(curl -s -X POST "$BASE/bookings/confirm" \
     -H "Content-Type: application/json" \
-    -d "{\"flightId\":1,\"seatNumber\":\"$SEAT2\",\"userId\":\"test_u3\",\"email\":\"u3@airline.com\",\"baggageWeight\":30,\"paymentProcessed\":true}")
-check "POST /bookings/confirm excess baggage + payment → CONFIRMED" "CONFIRMED" "$R"
+    -d "{\"flightId\":1,\"seatNumber\":\"$SEAT2\",\"userId\":\"test_u3\",\"email\":\"u3@airline.com\",\"baggageWeight\":30,\"paymentIntentId\":\"$INTENT\"}")
+check "POST /bookings/confirm excess baggage + paid intent → CONFIRMED" "CONFIRMED" "$R"
 
 # ── 11. Waitlist join (unique user ID per run using timestamp) ────────────────
 WL_USER="wl_$(date +%s)"